@@ -0,0 +1,161 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 并行搜索任意一个文件的实现 <br>
+ * 1. 每个文件夹是一个fork-join任务，子文件夹分给其他线程并行搜索 <br>
+ * 2. 任意一个任务找到文件后立即返回结果，其他任务在展开下一个子项前停止 <br>
+ * 3. 无法展开的文件夹会被跳过，不影响其他文件夹的搜索 <br>
+ * 4. 跟随符号链接搜索，指向自己或者祖先文件夹的符号链接会被跳过 <br>
+ * 5. 超过时间限制时返回null，还在等待系统调用的线程会被中断
+ * @since 4.0
+ * @author Jmc
+ * @see Files#findAny(String, String, long)
+ */
+final class AnyFinder {
+    /**
+     * 文件名称包含的内容
+     */
+    private final String contains;
+
+    /**
+     * 截止时间（System.nanoTime，Long.MAX_VALUE代表不限制时间）
+     */
+    private final long deadline;
+
+    /**
+     * 搜索结果（找到文件或者搜索完毕时完成）
+     */
+    private final CompletableFuture<File> result = new CompletableFuture<>();
+
+    private AnyFinder(String contains, long deadline) {
+        this.contains = contains;
+        this.deadline = deadline;
+    }
+
+    /**
+     * 并行搜索文件夹中名称包含指定内容的任意一个文件
+     * @param dir 搜索的文件夹
+     * @param contains 文件名称包含的内容
+     * @param timeoutMillis 时间限制（毫秒，0代表不限制时间）
+     * @return 搜索结果（没有找到或者超时时为null）
+     */
+    static File find(File dir, String contains, long timeoutMillis) {
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+        var finder = new AnyFinder(contains, deadline);
+
+        var pool = new ForkJoinPool(CopyEngine.detectParallelism(dir.getAbsolutePath()));
+        try {
+            pool.execute(() -> {
+                try {
+                    finder.new FindTask(dir.toPath(), DirStats.Ancestor.root(dir.toPath())).invoke();
+                    finder.result.complete(null);
+                } catch (Throwable e) {
+                    finder.result.completeExceptionally(e);
+                }
+            });
+
+            return timeoutMillis > 0 ? finder.result.get(timeoutMillis, TimeUnit.MILLISECONDS) : finder.result.get();
+        } catch (TimeoutException e) {
+            Files.log(() -> "搜索超时：" + dir.getAbsolutePath());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            // 通知其他任务停止
+            finder.result.complete(null);
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 判断是否应该停止搜索（已经找到或者超时）
+     * @return 是否停止
+     */
+    private boolean stopped() {
+        return result.isDone() || System.nanoTime() > deadline;
+    }
+
+    /**
+     * 搜索一层文件夹的任务，子文件夹会分出新的任务并行搜索
+     */
+    @SuppressWarnings("serial")
+    private class FindTask extends RecursiveAction {
+        /**
+         * 文件夹路径
+         */
+        private final Path dir;
+
+        /**
+         * 当前文件夹和祖先文件夹（无法读取根文件夹属性时为null）
+         */
+        private final DirStats.Ancestor ancestors;
+
+        FindTask(Path dir, DirStats.Ancestor ancestors) {
+            this.dir = dir;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped()) {
+                return;
+            }
+
+            var subTasks = new ArrayList<FindTask>();
+            try {
+                java.nio.file.Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        if (stopped()) {
+                            return FileVisitResult.TERMINATE;
+                        }
+
+                        if (attrs.isDirectory()) {
+                            var key = DirStats.key(path, attrs);
+                            if (ancestors != null && ancestors.contains(key)) {
+                                Files.log(() -> "跳过循环的符号链接：" + path);
+                            } else {
+                                subTasks.add(new FindTask(path, new DirStats.Ancestor(key, ancestors)));
+                            }
+                        } else if (path.getFileName().toString().contains(contains)) {
+                            result.complete(path.toFile());
+                            return FileVisitResult.TERMINATE;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        // 跳过无法展开的文件夹
+                        Files.log(() -> "展开文件夹失败：" + path);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                Files.log(() -> "展开文件夹失败：" + dir);
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package com.jmc.io;
+
+import com.jmc.lang.Objs;
+import com.jmc.lang.Tries;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件复制引擎 <br>
+ * 1. 并发数根据存储设备类型（机械硬盘，固态硬盘，网络存储）自动确定，也可以手动指定 <br>
+ * 2. 遍历文件夹的线程和复制线程之间使用有界队列，队列满时遍历线程会阻塞等待（背压） <br>
+ * 3. 小文件会被合并成批次，交给同一个线程复制，减少任务调度开销 <br>
+ * 4. 可选使用虚拟线程（需要Java 21及以上，低版本会自动回退到平台线程） <br>
+ * 5. 大文件分为多个区间并行复制（机械硬盘上默认不分段）
+ * @apiNote <pre>{@code
+ * // 使用自动并发数将a文件夹复制到/path/to/b/a，并获取统计结果
+ * IoStats stats = CopyEngine.builder().build().copy("/path/to/a", "/path/to/b");
+ *
+ * // 指定并发数为4，队列容量为64，大文件分8段复制，并使用虚拟线程
+ * var engine = CopyEngine.builder()
+ *         .parallelism(4)
+ *         .queueCapacity(64)
+ *         .ranges(8)
+ *         .virtualThreads(true)
+ *         .build();
+ * // 引擎可以重复使用
+ * engine.copy("/path/to/a", "/path/to/b");
+ * engine.copy("/path/to/c", "/path/to/d");
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public class CopyEngine {
+    /**
+     * 小文件大小界限，小于该大小的文件会被合并成批次复制
+     */
+    private static final int SMALL_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * 一个批次最多包含的文件数量
+     */
+    private static final int BATCH_MAX_FILES = 64;
+
+    /**
+     * 一个批次最多包含的字节数
+     */
+    private static final int BATCH_MAX_BYTES = 1024 * 1024 * 8;
+
+    /**
+     * 大文件并行复制的默认分段数
+     */
+    private static final int DEFAULT_RANGES = 4;
+
+    /**
+     * 网络文件系统类型（小写）
+     */
+    private static final Set<String> NETWORK_FS_TYPES = Set.of(
+            "nfs", "nfs4", "cifs", "smb", "smbfs", "smb2", "smb3", "fuse.sshfs", "sshfs", "9p", "afs", "webdav", "davfs"
+    );
+
+    /**
+     * 并发数（0代表根据存储设备自动确定）
+     */
+    private final int parallelism;
+
+    /**
+     * 等待队列容量（0代表使用并发数的4倍）
+     */
+    private final int queueCapacity;
+
+    /**
+     * 大文件并行复制的分段数（0代表根据存储设备自动确定）
+     */
+    private final int ranges;
+
+    /**
+     * 是否使用虚拟线程
+     */
+    private final boolean virtualThreads;
+
+    private CopyEngine(int parallelism, int queueCapacity, int ranges, boolean virtualThreads) {
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.ranges = ranges;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * 获取复制引擎的构造器
+     * @return 复制引擎的构造器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 复制引擎的构造器
+     */
+    public static class Builder {
+        /**
+         * 并发数
+         */
+        private int parallelism;
+
+        /**
+         * 等待队列容量
+         */
+        private int queueCapacity;
+
+        /**
+         * 大文件并行复制的分段数
+         */
+        private int ranges;
+
+        /**
+         * 是否使用虚拟线程
+         */
+        private boolean virtualThreads;
+
+        private Builder() {}
+
+        /**
+         * 指定并发数（不指定或者为0时根据存储设备自动确定）
+         * @param parallelism 并发数
+         * @return 构造器本身
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 0) {
+                throw new IllegalArgumentException("并发数不能为负数！");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 指定等待队列容量（不指定或者为0时使用并发数的4倍）
+         * @param queueCapacity 等待队列容量
+         * @return 构造器本身
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("队列容量不能为负数！");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 指定大文件并行复制的分段数（不指定或者为0时根据存储设备自动确定，为1时不分段）
+         * @param ranges 分段数
+         * @return 构造器本身
+         */
+        public Builder ranges(int ranges) {
+            if (ranges < 0) {
+                throw new IllegalArgumentException("分段数不能为负数！");
+            }
+            this.ranges = ranges;
+            return this;
+        }
+
+        /**
+         * 指定是否使用虚拟线程（需要Java 21及以上，低版本会自动回退到平台线程）
+         * @param virtualThreads 是否使用虚拟线程
+         * @return 构造器本身
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * 构造复制引擎
+         * @return 复制引擎
+         */
+        public CopyEngine build() {
+            return new CopyEngine(parallelism, queueCapacity, ranges, virtualThreads);
+        }
+    }
+
+    /**
+     * 复制文件或文件夹
+     * @param srcPath 源路径
+     * @param desPath 目标路径
+     * @return 统计结果（只统计复制成功的文件，复制失败的文件数量见{@link IoStats#failed()}）
+     * @apiNote <pre>{@code
+     * // 将a.txt复制到dir文件夹
+     * CopyEngine.builder().build().copy("./a.txt", "/path/to/dir");
+     *
+     * // 将a文件夹复制到/path/to/dir/a
+     * CopyEngine.builder().build().copy("/path/to/a", "/path/to/dir");
+     * }</pre>
+     * @see Files#copy(String, String)
+     */
+    public IoStats copy(String srcPath, String desPath) {
+        Objs.throwsIfNullOrEmpty("源路径和目标路径不能为空！", srcPath, desPath);
+
+        // 创建源文件
+        File src = new File(srcPath);
+
+        // 检查路径是否存在
+        if (!src.exists()) {
+            throw new RuntimeException("源文件不存在，复制失败");
+        }
+
+        // 创建目标文件
+        File des = new File(desPath + "/" + src.getName());
+
+        // 记录开始时间
+        long startTime = System.nanoTime();
+        long start = IoMetrics.start();
+
+        // 机械硬盘上多段并行会导致来回寻道，默认不分段
+        int rangeCount = ranges > 0 ? ranges : detectParallelism(srcPath) <= 2 ? 1 : DEFAULT_RANGES;
+
+        // 所有大文件共用一个分段线程池，分段的总并发数不超过分段数（线程在提交任务时才创建）
+        var rangePool = rangeCount > 1 ? newRangeExecutor(rangeCount) : null;
+
+        IoStats stats;
+        try {
+            if (src.isFile()) {
+                Files.log(() -> "正在复制" + src.getName() + "这个文件");
+
+                // 创建父目录
+                Files.mkdirs(des.getParent());
+
+                long length = src.length();
+                stats = Files.copyFile(src, des, length, rangeCount, rangePool)
+                        ? new IoStats(1, length, 0, System.nanoTime() - startTime)
+                        : new IoStats(0, 0, 1, System.nanoTime() - startTime);
+            } else {
+                Files.log(() -> "正在复制" + src.getName() + "这个文件夹");
+                stats = copyDir(src, des, rangeCount, rangePool, startTime);
+            }
+        } finally {
+            if (rangePool != null) {
+                rangePool.shutdown();
+            }
+            IoMetrics.call(IoMetrics.Op.COPY, start);
+        }
+
+        Files.log(() -> "复制完成：" + stats);
+        return stats;
+    }
+
+    /**
+     * 复制文件或文件夹
+     * @param src 源文件
+     * @param desPath 目标路径
+     * @return 统计结果
+     * @see #copy(String, String)
+     */
+    public IoStats copy(File src, String desPath) {
+        return copy(src.getAbsolutePath(), desPath);
+    }
+
+    /**
+     * 复制文件夹
+     * @param src 源文件夹
+     * @param des 目标文件夹
+     * @param rangeCount 大文件并行复制的分段数
+     * @param rangePool 分段复制的线程池（分段数为1时为null）
+     * @param startTime 开始时间（纳秒）
+     * @return 统计结果
+     */
+    private IoStats copyDir(File src, File des, int rangeCount, ExecutorService rangePool, long startTime) {
+        int threads = parallelism > 0 ? parallelism :
+                Math.min(detectParallelism(src.getAbsolutePath()), detectParallelism(des.getParent()));
+        int capacity = queueCapacity > 0 ? queueCapacity : threads * 4;
+
+        // 正在执行和正在排队的任务总数不能超过并发数 + 队列容量，超过时遍历线程阻塞等待
+        var permits = new Semaphore(threads + capacity);
+        // 同时执行的任务数不能超过并发数（虚拟线程不池化，需要用它来限制并发）
+        var running = new Semaphore(threads);
+        var pool = newExecutor(threads);
+
+        // 只统计复制成功的文件
+        var files = new LongAdder();
+        var bytes = new LongAdder();
+        var failed = new LongAdder();
+
+        Path srcRoot = src.toPath(), desRoot = des.toPath();
+
+        try {
+            // 和File.isDirectory()一样跟随符号链接
+            var options = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+            java.nio.file.Files.walkFileTree(srcRoot, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                // 当前正在积累的小文件批次
+                List<CopyTask> batch = new ArrayList<>();
+                long batchBytes = 0;
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    // 创建这个目录
+                    Files.mkdirs(desRoot.resolve(srcRoot.relativize(dir)).toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    var srcFile = file.toFile();
+                    var desFile = desRoot.resolve(srcRoot.relativize(file)).toFile();
+                    long length = attrs.size();
+
+                    if (length < SMALL_FILE_SIZE) {
+                        // 小文件放入批次
+                        batch.add(new CopyTask(srcFile, desFile, length));
+                        batchBytes += length;
+                        if (batch.size() >= BATCH_MAX_FILES || batchBytes >= BATCH_MAX_BYTES) {
+                            flushBatch();
+                        }
+                    } else {
+                        submit(pool, permits, running, () -> {
+                            if (Files.copyFile(srcFile, desFile, length, rangeCount, rangePool)) {
+                                files.increment();
+                                bytes.add(length);
+                            } else {
+                                failed.increment();
+                            }
+                        });
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    throw new RuntimeException("展开文件夹失败：" + file, e);
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (dir.equals(srcRoot)) {
+                        // 提交最后一个批次
+                        flushBatch();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                void flushBatch() {
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+
+                    var currBatch = batch;
+                    submit(pool, permits, running, () -> {
+                        for (var task : currBatch) {
+                            long start = IoMetrics.start();
+                            if (Files.copySmallFile(task.src(), task.des())) {
+                                IoMetrics.file(IoMetrics.Op.COPY, task.length(), start);
+                                files.increment();
+                                bytes.add(task.length());
+                            } else {
+                                failed.increment();
+                            }
+                        }
+                    });
+
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+
+            // 等待执行完成
+            Tries.tryRun(() -> { while (!pool.awaitTermination(1, TimeUnit.DAYS)) {} });
+        }
+
+        return new IoStats(files.sum(), bytes.sum(), failed.sum(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * 提交任务，如果队列已满就阻塞等待
+     * @param pool 线程池
+     * @param permits 任务许可（限制排队和执行的任务总数）
+     * @param running 执行许可（限制同时执行的任务数）
+     * @param task 任务
+     */
+    private static void submit(ExecutorService pool, Semaphore permits, Semaphore running, Runnable task) {
+        Tries.tryRun(permits::acquire);
+        IoMetrics.enqueue(IoMetrics.Op.COPY);
+        try {
+            pool.execute(() -> {
+                try {
+                    Tries.tryRun(running::acquire);
+                    IoMetrics.dequeue(IoMetrics.Op.COPY);
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                    }
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            IoMetrics.dequeue(IoMetrics.Op.COPY);
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 创建执行复制任务的线程池
+     * @param threads 线程数
+     * @return 线程池
+     */
+    private ExecutorService newExecutor(int threads) {
+        if (virtualThreads) {
+            // 虚拟线程没有池化的必要，并发数由任务许可控制
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                Files.log(() -> "当前Java版本不支持虚拟线程，使用平台线程复制");
+            }
+        }
+
+        var count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            var t = new Thread(r, "jmc-copy-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 创建分段复制大文件的线程池
+     * @param ranges 分段数
+     * @return 线程池
+     */
+    private static ExecutorService newRangeExecutor(int ranges) {
+        var count = new AtomicInteger();
+        return Executors.newFixedThreadPool(ranges, r -> {
+            var t = new Thread(r, "jmc-copy-range-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 根据路径所在的存储设备确定合适的并发数 <br>
+     * 机械硬盘: 2（避免磁头来回寻道） <br>
+     * 固态硬盘: CPU核数的2倍（最多32） <br>
+     * 网络存储: 16（掩盖网络延迟） <br>
+     * 无法识别: CPU核数
+     * @param path 文件/文件夹路径
+     * @return 并发数
+     * @apiNote <pre>{@code
+     * // 获取a文件夹所在存储设备的合适并发数
+     * int parallelism = CopyEngine.detectParallelism("/path/to/a");
+     * }</pre>
+     */
+    public static int detectParallelism(String path) {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // 找到存在的最近一级路径
+        var file = new File(path).getAbsoluteFile();
+        while (file != null && !file.exists()) {
+            file = file.getParentFile();
+        }
+        if (file == null) {
+            return cores;
+        }
+
+        try {
+            var store = java.nio.file.Files.getFileStore(file.toPath());
+
+            if (NETWORK_FS_TYPES.contains(store.type().toLowerCase())) {
+                return 16;
+            }
+
+            return switch (rotational(store.name())) {
+                case 1 -> 2;
+                case 0 -> Math.min(cores * 2, 32);
+                default -> cores;
+            };
+        } catch (IOException e) {
+            return cores;
+        }
+    }
+
+    /**
+     * 查询Linux块设备是否是机械硬盘
+     * @param deviceName 设备名称（如/dev/sda1）
+     * @return 1: 机械硬盘，0: 非机械硬盘，-1: 无法识别
+     */
+    private static int rotational(String deviceName) {
+        var blockDir = Path.of("/sys/class/block", new File(deviceName).getName());
+        if (!java.nio.file.Files.exists(blockDir)) {
+            return -1;
+        }
+
+        try {
+            var realDir = blockDir.toRealPath();
+            // 磁盘本身有queue目录，分区则需要查找上级磁盘的queue目录
+            for (var rotational : List.of(realDir.resolve("queue/rotational"),
+                                          realDir.resolveSibling("queue/rotational"))) {
+                if (java.nio.file.Files.isRegularFile(rotational)) {
+                    return Integer.parseInt(java.nio.file.Files.readString(rotational).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {}
+
+        return -1;
+    }
+
+    /**
+     * 复制任务
+     * @param src 源文件
+     * @param des 目标文件
+     * @param length 源文件长度
+     */
+    private record CopyTask(File src, File des, long length) {}
+}
@@ -0,0 +1,380 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 差量复制的实现（类似rsync算法） <br>
+ * 1. 把目标文件按块计算签名（弱校验: 滚动校验和，强校验: MD5） <br>
+ * 2. 在源文件上逐字节滑动窗口计算滚动校验和，找到和目标文件相同的块 <br>
+ * 3. 在目标文件上原地写入不同的区域，位置不变的相同块直接跳过
+ * @since 4.0
+ * @author Jmc
+ * @see Files#deltaCopy(String, String)
+ */
+final class DeltaCopy {
+    /**
+     * 最小块大小
+     */
+    private static final int MIN_BLOCK_SIZE = 4 * 1024;
+
+    /**
+     * 最大块大小
+     */
+    private static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * 读取源文件的缓冲区最小大小
+     */
+    private static final int MIN_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * 强校验的摘要算法
+     */
+    private static final String STRONG_ALGORITHM = "MD5";
+
+    /**
+     * 强校验值的长度
+     */
+    private static final int STRONG_LENGTH = 16;
+
+    /**
+     * 块大小
+     */
+    private final int blockSize;
+
+    /**
+     * 目标文件的块签名：高32位是弱校验值，低32位是块序号，按弱校验值排序
+     */
+    private long[] weakIndex;
+
+    /**
+     * 目标文件各块的强校验值（按块序号连续存放）
+     */
+    private byte[] strongs;
+
+    /**
+     * 强校验摘要
+     */
+    private final MessageDigest md;
+
+    /**
+     * 和目标文件同位置内容相同、不需要写入的字节数
+     */
+    private long matchedBytes;
+
+    /**
+     * 实际写入目标文件的字节数
+     */
+    private long transferredBytes;
+
+    private DeltaCopy(int blockSize) {
+        this.blockSize = blockSize;
+        try {
+            this.md = MessageDigest.getInstance(STRONG_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 差量复制文件
+     * @param src 源文件
+     * @param des 目标文件（不存在时直接复制）
+     * @return 差量复制结果
+     */
+    static Files.DeltaResult copy(File src, File des) {
+        long startTime = System.nanoTime();
+        long length = src.length();
+
+        // 目标文件不存在或者为空时没有可以复用的块
+        if (!des.isFile() || des.length() == 0) {
+            if (!Files.copyFile(src, des, length, 1, null)) {
+                throw new RuntimeException("复制文件失败：" + src.getAbsolutePath());
+            }
+            return new Files.DeltaResult(length, 0, length, System.nanoTime() - startTime);
+        }
+
+        var delta = new DeltaCopy(blockSize(des.length()));
+        try (var in = FileChannel.open(src.toPath(), StandardOpenOption.READ);
+             var out = FileChannel.open(des.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            delta.computeSignatures(out);
+            delta.patch(in, out);
+
+            // 截断多余的部分
+            out.truncate(length);
+            // 强制将内存中剩余数据写入硬盘，保证数据完整性
+            out.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return new Files.DeltaResult(length, delta.matchedBytes, delta.transferredBytes, System.nanoTime() - startTime);
+    }
+
+    /**
+     * 根据文件长度确定块大小（文件长度的平方根，对齐到2的幂）
+     * @param length 文件长度
+     * @return 块大小
+     */
+    private static int blockSize(long length) {
+        long sqrt = (long) Math.sqrt(length);
+        int size = Integer.highestOneBit((int) Math.min(sqrt, MAX_BLOCK_SIZE));
+        return Math.max(MIN_BLOCK_SIZE, size);
+    }
+
+    /**
+     * 计算目标文件所有完整块的签名
+     * @param des 目标文件通道
+     * @throws IOException 读取出错
+     */
+    private void computeSignatures(FileChannel des) throws IOException {
+        int blocks = (int) (des.size() / blockSize);
+        weakIndex = new long[blocks];
+        strongs = new byte[blocks * STRONG_LENGTH];
+
+        var buff = ByteBuffer.allocate(Math.max(MIN_BUFFER_SIZE / blockSize, 1) * blockSize);
+        var bs = buff.array();
+        int block = 0;
+        long pos = 0;
+
+        while (block < blocks) {
+            buff.clear();
+            while (buff.hasRemaining() && des.read(buff, pos + buff.position()) > 0) {}
+            if (buff.position() == 0) {
+                throw new IOException("目标文件在计算签名时被修改！");
+            }
+            pos += buff.position();
+
+            for (int off = 0; off + blockSize <= buff.position() && block < blocks; off += blockSize, block++) {
+                weakIndex[block] = ((long) weak(bs, off, blockSize) << 32) | block;
+                strong(bs, off, strongs, block * STRONG_LENGTH);
+            }
+        }
+
+        Arrays.sort(weakIndex);
+    }
+
+    /**
+     * 在源文件上滑动窗口查找相同的块，并把不同的区域写入目标文件
+     * @param src 源文件通道
+     * @param des 目标文件通道
+     * @throws IOException 读写出错
+     */
+    private void patch(FileChannel src, FileChannel des) throws IOException {
+        long length = src.size();
+
+        var bs = new byte[Math.max(MIN_BUFFER_SIZE, blockSize * 4)];
+        // bs[0]在文件中的位置和bs中有效数据的长度
+        long bufStart = 0;
+        int bufLen = 0;
+
+        // 当前窗口开始位置，和尚未写入目标文件的区域开始位置
+        long pos = 0, pendingStart = 0;
+
+        // 滚动校验和的两个部分
+        int a = 0, b = 0;
+        boolean rolling = false;
+
+        while (pos + blockSize <= length) {
+            // 保证窗口和它后面的一个字节都在缓冲区中
+            if (pos + blockSize + 1 > bufStart + bufLen && bufStart + bufLen < length) {
+                // 先写入待写区域，再把窗口移动到缓冲区开头
+                write(des, bs, bufStart, pendingStart, pos);
+                pendingStart = pos;
+
+                int keep = (int) (bufStart + bufLen - pos);
+                System.arraycopy(bs, (int) (pos - bufStart), bs, 0, keep);
+                bufStart = pos;
+                bufLen = keep + fill(src, bs, keep, bufStart + keep);
+            }
+
+            int off = (int) (pos - bufStart);
+            if (!rolling) {
+                int weak = weak(bs, off, blockSize);
+                a = weak & 0xffff;
+                b = weak >>> 16;
+                rolling = true;
+            }
+
+            int block = find((b << 16) | a, bs, off, pos);
+            if (block >= 0) {
+                if ((long) block * blockSize == pos) {
+                    // 位置不变的相同块不需要写入（位置变化的相同块仍然要原地写入，不计入相同字节数）
+                    write(des, bs, bufStart, pendingStart, pos);
+                    pendingStart = pos + blockSize;
+                    matchedBytes += blockSize;
+                }
+
+                pos += blockSize;
+                rolling = false;
+            } else {
+                // 滚动到下一个字节
+                if (pos + blockSize < length) {
+                    int out = bs[off] & 0xff, in = bs[off + blockSize] & 0xff;
+                    a = (a - out + in) & 0xffff;
+                    b = (b - blockSize * out + a) & 0xffff;
+                }
+                pos++;
+            }
+        }
+
+        // 尾部不足一块的部分，和目标文件同位置内容相同时不写入
+        if (pos < length) {
+            if (bufStart + bufLen < length) {
+                write(des, bs, bufStart, pendingStart, pos);
+                pendingStart = pos;
+
+                int keep = (int) (bufStart + bufLen - pos);
+                System.arraycopy(bs, (int) (pos - bufStart), bs, 0, keep);
+                bufStart = pos;
+                bufLen = keep + fill(src, bs, keep, bufStart + keep);
+            }
+
+            int tailLen = (int) (length - pos);
+            var tail = ByteBuffer.allocate(tailLen);
+            while (tail.hasRemaining() && des.read(tail, pos + tail.position()) > 0) {}
+
+            if (tail.position() == tailLen && Arrays.equals(tail.array(), 0, tailLen,
+                    bs, (int) (pos - bufStart), (int) (pos - bufStart) + tailLen)) {
+                matchedBytes += tailLen;
+                write(des, bs, bufStart, pendingStart, pos);
+                pendingStart = length;
+            }
+        }
+
+        write(des, bs, bufStart, pendingStart, length);
+    }
+
+    /**
+     * 查找和窗口内容相同的目标文件块
+     * @param weak 窗口的弱校验值
+     * @param bs 缓冲区
+     * @param off 窗口在缓冲区中的位置
+     * @param pos 窗口在源文件中的位置
+     * @return 目标文件块序号（找不到返回-1）
+     */
+    private int find(int weak, byte[] bs, int off, long pos) {
+        long key = (long) weak << 32;
+        int i = lowerBound(key);
+        if (i == weakIndex.length || (weakIndex[i] >>> 32) != (weak & 0xffffffffL)) {
+            return -1;
+        }
+
+        // 弱校验值相同时才计算强校验值
+        var strong = new byte[STRONG_LENGTH];
+        strong(bs, off, strong, 0);
+
+        // 优先选择和窗口位置相同的块，这样不需要写入
+        int found = -1;
+        for (; i < weakIndex.length && (weakIndex[i] >>> 32) == (weak & 0xffffffffL); i++) {
+            int block = (int) weakIndex[i];
+            if (Arrays.equals(strongs, block * STRONG_LENGTH, (block + 1) * STRONG_LENGTH, strong, 0, STRONG_LENGTH)) {
+                if ((long) block * blockSize == pos) {
+                    return block;
+                }
+                if (found < 0) {
+                    found = block;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 二分查找第一个不小于key的签名位置
+     * @param key 查找的签名
+     * @return 签名位置
+     */
+    private int lowerBound(long key) {
+        int lo = 0, hi = weakIndex.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (weakIndex[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 把缓冲区中[from, to)的数据写入目标文件相同的位置
+     * @param des 目标文件通道
+     * @param bs 缓冲区
+     * @param bufStart 缓冲区开头在文件中的位置
+     * @param from 开始位置（包含）
+     * @param to 结束位置（不包含）
+     * @throws IOException 写入出错
+     */
+    private void write(FileChannel des, byte[] bs, long bufStart, long from, long to) throws IOException {
+        if (from >= to) {
+            return;
+        }
+
+        var buff = ByteBuffer.wrap(bs, (int) (from - bufStart), (int) (to - from));
+        long pos = from;
+        while (buff.hasRemaining()) {
+            pos += des.write(buff, pos);
+        }
+        transferredBytes += to - from;
+    }
+
+    /**
+     * 从源文件读取数据填充缓冲区
+     * @param src 源文件通道
+     * @param bs 缓冲区
+     * @param off 缓冲区开始位置
+     * @param pos 文件读取位置
+     * @return 读取的字节数
+     * @throws IOException 读取出错
+     */
+    private static int fill(FileChannel src, byte[] bs, int off, long pos) throws IOException {
+        var buff = ByteBuffer.wrap(bs, off, bs.length - off);
+        int n;
+        while (buff.hasRemaining() && (n = src.read(buff, pos)) > 0) {
+            pos += n;
+        }
+        return buff.position() - off;
+    }
+
+    /**
+     * 计算弱校验值（rsync滚动校验和：低16位是字节和，高16位是加权字节和）
+     * @param bs 数据
+     * @param off 开始位置
+     * @param len 长度
+     * @return 弱校验值
+     */
+    private static int weak(byte[] bs, int off, int len) {
+        int a = 0, b = 0;
+        for (int i = 0; i < len; i++) {
+            int x = bs[off + i] & 0xff;
+            a += x;
+            b += (len - i) * x;
+        }
+        return ((b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    /**
+     * 计算强校验值
+     * @param bs 数据
+     * @param off 开始位置
+     * @param res 存放结果的数组
+     * @param resOff 结果存放位置
+     */
+    private void strong(byte[] bs, int off, byte[] res, int resOff) {
+        md.update(bs, off, blockSize);
+        try {
+            md.digest(res, resOff, STRONG_LENGTH);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
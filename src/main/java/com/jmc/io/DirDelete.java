@@ -0,0 +1,228 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 并行删除文件夹的实现 <br>
+ * 1. 每个文件夹是一个fork-join任务，展开时每个子项只读取一次属性，不再先尝试删除再展开 <br>
+ * 2. 文件在展开后立即删除，文件很多的文件夹会把文件分成多批并行删除 <br>
+ * 3. 子文件夹的任务全部完成后再删除文件夹本身（自底向上） <br>
+ * 不跟随符号链接（只删除链接本身），任何一个子项删除失败时抛出异常，包含它的文件夹不会被删除
+ * @since 4.0
+ * @author Jmc
+ * @see Files#delete(String, int)
+ */
+final class DirDelete {
+    /**
+     * 每批删除的文件数量
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * 删除的文件数量
+     */
+    private final LongAdder files = new LongAdder();
+
+    /**
+     * 删除的文件夹数量
+     */
+    private final LongAdder dirs = new LongAdder();
+
+    /**
+     * 删除的字节数
+     */
+    private final LongAdder bytes = new LongAdder();
+
+    private DirDelete() {}
+
+    /**
+     * 删除文件或文件夹
+     * @param src 文件/文件夹
+     * @param parallelism 并发数
+     * @return 删除结果
+     */
+    static Files.DeleteResult delete(File src, int parallelism) {
+        return delete(src, task -> {
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        });
+    }
+
+    /**
+     * 在当前的fork-join线程池中删除文件或文件夹（供其他fork-join任务调用，不再新建线程池）
+     * @param src 文件/文件夹
+     * @return 删除结果
+     */
+    static Files.DeleteResult deleteInPool(File src) {
+        return delete(src, ForkJoinTask::invoke);
+    }
+
+    /**
+     * 删除文件或文件夹
+     * @param src 文件/文件夹
+     * @param invoker 执行删除文件夹任务的方式
+     * @return 删除结果
+     */
+    private static Files.DeleteResult delete(File src, Consumer<ForkJoinTask<?>> invoker) {
+        long startTime = System.nanoTime();
+
+        var dirDelete = new DirDelete();
+        var path = src.toPath();
+        var attrs = readAttributes(path);
+        if (attrs.isDirectory()) {
+            invoker.accept(dirDelete.new DeleteTask(path));
+        } else {
+            dirDelete.deleteFile(path, attrs.size());
+        }
+
+        return new Files.DeleteResult(
+                dirDelete.files.sum(),
+                dirDelete.dirs.sum(),
+                dirDelete.bytes.sum(),
+                System.nanoTime() - startTime
+        );
+    }
+
+    /**
+     * 删除一层文件夹的任务，子文件夹和成批的文件会分出新的任务并行删除
+     */
+    @SuppressWarnings("serial")
+    private class DeleteTask extends RecursiveAction {
+        /**
+         * 文件夹路径
+         */
+        private final Path dir;
+
+        DeleteTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            var subTasks = new ArrayList<ForkJoinTask<?>>();
+            var batch = new ArrayList<Path>();
+            var batchLengths = new ArrayList<Long>();
+
+            try {
+                java.nio.file.Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        if (attrs.isDirectory()) {
+                            subTasks.add(new DeleteTask(path));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        // 文件攒够一批后交给其他线程删除
+                        batch.add(path);
+                        batchLengths.add(attrs.size());
+                        if (batch.size() == BATCH_SIZE) {
+                            subTasks.add(new BatchTask(new ArrayList<>(batch), new ArrayList<>(batchLengths)));
+                            batch.clear();
+                            batchLengths.clear();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                        throw e;
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("展开文件夹失败：" + dir, e);
+            }
+
+            // 最后一批文件放在第一个，invokeAll会在当前线程执行第一个任务，其余任务交给其他线程
+            subTasks.add(0, new BatchTask(batch, batchLengths));
+            invokeAll(subTasks);
+
+            // 所有子项都删除后再删除文件夹本身
+            try {
+                java.nio.file.Files.delete(dir);
+            } catch (IOException e) {
+                throw new RuntimeException("删除失败：" + dir, e);
+            }
+            dirs.increment();
+            Files.log(() -> "正在删除：" + dir);
+        }
+    }
+
+    /**
+     * 删除一批文件的任务
+     */
+    @SuppressWarnings("serial")
+    private class BatchTask extends RecursiveAction {
+        /**
+         * 文件路径
+         */
+        private final List<Path> paths;
+
+        /**
+         * 文件长度
+         */
+        private final List<Long> lengths;
+
+        BatchTask(List<Path> paths, List<Long> lengths) {
+            this.paths = paths;
+            this.lengths = lengths;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = 0; i < paths.size(); i++) {
+                deleteFile(paths.get(i), lengths.get(i));
+            }
+        }
+    }
+
+    /**
+     * 删除文件并计数
+     * @param path 文件路径
+     * @param length 文件长度
+     */
+    private void deleteFile(Path path, long length) {
+        long start = IoMetrics.start();
+        try {
+            java.nio.file.Files.delete(path);
+        } catch (IOException e) {
+            throw new RuntimeException("删除失败：" + path, e);
+        }
+        files.increment();
+        bytes.add(length);
+        IoMetrics.file(IoMetrics.Op.DELETE, length, start);
+        Files.log(() -> "正在删除：" + path);
+    }
+
+    /**
+     * 读取文件/文件夹的属性（不跟随符号链接）
+     * @param path 文件/文件夹路径
+     * @return 属性
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.jmc.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 移动文件夹的实现 <br>
+ * 1. 每个子树先尝试原子重命名，同一个文件系统中整个子树一次移动完成 <br>
+ * 2. 重命名失败（比如跨文件系统）时展开文件夹，每个文件复制完成后立即删除源文件，边复制边释放源空间 <br>
+ * 3. 文件先复制到目标文件夹中的临时文件，刷盘后再重命名为目标文件，目标中不会出现复制了一半的文件 <br>
+ * 4. 目标文件已经存在并且长度和修改时间都和源文件相同时直接删除源文件，程序中途退出后重新移动可以接着完成 <br>
+ * 多个子文件夹并行移动，文件夹在子项全部移动后删除，不跟随符号链接
+ * @since 4.0
+ * @author Jmc
+ * @see Files#move(String, String, int)
+ */
+final class DirMove {
+    /**
+     * 复制时使用的临时文件后缀
+     */
+    private static final String TEMP_SUFFIX = ".jmc-move";
+
+    /**
+     * 重命名移动的文件/文件夹数量
+     */
+    private final LongAdder renamed = new LongAdder();
+
+    /**
+     * 复制后删除的文件数量
+     */
+    private final LongAdder copied = new LongAdder();
+
+    /**
+     * 复制的字节数
+     */
+    private final LongAdder copiedBytes = new LongAdder();
+
+    private DirMove() {}
+
+    /**
+     * 重命名的结果
+     */
+    private enum RenameResult {
+        /**
+         * 重命名成功
+         */
+        RENAMED,
+
+        /**
+         * 不在同一个文件系统，不能重命名
+         */
+        CROSS_DEVICE,
+
+        /**
+         * 其他原因失败（比如目标文件夹已经存在并且不为空）
+         */
+        FAILED
+    }
+
+    /**
+     * 移动文件或文件夹
+     * @param src 源文件/文件夹
+     * @param des 目标文件/文件夹
+     * @param parallelism 并发数
+     * @return 移动结果
+     */
+    static Files.MoveResult move(Path src, Path des, int parallelism) {
+        long startTime = System.nanoTime();
+
+        var dirMove = new DirMove();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(dirMove.new MoveTask(src, des, false));
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Files.MoveResult(
+                dirMove.renamed.sum(),
+                dirMove.copied.sum(),
+                dirMove.copiedBytes.sum(),
+                System.nanoTime() - startTime
+        );
+    }
+
+    /**
+     * 移动一个文件/文件夹的任务，文件夹不能重命名时展开，子文件夹分出新的任务并行移动
+     */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveAction {
+        /**
+         * 源文件/文件夹
+         */
+        private final Path src;
+
+        /**
+         * 目标文件/文件夹
+         */
+        private final Path des;
+
+        /**
+         * 是否已知不在同一个文件系统（不需要再尝试重命名）
+         */
+        private final boolean crossDevice;
+
+        MoveTask(Path src, Path des, boolean crossDevice) {
+            this.src = src;
+            this.des = des;
+            this.crossDevice = crossDevice;
+        }
+
+        @Override
+        protected void compute() {
+            var attrs = readAttributes(src);
+            if (attrs == null) {
+                // 上一次移动已经处理过
+                return;
+            }
+
+            long start = IoMetrics.start();
+            var result = crossDevice ? RenameResult.CROSS_DEVICE : rename(src, des);
+            if (result == RenameResult.RENAMED) {
+                renamed.increment();
+                IoMetrics.file(IoMetrics.Op.MOVE, attrs.isDirectory() ? 0 : attrs.size(), start);
+                Files.log(() -> "已重命名：" + src + " -> " + des);
+                return;
+            }
+
+            if (!attrs.isDirectory()) {
+                copyThenDelete(src, des, attrs);
+                IoMetrics.file(IoMetrics.Op.MOVE, attrs.size(), start);
+                return;
+            }
+
+            // 不能重命名时展开文件夹，子项并行移动
+            try {
+                java.nio.file.Files.createDirectories(des);
+            } catch (IOException e) {
+                throw new RuntimeException("创建文件夹失败：" + des, e);
+            }
+
+            // 和当前文件夹在同一个文件系统中的文件也不能重命名，子文件夹可能是其他文件系统的挂载点，需要重新尝试
+            boolean filesCrossDevice = result == RenameResult.CROSS_DEVICE;
+            var subTasks = new ArrayList<MoveTask>();
+            try {
+                java.nio.file.Files.walkFileTree(src, EnumSet.noneOf(FileVisitOption.class), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        var target = des.resolve(path.getFileName().toString());
+                        subTasks.add(new MoveTask(path, target, !attrs.isDirectory() && filesCrossDevice));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) throws IOException {
+                        throw e;
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("展开文件夹失败：" + src, e);
+            }
+            invokeAll(subTasks);
+
+            // 所有子项都移动后删除源文件夹
+            try {
+                java.nio.file.Files.delete(src);
+            } catch (IOException e) {
+                throw new RuntimeException("删除失败：" + src, e);
+            }
+        }
+    }
+
+    /**
+     * 尝试原子重命名
+     * @param src 源文件/文件夹
+     * @param des 目标文件/文件夹
+     * @return 重命名的结果
+     */
+    private static RenameResult rename(Path src, Path des) {
+        try {
+            java.nio.file.Files.move(src, des, StandardCopyOption.ATOMIC_MOVE);
+            return RenameResult.RENAMED;
+        } catch (AtomicMoveNotSupportedException e) {
+            return RenameResult.CROSS_DEVICE;
+        } catch (IOException e) {
+            return RenameResult.FAILED;
+        }
+    }
+
+    /**
+     * 复制文件后删除源文件
+     * @param src 源文件
+     * @param des 目标文件
+     * @param attrs 源文件属性
+     */
+    private void copyThenDelete(Path src, Path des, BasicFileAttributes attrs) {
+        try {
+            // 上一次移动已经复制完成但还没有删除源文件时，不需要再复制
+            var desAttrs = readAttributes(des);
+            if (desAttrs == null || desAttrs.size() != attrs.size()
+                    || desAttrs.lastModifiedTime().toMillis() != attrs.lastModifiedTime().toMillis()) {
+                var temp = des.resolveSibling(des.getFileName() + TEMP_SUFFIX);
+                java.nio.file.Files.copy(src, temp, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+
+                // 删除源文件之前保证目标文件已经写入磁盘
+                if (attrs.isRegularFile()) {
+                    try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+                java.nio.file.Files.move(temp, des, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                copied.increment();
+                copiedBytes.add(attrs.size());
+                Files.log(() -> "已复制：" + src + " -> " + des);
+            }
+
+            java.nio.file.Files.delete(src);
+        } catch (IOException e) {
+            throw new RuntimeException("移动失败：" + src, e);
+        }
+    }
+
+    /**
+     * 读取文件/文件夹的属性（不跟随符号链接）
+     * @param path 文件/文件夹路径
+     * @return 属性（不存在时为null）
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
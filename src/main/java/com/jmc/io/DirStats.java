@@ -0,0 +1,161 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行统计文件夹信息的实现 <br>
+ * 1. 每个文件夹是一个fork-join任务，子项的属性在列出文件夹时一次读取，子文件夹的统计结果最后合并 <br>
+ * 2. 和File.isDirectory()/File.length()一样跟随符号链接，失效的符号链接算作长度为0的文件 <br>
+ * 3. 通过fileKey检测符号链接造成的循环，指向祖先文件夹的链接只计数一次，不再展开
+ * @since 4.0
+ * @author Jmc
+ * @see Files#getFileInfo(String)
+ */
+final class DirStats {
+    private DirStats() {}
+
+    /**
+     * 统计文件夹中的文件数量，文件夹数量和文件总长度（跟随符号链接）
+     * @param dir 文件夹
+     * @return 文件信息
+     */
+    static Files.FileInfo of(File dir) {
+        var path = dir.toPath();
+        var pool = new ForkJoinPool(CopyEngine.detectParallelism(dir.getAbsolutePath()));
+        try {
+            return pool.invoke(new StatTask(path, Ancestor.root(path)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 正在统计的文件夹和它的祖先文件夹（用于检测循环）
+     * @param key 文件夹的标识
+     * @param parent 父文件夹（根文件夹为null）
+     */
+    record Ancestor(Object key, Ancestor parent) {
+        /**
+         * 创建根文件夹的祖先链
+         * @param dir 根文件夹路径
+         * @return 只包含根文件夹的祖先链（无法读取根文件夹属性时为null）
+         */
+        static Ancestor root(Path dir) {
+            try {
+                return new Ancestor(DirStats.key(dir, java.nio.file.Files.readAttributes(dir, BasicFileAttributes.class)), null);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * 判断标识是否是自己或者祖先文件夹
+         * @param key 文件夹的标识
+         * @return 是否是自己或者祖先文件夹
+         */
+        boolean contains(Object key) {
+            for (var a = this; a != null; a = a.parent) {
+                if (a.key.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 获取文件夹的标识（优先使用fileKey，不支持时使用真实路径）
+     * @param path 文件夹路径
+     * @param attrs 文件夹属性
+     * @return 文件夹的标识
+     */
+    static Object key(Path path, BasicFileAttributes attrs) {
+        if (attrs.fileKey() != null) {
+            return attrs.fileKey();
+        }
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    /**
+     * 统计一层文件夹的任务，子文件夹会分出新的任务并行统计
+     */
+    @SuppressWarnings("serial")
+    private static class StatTask extends RecursiveTask<Files.FileInfo> {
+        /**
+         * 文件夹路径
+         */
+        private final Path dir;
+
+        /**
+         * 当前文件夹和祖先文件夹（无法读取根文件夹属性时为null）
+         */
+        private final Ancestor ancestors;
+
+        StatTask(Path dir, Ancestor ancestors) {
+            this.dir = dir;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected Files.FileInfo compute() {
+            long[] counts = new long[3];
+            var subTasks = new ArrayList<StatTask>();
+
+            // 只遍历一层，每个子项（符号链接的目标）的属性由walkFileTree读取一次
+            try {
+                java.nio.file.Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        if (attrs.isDirectory()) {
+                            counts[1]++;
+                            var key = key(path, attrs);
+                            if (ancestors != null && ancestors.contains(key)) {
+                                Files.log(() -> "跳过循环的符号链接：" + path);
+                            } else {
+                                subTasks.add(new StatTask(path, new Ancestor(key, ancestors)));
+                            }
+                        } else {
+                            counts[0]++;
+                            // 失效的符号链接返回的是链接本身的属性
+                            counts[2] += attrs.isSymbolicLink() ? 0 : attrs.size();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        // 打印错误信息
+                        System.err.println("展开文件夹失败：" + path.toAbsolutePath());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("展开文件夹失败：" + dir.toAbsolutePath());
+            }
+
+            // 合并子文件夹的统计结果
+            for (var subTask : invokeAll(subTasks)) {
+                var info = subTask.join();
+                counts[0] += info.fileCount();
+                counts[1] += info.dirCount();
+                counts[2] += info.totalLength();
+            }
+            return new Files.FileInfo(counts[0], counts[1], counts[2]);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件夹增量同步的实现
+ * @since 4.0
+ * @author Jmc
+ * @see Files#sync(String, String, Files.SyncOptions)
+ */
+final class DirSync {
+    /**
+     * 比较文件内容时使用的摘要算法
+     */
+    private static final String DIGEST_ALGORITHM = "MD5";
+
+    /**
+     * 一批最多包含的文件数量
+     */
+    private static final int BATCH_MAX_FILES = 64;
+
+    /**
+     * 一批最多包含的字节数
+     */
+    private static final long BATCH_MAX_BYTES = 1024 * 1024 * 8;
+
+    /**
+     * 同步选项
+     */
+    private final Files.SyncOptions options;
+
+    /**
+     * 复制的文件数量
+     */
+    private final LongAdder copied = new LongAdder();
+
+    /**
+     * 跳过的文件数量
+     */
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * 删除的文件/文件夹数量
+     */
+    private final LongAdder deleted = new LongAdder();
+
+    /**
+     * 复制失败的文件数量
+     */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * 复制的字节数
+     */
+    private final LongAdder copiedBytes = new LongAdder();
+
+    private DirSync(Files.SyncOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 同步源文件夹到目标文件夹
+     * @param src 源文件夹
+     * @param des 目标文件夹
+     * @param options 同步选项
+     * @return 同步结果
+     */
+    static Files.SyncResult sync(File src, File des, Files.SyncOptions options) {
+        long startTime = System.nanoTime();
+
+        var dirSync = new DirSync(options);
+        if (src.isFile()) {
+            dirSync.syncFile(src.toPath(), des.toPath());
+        } else {
+            var pool = new ForkJoinPool(options.parallelism());
+            try {
+                pool.invoke(dirSync.new SyncTask(src.toPath(), des.toPath()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        return new Files.SyncResult(
+                dirSync.copied.sum(),
+                dirSync.skipped.sum(),
+                dirSync.deleted.sum(),
+                dirSync.failed.sum(),
+                dirSync.copiedBytes.sum(),
+                System.nanoTime() - startTime
+        );
+    }
+
+    /**
+     * 同步一层文件夹的任务，子文件夹和成批的文件会分出新的任务并行同步
+     */
+    @SuppressWarnings("serial")
+    private class SyncTask extends RecursiveAction {
+        /**
+         * 源文件夹
+         */
+        private final Path srcDir;
+
+        /**
+         * 目标文件夹
+         */
+        private final Path desDir;
+
+        SyncTask(Path srcDir, Path desDir) {
+            this.srcDir = srcDir;
+            this.desDir = desDir;
+        }
+
+        @Override
+        protected void compute() {
+            Files.mkdirs(desDir.toFile());
+
+            // 同时列出源文件夹和目标文件夹，每个子项只读取一次属性
+            var srcEntries = listWithAttrs(srcDir);
+            var desEntries = listWithAttrs(desDir);
+
+            var subTasks = new ArrayList<ForkJoinTask<?>>();
+            var batch = new ArrayList<SyncEntry>();
+            long batchBytes = 0;
+            for (var entry : srcEntries.entrySet()) {
+                var name = entry.getKey();
+                var srcAttrs = entry.getValue();
+                var desAttrs = desEntries.remove(name);
+
+                var srcPath = srcDir.resolve(name);
+                var desPath = desDir.resolve(name);
+
+                // 类型不同时先删除目标
+                if (desAttrs != null && desAttrs.isDirectory() != srcAttrs.isDirectory()) {
+                    delete(desPath);
+                    desAttrs = null;
+                }
+
+                if (srcAttrs.isDirectory()) {
+                    subTasks.add(new SyncTask(srcPath, desPath));
+                    continue;
+                }
+
+                // 文件攒够一批后交给其他线程比较和复制
+                batch.add(new SyncEntry(srcPath, srcAttrs, desPath, desAttrs));
+                batchBytes += srcAttrs.size();
+                if (batch.size() >= BATCH_MAX_FILES || batchBytes >= BATCH_MAX_BYTES) {
+                    subTasks.add(new BatchTask(batch));
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                subTasks.add(new BatchTask(batch));
+            }
+
+            // 删除源文件夹中已经不存在的文件
+            if (options.delete()) {
+                for (var name : desEntries.keySet()) {
+                    delete(desDir.resolve(name));
+                }
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+
+    /**
+     * 比较和复制一批文件的任务
+     */
+    @SuppressWarnings("serial")
+    private class BatchTask extends RecursiveAction {
+        /**
+         * 文件
+         */
+        private final List<SyncEntry> entries;
+
+        BatchTask(List<SyncEntry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        protected void compute() {
+            for (var entry : entries) {
+                if (entry.desAttrs() != null
+                        && unchanged(entry.srcPath(), entry.srcAttrs(), entry.desPath(), entry.desAttrs())) {
+                    skipped.increment();
+                } else {
+                    copy(entry.srcPath(), entry.srcAttrs(), entry.desPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除目标中的文件/文件夹，文件夹中的每个子项都计入删除数量
+     * @param path 文件/文件夹路径
+     */
+    private void delete(Path path) {
+        var res = DirDelete.deleteInPool(path.toFile());
+        deleted.add(res.files() + res.dirs());
+    }
+
+    /**
+     * 同步单个文件
+     * @param srcPath 源文件路径
+     * @param desPath 目标文件路径
+     */
+    private void syncFile(Path srcPath, Path desPath) {
+        try {
+            var srcAttrs = java.nio.file.Files.readAttributes(srcPath, BasicFileAttributes.class);
+            if (java.nio.file.Files.isRegularFile(desPath)) {
+                var desAttrs = java.nio.file.Files.readAttributes(desPath, BasicFileAttributes.class);
+                if (unchanged(srcPath, srcAttrs, desPath, desAttrs)) {
+                    skipped.increment();
+                    return;
+                }
+            }
+
+            Files.mkdirs(desPath.getParent().toFile());
+            copy(srcPath, srcAttrs, desPath);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 判断目标文件是否和源文件一致（不需要复制）
+     * @param srcPath 源文件路径
+     * @param srcAttrs 源文件属性
+     * @param desPath 目标文件路径
+     * @param desAttrs 目标文件属性
+     * @return 是否一致
+     */
+    private boolean unchanged(Path srcPath, BasicFileAttributes srcAttrs, Path desPath, BasicFileAttributes desAttrs) {
+        if (srcAttrs.size() != desAttrs.size()) {
+            return false;
+        }
+
+        if (options.checksum()) {
+            return Arrays.equals(digest(srcPath), digest(desPath));
+        }
+
+        return srcAttrs.lastModifiedTime().toMillis() == desAttrs.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * 使用小文件/大文件的复制方式复制文件，成功后把目标文件的修改时间设置为源文件的修改时间，方便下次比较 <br>
+     * 复制失败时只计数，目标文件的修改时间和源文件不同，下次同步时会重新复制
+     * @param srcPath 源文件路径
+     * @param srcAttrs 源文件属性
+     * @param desPath 目标文件路径
+     */
+    private void copy(Path srcPath, BasicFileAttributes srcAttrs, Path desPath) {
+        // 大文件不分段，多个文件已经在并行复制
+        if (!Files.copyFile(srcPath.toFile(), desPath.toFile(), srcAttrs.size(), 1, null)) {
+            failed.increment();
+            return;
+        }
+
+        try {
+            java.nio.file.Files.setLastModifiedTime(desPath, FileTime.fromMillis(srcAttrs.lastModifiedTime().toMillis()));
+        } catch (IOException e) {
+            failed.increment();
+            Files.log(() -> "复制失败：" + srcPath + "，" + e);
+            return;
+        }
+
+        copied.increment();
+        copiedBytes.add(srcAttrs.size());
+    }
+
+    /**
+     * 列出文件夹的一级子项及其属性
+     * @param dir 文件夹路径
+     * @return 名称 -> 属性
+     */
+    private static Map<String, BasicFileAttributes> listWithAttrs(Path dir) {
+        var res = new HashMap<String, BasicFileAttributes>();
+        if (!java.nio.file.Files.isDirectory(dir)) {
+            return res;
+        }
+
+        try (DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(dir)) {
+            for (var path : stream) {
+                res.put(path.getFileName().toString(),
+                        java.nio.file.Files.readAttributes(path, BasicFileAttributes.class));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("展开文件夹失败：" + dir, e);
+        }
+        return res;
+    }
+
+    /**
+     * 等待比较的文件
+     * @param srcPath 源文件路径
+     * @param srcAttrs 源文件属性
+     * @param desPath 目标文件路径
+     * @param desAttrs 目标文件属性（目标文件不存在时为null）
+     */
+    private record SyncEntry(Path srcPath, BasicFileAttributes srcAttrs, Path desPath, BasicFileAttributes desAttrs) {}
+
+    /**
+     * 计算文件内容的摘要
+     * @param path 文件路径
+     * @return 摘要
+     */
+    private static byte[] digest(Path path) {
+        try (var in = FileChannel.open(path, StandardOpenOption.READ)) {
+            var md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            var buff = ByteBuffer.allocateDirect(1024 * 1024);
+            while (in.read(buff) != -1) {
+                buff.flip();
+                md.update(buff);
+                buff.clear();
+            }
+            return md.digest();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,601 @@
+package com.jmc.io;
+
+import com.jmc.lang.Objs;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文件夹统计信息缓存 <br>
+ * 1. 打开时并行扫描一次文件夹，在内存中保存每个子文件夹的文件数量，文件夹数量和总长度 <br>
+ * 2. 之后通过WatchService监听文件变化，只更新变化的条目及其上级文件夹的统计信息 <br>
+ * 3. 事件溢出（OVERFLOW）时只重新扫描对应的子文件夹 <br>
+ * 查询直接读取内存中的结果，不需要再遍历文件夹。
+ * 每个文件夹都会注册监听，文件夹非常多时可能需要调大系统的监听数量限制（如Linux的inotify.max_user_watches）；
+ * 变化在后台线程中异步更新，查询结果会有短暂的延迟。
+ * 使用完毕后必须调用close
+ * @apiNote <pre>{@code
+ * // 缓存a文件夹的统计信息
+ * try (var cache = DirectoryStatsCache.of("/path/to/a")) {
+ *     // 获取a文件夹的长度
+ *     long length = cache.getLength();
+ *     // 获取a/b文件夹的信息
+ *     var info = cache.getFileInfo("/path/to/a/b");
+ *     // 获取a文件夹的普通树状图
+ *     System.out.println(cache.normalTree());
+ * }
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public class DirectoryStatsCache implements Closeable {
+    /**
+     * 监听线程编号
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * 缓存的根文件夹
+     */
+    private final Path root;
+
+    /**
+     * 文件变化监听服务
+     */
+    private final WatchService watcher;
+
+    /**
+     * 扫描文件夹的线程池
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * 监听键 -> 文件夹节点
+     */
+    private final Map<WatchKey, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * 监听线程
+     */
+    private final Thread listener;
+
+    /**
+     * 根文件夹节点
+     */
+    private Node rootNode;
+
+    /**
+     * 是否已经关闭
+     */
+    private volatile boolean closed;
+
+    private DirectoryStatsCache(Path root) {
+        this.root = root;
+        try {
+            this.watcher = root.getFileSystem().newWatchService();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.pool = new ForkJoinPool(CopyEngine.detectParallelism(root.toString()));
+        this.rootNode = scan(root, null);
+
+        this.listener = new Thread(this::listenLoop, "jmc-stats-cache-" + THREAD_COUNT.incrementAndGet());
+        this.listener.setDaemon(true);
+        this.listener.start();
+    }
+
+    /**
+     * 打开文件夹统计信息缓存（会立即扫描一次文件夹）
+     * @param path 文件夹路径
+     * @return 文件夹统计信息缓存
+     */
+    public static DirectoryStatsCache of(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("文件夹路径不能为空！");
+        }
+        if (!Files.isDir(path)) {
+            throw new RuntimeException("文件夹不存在：" + path);
+        }
+        return new DirectoryStatsCache(new File(path).getAbsoluteFile().toPath().normalize());
+    }
+
+    /**
+     * 打开文件夹统计信息缓存（会立即扫描一次文件夹）
+     * @param dir 文件夹
+     * @return 文件夹统计信息缓存
+     * @see #of(String)
+     */
+    public static DirectoryStatsCache of(File dir) {
+        Objs.throwsIfNullOrEmpty(dir);
+        return of(dir.getAbsolutePath());
+    }
+
+    /**
+     * 获取根文件夹的信息
+     * @return FileInfo对象
+     */
+    public synchronized Files.FileInfo getFileInfo() {
+        checkState();
+        return rootNode.info();
+    }
+
+    /**
+     * 获取根文件夹中的文件/文件夹的信息
+     * @param path 文件/文件夹路径（必须在根文件夹中）
+     * @return FileInfo对象
+     */
+    public synchronized Files.FileInfo getFileInfo(String path) {
+        checkState();
+        var target = resolve(path);
+        var node = findNode(target);
+        if (node != null) {
+            return node.info();
+        }
+
+        var parent = findNode(target.getParent());
+        var length = parent == null ? null : parent.files.get(target.getFileName().toString());
+        if (length == null) {
+            throw new RuntimeException("路径不存在：" + path);
+        }
+        return new Files.FileInfo(1L, 0L, length);
+    }
+
+    /**
+     * 获取根文件夹的字节长度
+     * @return 根文件夹字节长度
+     */
+    public long getLength() {
+        return getFileInfo().totalLength();
+    }
+
+    /**
+     * 获取根文件夹中的文件/文件夹的字节长度
+     * @param path 文件/文件夹路径（必须在根文件夹中）
+     * @return 文件/文件夹字节长度
+     */
+    public long getLength(String path) {
+        return getFileInfo(path).totalLength();
+    }
+
+    /**
+     * 根据缓存生成树状图
+     * @param path 统计文件夹路径（必须在根文件夹中）
+     * @param depth 搜索深度
+     * @param minMBSize 结果中的文件/文件夹最小多少MB
+     * @return 文件树对象
+     * @see Files#tree(String, int, double)
+     */
+    public synchronized Files.FileTree tree(String path, int depth, double minMBSize) {
+        checkState();
+        var node = findNode(resolve(path));
+        if (node == null) {
+            throw new RuntimeException("文件夹不存在：" + path);
+        }
+        return tree(node, depth, (long) (minMBSize * 1024 * 1024));
+    }
+
+    /**
+     * 根据缓存生成根文件夹的普通树状图（搜索深度5层，结果中文件/文件夹最小大小为50MB）
+     * @return 文件树对象
+     * @see Files#normalTree(String)
+     */
+    public Files.FileTree normalTree() {
+        return tree(root.toString(), 5, 50);
+    }
+
+    /**
+     * 重新扫描根文件夹中的文件夹（比如在监听不可靠的网络文件系统上手动刷新）
+     * @param path 文件夹路径（必须在根文件夹中）
+     */
+    public synchronized void rescan(String path) {
+        checkState();
+        var node = findNode(resolve(path));
+        if (node == null) {
+            throw new RuntimeException("文件夹不存在：" + path);
+        }
+        rescan(node);
+    }
+
+    /**
+     * 停止监听并释放缓存
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            watcher.close();
+            listener.join();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 文件夹节点
+     */
+    private static class Node {
+        /**
+         * 文件夹路径
+         */
+        private final Path path;
+
+        /**
+         * 上级文件夹节点（根节点为null）
+         */
+        private final Node parent;
+
+        /**
+         * 一级文件（名称 -> 长度）
+         */
+        private final Map<String, Long> files = new HashMap<>();
+
+        /**
+         * 一级子文件夹（名称 -> 节点）
+         */
+        private final Map<String, Node> dirs = new HashMap<>();
+
+        /**
+         * 监听键
+         */
+        private WatchKey key;
+
+        /**
+         * 文件数量，文件夹数量和文件总长度（包含所有子项）
+         */
+        private long fileCount, dirCount, length;
+
+        Node(Path path, Node parent) {
+            this.path = path;
+            this.parent = parent;
+        }
+
+        Files.FileInfo info() {
+            return new Files.FileInfo(fileCount, dirCount, length);
+        }
+    }
+
+    /**
+     * 并行扫描文件夹并注册监听
+     * @param dir 文件夹路径
+     * @param parent 上级文件夹节点
+     * @return 文件夹节点
+     */
+    private Node scan(Path dir, Node parent) {
+        var node = new Node(dir, parent);
+        pool.invoke(new ScanTask(node));
+        return node;
+    }
+
+    /**
+     * 扫描一层文件夹的任务，子文件夹会分出新的任务并行扫描
+     */
+    @SuppressWarnings("serial")
+    private class ScanTask extends RecursiveAction {
+        /**
+         * 文件夹节点
+         */
+        private final Node node;
+
+        ScanTask(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            // 先注册监听再列出文件夹，不会漏掉扫描期间的变化
+            register(node);
+
+            var subTasks = new ArrayList<ScanTask>();
+            try {
+                java.nio.file.Files.walkFileTree(node.path, EnumSet.noneOf(FileVisitOption.class), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                        var name = path.getFileName().toString();
+                        if (attrs.isDirectory()) {
+                            var sub = new Node(path, node);
+                            node.dirs.put(name, sub);
+                            subTasks.add(new ScanTask(sub));
+                        } else {
+                            node.files.put(name, attrs.size());
+                            node.fileCount++;
+                            node.length += attrs.size();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path, IOException e) {
+                        System.err.println("展开文件夹失败：" + path.toAbsolutePath());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                System.err.println("展开文件夹失败：" + node.path.toAbsolutePath());
+            }
+
+            // 合并子文件夹的统计信息
+            invokeAll(subTasks);
+            for (var subTask : subTasks) {
+                var sub = subTask.node;
+                node.fileCount += sub.fileCount;
+                node.dirCount += sub.dirCount + 1;
+                node.length += sub.length;
+            }
+        }
+    }
+
+    /**
+     * 监听线程：处理文件变化事件，更新对应的节点
+     */
+    private void listenLoop() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+
+            synchronized (this) {
+                var node = nodes.get(key);
+                if (node == null) {
+                    key.pollEvents();
+                    key.reset();
+                    continue;
+                }
+
+                // 同一批事件中同一个条目只处理一次
+                var changed = new LinkedHashSet<String>();
+                boolean overflow = false;
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                        break;
+                    }
+                    changed.add(event.context().toString());
+                }
+
+                try {
+                    if (overflow) {
+                        rescan(node);
+                    } else {
+                        for (var name : changed) {
+                            update(node, name);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    Files.log(() -> "更新文件夹统计信息失败：" + e.getMessage());
+                }
+
+                // 文件夹已经被删除时，由上级文件夹的删除事件移除节点
+                key.reset();
+            }
+        }
+    }
+
+    /**
+     * 重新读取文件夹中一个条目的属性，并更新统计信息
+     * @param node 文件夹节点
+     * @param name 条目名称
+     */
+    private void update(Node node, String name) {
+        var path = node.path.resolve(name);
+
+        BasicFileAttributes attrs;
+        try {
+            attrs = java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            attrs = null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // 移除旧的条目
+        var oldLength = node.files.remove(name);
+        if (oldLength != null) {
+            propagate(node, -1, 0, -oldLength);
+        }
+        var oldDir = node.dirs.get(name);
+        if (oldDir != null && (attrs == null || !attrs.isDirectory())) {
+            removeDir(node, name);
+        }
+
+        // 加入新的条目
+        if (attrs == null) {
+            return;
+        }
+        if (attrs.isDirectory()) {
+            if (oldDir != null && oldDir.key != null && !oldDir.key.isValid()) {
+                // 文件夹被删除后又创建了同名文件夹
+                rescan(oldDir);
+            } else if (oldDir == null) {
+                var sub = scan(path, node);
+                node.dirs.put(name, sub);
+                propagate(node, sub.fileCount, sub.dirCount + 1, sub.length);
+            }
+        } else {
+            node.files.put(name, attrs.size());
+            propagate(node, 1, 0, attrs.size());
+        }
+    }
+
+    /**
+     * 重新扫描文件夹，替换原来的节点
+     * @param node 文件夹节点
+     */
+    private void rescan(Node node) {
+        var parent = node.parent;
+        cancel(node);
+
+        var fresh = scan(node.path, parent);
+        if (parent == null) {
+            rootNode = fresh;
+        } else {
+            parent.dirs.put(node.path.getFileName().toString(), fresh);
+            propagate(parent, fresh.fileCount - node.fileCount,
+                    fresh.dirCount - node.dirCount, fresh.length - node.length);
+        }
+    }
+
+    /**
+     * 移除子文件夹节点
+     * @param node 上级文件夹节点
+     * @param name 子文件夹名称
+     */
+    private void removeDir(Node node, String name) {
+        var sub = node.dirs.remove(name);
+        cancel(sub);
+        propagate(node, -sub.fileCount, -sub.dirCount - 1, -sub.length);
+    }
+
+    /**
+     * 把统计信息的变化量加到节点及其所有上级节点
+     * @param node 文件夹节点
+     * @param files 文件数量变化量
+     * @param dirs 文件夹数量变化量
+     * @param length 长度变化量
+     */
+    private static void propagate(Node node, long files, long dirs, long length) {
+        for (var curr = node; curr != null; curr = curr.parent) {
+            curr.fileCount += files;
+            curr.dirCount += dirs;
+            curr.length += length;
+        }
+    }
+
+    /**
+     * 注册文件夹的监听
+     * @param node 文件夹节点
+     */
+    private void register(Node node) {
+        try {
+            node.key = node.path.register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            nodes.put(node.key, node);
+        } catch (IOException e) {
+            System.err.println("监听文件夹失败：" + node.path.toAbsolutePath());
+        }
+    }
+
+    /**
+     * 取消节点及其所有子节点的监听
+     * @param node 文件夹节点
+     */
+    private void cancel(Node node) {
+        if (node.key != null) {
+            // 重新注册同一个文件夹时会得到同一个监听键，只移除仍然指向这个节点的映射
+            nodes.remove(node.key, node);
+            node.key.cancel();
+        }
+        for (var sub : node.dirs.values()) {
+            cancel(sub);
+        }
+    }
+
+    /**
+     * 根据节点生成文件树
+     * @param node 文件夹节点
+     * @param depth 剩余的搜索深度
+     * @param minBytes 结果中的文件/文件夹的最小字节长度
+     * @return 文件树
+     */
+    private static Files.FileTree tree(Node node, int depth, long minBytes) {
+        var fileTree = new Files.FileTree(node.path.toFile(), node.length);
+        if (depth <= 0) {
+            return fileTree;
+        }
+
+        for (var sub : node.dirs.values()) {
+            if (sub.length >= minBytes) {
+                fileTree.getSubFileTrees().add(tree(sub, depth - 1, minBytes));
+            }
+        }
+        for (var entry : node.files.entrySet()) {
+            if (entry.getValue() >= minBytes) {
+                fileTree.getSubFileTrees().add(
+                        new Files.FileTree(node.path.resolve(entry.getKey()).toFile(), entry.getValue()));
+            }
+        }
+        return fileTree;
+    }
+
+    /**
+     * 把路径转换为根文件夹中的绝对路径
+     * @param path 文件/文件夹路径
+     * @return 绝对路径
+     */
+    private Path resolve(String path) {
+        Objs.throwsIfNullOrEmpty("路径不能为空！", path);
+        var target = new File(path).getAbsoluteFile().toPath().normalize();
+        if (!target.startsWith(root)) {
+            throw new IllegalArgumentException("路径不在缓存的文件夹中：" + path);
+        }
+        return target;
+    }
+
+    /**
+     * 查找文件夹节点
+     * @param dir 文件夹绝对路径
+     * @return 文件夹节点（不存在时为null）
+     */
+    private Node findNode(Path dir) {
+        if (dir == null || !dir.startsWith(root)) {
+            return null;
+        }
+
+        var node = rootNode;
+        for (var name : root.relativize(dir)) {
+            if (name.toString().isEmpty()) {
+                continue;
+            }
+            node = node.dirs.get(name.toString());
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * 检查缓存是否可用
+     */
+    private void checkState() {
+        if (closed) {
+            throw new IllegalStateException("文件夹统计信息缓存已经关闭！");
+        }
+    }
+}
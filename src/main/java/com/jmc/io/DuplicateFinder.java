@@ -0,0 +1,307 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 查找重复文件的实现，分阶段缩小需要读取的范围 <br>
+ * 1. 并行遍历所有根文件夹，按文件长度分组，长度唯一的文件不会被读取 <br>
+ * 2. 长度相同的文件计算开头和结尾各4KB的摘要，不同的文件通常在这一步就被区分开 <br>
+ * 3. 仍然相同的文件通过内存映射读取全部内容计算摘要，每组中的文件并行计算 <br>
+ * 空文件，符号链接和指向同一个文件的硬链接（或者重叠的根文件夹）不算作重复文件
+ * @since 4.0
+ * @author Jmc
+ * @see Files#findDuplicates(List, int)
+ */
+final class DuplicateFinder {
+    /**
+     * 摘要算法
+     */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * 部分摘要读取的开头和结尾的字节数
+     */
+    private static final int PARTIAL_SIZE = 4 * 1024;
+
+    /**
+     * 计算全部内容的摘要时每次映射的大小
+     */
+    private static final long MAP_SIZE = 64 * 1024 * 1024;
+
+    private DuplicateFinder() {}
+
+    /**
+     * 文件
+     * @param path 文件路径
+     * @param size 文件长度
+     */
+    private record Entry(Path path, long size) {}
+
+    /**
+     * 查找重复文件
+     * @param roots 根文件夹
+     * @param parallelism 并发数
+     * @return 查找结果
+     */
+    static Files.DuplicateResult find(List<File> roots, int parallelism) {
+        long startTime = System.nanoTime();
+
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            // 第一步：按长度分组
+            var bySize = new ConcurrentHashMap<Long, Queue<Entry>>();
+            var seen = ConcurrentHashMap.newKeySet();
+            pool.invoke(new ScanTask(roots.stream().map(File::toPath).toList(), bySize, seen));
+
+            var candidates = new ArrayList<List<Entry>>();
+            bySize.values().forEach(group -> {
+                if (group.size() > 1) {
+                    candidates.add(new ArrayList<>(group));
+                }
+            });
+
+            // 第二步：比较开头和结尾，第三步：比较全部内容
+            var partial = refine(pool, candidates, false);
+            var full = refine(pool, partial, true);
+
+            var groups = new ArrayList<List<File>>();
+            long reclaimable = 0;
+            full.sort(Comparator.comparingLong((List<Entry> g) -> -g.get(0).size() * (g.size() - 1))
+                    .thenComparing(g -> g.get(0).path().toString()));
+            for (var group : full) {
+                groups.add(group.stream().map(e -> e.path().toFile()).toList());
+                reclaimable += group.get(0).size() * (group.size() - 1);
+            }
+
+            return new Files.DuplicateResult(groups, reclaimable, seen.size(), System.nanoTime() - startTime);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 按摘要把每组文件分成更小的组，只保留仍然有多个文件的组
+     * @param pool 线程池
+     * @param groups 文件组
+     * @param full 是否计算全部内容的摘要（否则只计算开头和结尾）
+     * @return 按路径排序的文件组
+     */
+    @SuppressWarnings("serial")
+    private static List<List<Entry>> refine(ForkJoinPool pool, List<List<Entry>> groups, boolean full) {
+        var res = new ConcurrentLinkedQueue<List<Entry>>();
+        var tasks = new ArrayList<RefineTask>();
+        for (var group : groups) {
+            // 长度不超过开头和结尾的文件在第二步已经比较了全部内容
+            if (full && group.get(0).size() <= 2L * PARTIAL_SIZE) {
+                res.add(group);
+            } else {
+                tasks.add(new RefineTask(group, full, res));
+            }
+        }
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        var list = new ArrayList<List<Entry>>(res);
+        list.forEach(group -> group.sort(Comparator.comparing(e -> e.path().toString())));
+        return list;
+    }
+
+    /**
+     * 遍历一层文件夹的任务，子文件夹会分出新的任务并行遍历
+     */
+    @SuppressWarnings("serial")
+    private static class ScanTask extends RecursiveAction {
+        /**
+         * 文件夹路径
+         */
+        private final List<Path> dirs;
+
+        /**
+         * 按长度分组的文件
+         */
+        private final Map<Long, Queue<Entry>> bySize;
+
+        /**
+         * 已经遍历过的文件（用于排除硬链接和重叠的根文件夹）
+         */
+        private final Set<Object> seen;
+
+        ScanTask(List<Path> dirs, Map<Long, Queue<Entry>> bySize, Set<Object> seen) {
+            this.dirs = dirs;
+            this.bySize = bySize;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            var subTasks = new ArrayList<ScanTask>();
+            for (var dir : dirs) {
+                try {
+                    java.nio.file.Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1,
+                            new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                            if (path.equals(dir)) {
+                                // 根路径是文件
+                                add(path, attrs);
+                            } else if (attrs.isDirectory()) {
+                                subTasks.add(new ScanTask(List.of(path), bySize, seen));
+                            } else {
+                                add(path, attrs);
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path path, IOException e) {
+                            Files.log(() -> "展开文件夹失败：" + path);
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException e) {
+                    Files.log(() -> "展开文件夹失败：" + dir);
+                }
+            }
+            invokeAll(subTasks);
+        }
+
+        /**
+         * 记录一个文件
+         * @param path 文件路径
+         * @param attrs 文件属性
+         */
+        private void add(Path path, BasicFileAttributes attrs) {
+            if (!attrs.isRegularFile() || attrs.size() == 0) {
+                return;
+            }
+
+            var key = attrs.fileKey() != null ? attrs.fileKey() : path.toAbsolutePath().normalize();
+            if (seen.add(key)) {
+                bySize.computeIfAbsent(attrs.size(), k -> new ConcurrentLinkedQueue<>()).add(new Entry(path, attrs.size()));
+            }
+        }
+    }
+
+    /**
+     * 按摘要拆分一组文件的任务，组中每个文件的摘要并行计算
+     */
+    @SuppressWarnings("serial")
+    private static class RefineTask extends RecursiveAction {
+        /**
+         * 长度相同的一组文件
+         */
+        private final List<Entry> group;
+
+        /**
+         * 是否计算全部内容的摘要
+         */
+        private final boolean full;
+
+        /**
+         * 拆分后仍然有多个文件的组
+         */
+        private final Queue<List<Entry>> res;
+
+        RefineTask(List<Entry> group, boolean full, Queue<List<Entry>> res) {
+            this.group = group;
+            this.full = full;
+            this.res = res;
+        }
+
+        @Override
+        protected void compute() {
+            var tasks = group.stream()
+                    .map(e -> ForkJoinTask.adapt(() -> digest(e, full)))
+                    .toList();
+            invokeAll(tasks);
+
+            var byDigest = new HashMap<ByteBuffer, List<Entry>>();
+            for (int i = 0; i < group.size(); i++) {
+                var digest = tasks.get(i).join();
+                // 读取失败的文件不参与比较
+                if (digest != null) {
+                    byDigest.computeIfAbsent(ByteBuffer.wrap(digest), k -> new ArrayList<>()).add(group.get(i));
+                }
+            }
+
+            byDigest.values().forEach(g -> {
+                if (g.size() > 1) {
+                    res.add(g);
+                }
+            });
+        }
+    }
+
+    /**
+     * 计算文件的摘要
+     * @param entry 文件
+     * @param full 是否计算全部内容的摘要（否则只计算开头和结尾）
+     * @return 摘要（读取失败时为null）
+     */
+    private static byte[] digest(Entry entry, boolean full) {
+        try (var channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+            var md = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            long size = Math.min(entry.size(), channel.size());
+
+            if (full) {
+                for (long pos = 0; pos < size; pos += MAP_SIZE) {
+                    md.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_SIZE, size - pos)));
+                }
+            } else if (size <= 2L * PARTIAL_SIZE) {
+                md.update(read(channel, 0, (int) size));
+            } else {
+                md.update(read(channel, 0, PARTIAL_SIZE));
+                md.update(read(channel, size - PARTIAL_SIZE, PARTIAL_SIZE));
+            }
+            return md.digest();
+        } catch (IOException e) {
+            Files.log(() -> "读取文件失败：" + entry.path());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取文件中的一段
+     * @param channel 文件通道
+     * @param pos 开始位置
+     * @param length 长度
+     * @return 读取的内容
+     * @throws IOException 读取失败
+     */
+    private static ByteBuffer read(FileChannel channel, long pos, int length) throws IOException {
+        var buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining() && channel.read(buf, pos + buf.position()) > 0) {}
+        return buf.flip();
+    }
+}
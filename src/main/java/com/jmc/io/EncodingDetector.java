@@ -0,0 +1,452 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 流式识别文件编码的实现 <br>
+ * 1. 先判断bom，没有bom时只读取文件的采样窗口（小文件读取整个文件），不把整个文件读入内存 <br>
+ * 2. 用状态机同时校验UTF-8和GBK的字节序列，两种编码都不合法时立即停止读取 <br>
+ * 3. 多个窗口时第一个窗口在文件开头，其他窗口均匀分布，从第一个小于0x40的字节（在两种编码中都是单字节字符）开始校验 <br>
+ * 4. 根据采样中的多字节字符数量给出置信度，只有ASCII字符时两种编码都合法，识别为UTF-8，置信度为0.5
+ * @since 4.0
+ * @author Jmc
+ * @see Files#detectEncoding(String, int, int)
+ */
+final class EncodingDetector {
+    /**
+     * 默认采样字节数
+     */
+    static final int DEFAULT_SAMPLE_BYTES = 1024 * 1024;
+
+    /**
+     * 默认采样窗口数量
+     */
+    static final int DEFAULT_WINDOWS = 4;
+
+    /**
+     * 读取缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * GBK字符集
+     */
+    private static final Charset GBK = Charset.forName("GBK");
+
+    private EncodingDetector() {}
+
+    /**
+     * 识别文件编码
+     * @param f 文件
+     * @param sampleBytes 采样字节数
+     * @param windows 采样窗口数量
+     * @return 识别结果
+     */
+    static Files.EncodingResult detect(File f, int sampleBytes, int windows) {
+        try (var channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+
+            var bomResult = detectBom(channel);
+            if (bomResult != null) {
+                return bomResult;
+            }
+
+            var utf8 = new Utf8Validator();
+            var gbk = new GbkValidator();
+            var buf = ByteBuffer.allocate(Math.min(BUFFER_SIZE, Math.max(sampleBytes, 1)));
+
+            // 文件不大于采样字节数时读取整个文件
+            int windowSize = length <= sampleBytes ? (int) length : sampleBytes / windows;
+            int windowCount = length <= sampleBytes ? 1 : windows;
+            long sampled = 0;
+
+            for (int i = 0; i < windowCount && (utf8.valid || gbk.valid); i++) {
+                long start = windowCount == 1 ? 0 : i * (length - windowSize) / (windowCount - 1);
+                long end = start + windowSize;
+
+                // 不在文件开头的窗口需要重新对齐到字符边界
+                utf8.reset(start != 0);
+                gbk.reset(start != 0);
+
+                long pos = start;
+                while (pos < end && (utf8.valid || gbk.valid)) {
+                    buf.clear().limit((int) Math.min(buf.capacity(), end - pos));
+                    int n = channel.read(buf, pos);
+                    if (n <= 0) {
+                        break;
+                    }
+
+                    var bytes = buf.array();
+                    for (int j = 0; j < n; j++) {
+                        int b = bytes[j] & 0xff;
+                        if (utf8.valid) {
+                            utf8.accept(b);
+                        }
+                        if (gbk.valid) {
+                            gbk.accept(b);
+                        }
+                    }
+                    pos += n;
+                    sampled += n;
+                }
+
+                // 最后一个窗口到达文件末尾时，不能有不完整的字符
+                if (pos == length) {
+                    utf8.finish();
+                    gbk.finish();
+                }
+            }
+
+            return result(utf8, gbk, sampled);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 根据bom识别编码
+     * @param channel 文件通道
+     * @return 识别结果（没有bom时为null）
+     * @throws IOException 读取失败
+     */
+    private static Files.EncodingResult detectBom(FileChannel channel) throws IOException {
+        var bom = ByteBuffer.allocate(3);
+        int n = channel.read(bom, 0);
+
+        int b0 = n > 0 ? bom.get(0) & 0xff : -1;
+        int b1 = n > 1 ? bom.get(1) & 0xff : -1;
+        int b2 = n > 2 ? bom.get(2) & 0xff : -1;
+
+        Charset charset = null;
+        if (b0 == 0xef && b1 == 0xbb && b2 == 0xbf) {
+            charset = StandardCharsets.UTF_8;
+        } else if (b0 == 0xfe && b1 == 0xff) {
+            charset = StandardCharsets.UTF_16BE;
+        } else if (b0 == 0xff && b1 == 0xfe) {
+            charset = StandardCharsets.UTF_16LE;
+        }
+
+        return charset == null ? null : new Files.EncodingResult(charset, 1, Math.max(n, 0));
+    }
+
+    /**
+     * 根据校验结果计算识别结果
+     * @param utf8 UTF-8校验器
+     * @param gbk GBK校验器
+     * @param sampled 采样字节数
+     * @return 识别结果
+     */
+    private static Files.EncodingResult result(Utf8Validator utf8, GbkValidator gbk, long sampled) {
+        if (utf8.valid) {
+            // 只有ASCII字符时无法区分
+            return utf8.multiBytes == 0
+                    ? new Files.EncodingResult(StandardCharsets.UTF_8, 0.5, sampled)
+                    : new Files.EncodingResult(StandardCharsets.UTF_8, confidence(utf8.multiBytes), sampled);
+        }
+        if (gbk.valid) {
+            return new Files.EncodingResult(GBK, confidence(gbk.multiBytes), sampled);
+        }
+        return new Files.EncodingResult(null, 0, sampled);
+    }
+
+    /**
+     * 计算置信度，每多一个合法的多字节字符，误判的可能减半
+     * @param multiBytes 多字节字符数量
+     * @return 置信度（0.5 ~ 1）
+     */
+    private static double confidence(long multiBytes) {
+        return 1 - Math.pow(0.5, Math.min(multiBytes, 62) + 1);
+    }
+
+    /**
+     * UTF-8字节序列校验器（拒绝过长编码，代理区和超过U+10FFFF的码点）
+     */
+    private static class Utf8Validator {
+        /**
+         * 是否合法
+         */
+        boolean valid = true;
+
+        /**
+         * 合法的多字节字符数量
+         */
+        long multiBytes;
+
+        /**
+         * 当前字符还需要的后续字节数
+         */
+        private int remaining;
+
+        /**
+         * 下一个后续字节的最小值
+         */
+        private int lower = 0x80;
+
+        /**
+         * 下一个后续字节的最大值
+         */
+        private int upper = 0xbf;
+
+        /**
+         * 是否正在寻找字符边界
+         */
+        private boolean syncing;
+
+        /**
+         * 开始校验新的窗口
+         * @param sync 是否需要重新对齐到字符边界
+         */
+        void reset(boolean sync) {
+            remaining = 0;
+            lower = 0x80;
+            upper = 0xbf;
+            syncing = sync;
+        }
+
+        /**
+         * 校验一个字节
+         * @param b 字节（0 ~ 255）
+         */
+        void accept(int b) {
+            if (syncing) {
+                syncing = b >= 0x40;
+                return;
+            }
+
+            if (remaining > 0) {
+                if (b < lower || b > upper) {
+                    valid = false;
+                    return;
+                }
+                lower = 0x80;
+                upper = 0xbf;
+                if (--remaining == 0) {
+                    multiBytes++;
+                }
+                return;
+            }
+
+            if (b < 0x80) {
+                return;
+            }
+
+            if (b >= 0xc2 && b <= 0xdf) {
+                remaining = 1;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                remaining = 2;
+                if (b == 0xe0) {
+                    lower = 0xa0;
+                } else if (b == 0xed) {
+                    upper = 0x9f;
+                }
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                remaining = 3;
+                if (b == 0xf0) {
+                    lower = 0x90;
+                } else if (b == 0xf4) {
+                    upper = 0x8f;
+                }
+            } else {
+                valid = false;
+            }
+        }
+
+        /**
+         * 到达文件末尾
+         */
+        void finish() {
+            if (remaining > 0) {
+                valid = false;
+            }
+        }
+    }
+
+    /**
+     * GBK字节序列校验器
+     */
+    private static class GbkValidator {
+        /**
+         * 是否合法
+         */
+        boolean valid = true;
+
+        /**
+         * 合法的双字节字符数量
+         */
+        long multiBytes;
+
+        /**
+         * 是否在等待双字节字符的第二个字节
+         */
+        private boolean trail;
+
+        /**
+         * 是否正在寻找字符边界
+         */
+        private boolean syncing;
+
+        /**
+         * 开始校验新的窗口
+         * @param sync 是否需要重新对齐到字符边界
+         */
+        void reset(boolean sync) {
+            trail = false;
+            syncing = sync;
+        }
+
+        /**
+         * 校验一个字节
+         * @param b 字节（0 ~ 255）
+         */
+        void accept(int b) {
+            if (syncing) {
+                syncing = b >= 0x40;
+                return;
+            }
+
+            if (trail) {
+                if (b < 0x40 || b == 0x7f || b == 0xff) {
+                    valid = false;
+                    return;
+                }
+                trail = false;
+                multiBytes++;
+                return;
+            }
+
+            if (b >= 0x81 && b <= 0xfe) {
+                trail = true;
+            } else if (b >= 0x80) {
+                valid = false;
+            }
+        }
+
+        /**
+         * 到达文件末尾
+         */
+        void finish() {
+            if (trail) {
+                valid = false;
+            }
+        }
+    }
+
+    /**
+     * 并行识别文件夹中所有文件的编码
+     * @param dir 文件夹
+     * @param sampleBytes 采样字节数
+     * @param windows 采样窗口数量
+     * @param parallelism 并发数
+     * @return 每个文件的识别结果（按路径排序）
+     */
+    static Map<File, Files.EncodingResult> detectAll(File dir, int sampleBytes, int windows, int parallelism) {
+        var results = new ConcurrentHashMap<File, Files.EncodingResult>();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DetectTask(dir.toPath(), sampleBytes, windows, results));
+        } finally {
+            pool.shutdown();
+        }
+        return new TreeMap<>(results);
+    }
+
+    /**
+     * 识别一层文件夹中文件编码的任务，子文件夹和每个文件会分出新的任务并行识别
+     */
+    @SuppressWarnings("serial")
+    private static class DetectTask extends RecursiveAction {
+        /**
+         * 文件/文件夹路径
+         */
+        private final Path path;
+
+        /**
+         * 采样字节数
+         */
+        private final int sampleBytes;
+
+        /**
+         * 采样窗口数量
+         */
+        private final int windows;
+
+        /**
+         * 识别结果
+         */
+        private final Map<File, Files.EncodingResult> results;
+
+        /**
+         * 是否是文件
+         */
+        private final boolean file;
+
+        DetectTask(Path path, int sampleBytes, int windows, Map<File, Files.EncodingResult> results) {
+            this(path, sampleBytes, windows, results, false);
+        }
+
+        private DetectTask(Path path, int sampleBytes, int windows,
+                           Map<File, Files.EncodingResult> results, boolean file) {
+            this.path = path;
+            this.sampleBytes = sampleBytes;
+            this.windows = windows;
+            this.results = results;
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            if (file) {
+                try {
+                    var f = path.toFile();
+                    results.put(f, detect(f, sampleBytes, windows));
+                } catch (RuntimeException e) {
+                    Files.log(() -> "读取文件失败：" + path);
+                }
+                return;
+            }
+
+            var subTasks = new ArrayList<DetectTask>();
+            try {
+                java.nio.file.Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path p, BasicFileAttributes attrs) {
+                        // 跳过符号链接等特殊文件
+                        if (attrs.isDirectory() || attrs.isRegularFile()) {
+                            subTasks.add(new DetectTask(p, sampleBytes, windows, results, attrs.isRegularFile()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path p, IOException e) {
+                        Files.log(() -> "展开文件夹失败：" + p);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                Files.log(() -> "展开文件夹失败：" + path);
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+}
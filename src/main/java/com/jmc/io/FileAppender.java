@@ -0,0 +1,410 @@
+package com.jmc.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 批量追加写入器（组提交） <br>
+ * 1. 多个线程追加的记录先放入无锁队列，append不会阻塞，也不会每次打开关闭文件 <br>
+ * 2. 一个写入线程把队列中的记录合并成批次写入文件 <br>
+ * 3. 可以选择持久化方式：不主动刷盘（默认），每隔N毫秒刷盘，或者每N条记录刷盘 <br>
+ * 写入线程是守护线程，使用完毕后必须调用close，否则程序退出时可能丢失还没写入的记录
+ * @apiNote <pre>{@code
+ * // 打开a.log的追加写入器（不主动刷盘）
+ * try (var appender = Files.appender("/path/to/a.log")) {
+ *     appender.append("第一条记录\n");
+ * }
+ *
+ * // 每100毫秒刷盘一次
+ * try (var appender = FileAppender.builder()
+ *         .syncIntervalMillis(100)
+ *         .open("/path/to/audit.log")) {
+ *     // 多个线程同时追加
+ *     appender.append("user login\n");
+ *     // 等待之前的记录都写入文件
+ *     appender.flush();
+ * }
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public class FileAppender implements Closeable {
+    /**
+     * 批次缓冲区大小
+     */
+    private static final int BATCH_SIZE = 256 * 1024;
+
+    /**
+     * 没有定时刷盘时，写入线程空闲等待的最长时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * 写入线程编号
+     */
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel channel;
+
+    /**
+     * 字符串记录的编码
+     */
+    private final Charset charset;
+
+    /**
+     * 刷盘间隔（毫秒，0代表不按时间刷盘）
+     */
+    private final long syncIntervalMillis;
+
+    /**
+     * 刷盘的记录数间隔（0代表不按记录数刷盘）
+     */
+    private final int syncEveryRecords;
+
+    /**
+     * 等待写入的记录
+     */
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已追加的记录数
+     */
+    private final AtomicLong appended = new AtomicLong();
+
+    /**
+     * 已写入文件的记录数
+     */
+    private volatile long written;
+
+    /**
+     * 等待flush的锁
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * 写入线程
+     */
+    private final Thread writer;
+
+    /**
+     * 写入线程是否在空闲等待
+     */
+    private volatile boolean idle;
+
+    /**
+     * 是否已经关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 写入线程遇到的错误
+     */
+    private volatile Throwable error;
+
+    private FileAppender(File file, Charset charset, long syncIntervalMillis, int syncEveryRecords) {
+        this.charset = charset;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.syncEveryRecords = syncEveryRecords;
+
+        Files.mkdirs(file.getAbsoluteFile().getParentFile());
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.writer = new Thread(this::writeLoop, "jmc-appender-" + THREAD_COUNT.incrementAndGet());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 获取追加写入器的构造器
+     * @return 追加写入器的构造器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 追加写入器的构造器
+     */
+    public static class Builder {
+        /**
+         * 字符串记录的编码
+         */
+        private Charset charset = StandardCharsets.UTF_8;
+
+        /**
+         * 刷盘间隔（毫秒）
+         */
+        private long syncIntervalMillis;
+
+        /**
+         * 刷盘的记录数间隔
+         */
+        private int syncEveryRecords;
+
+        private Builder() {}
+
+        /**
+         * 指定字符串记录的编码（不指定时为UTF-8）
+         * @param charset 编码
+         * @return 构造器本身
+         */
+        public Builder charset(Charset charset) {
+            if (charset == null) {
+                throw new IllegalArgumentException("编码不能为空！");
+            }
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * 指定每隔多少毫秒刷盘一次（不指定或者为0时不按时间刷盘）
+         * @param syncIntervalMillis 刷盘间隔（毫秒）
+         * @return 构造器本身
+         */
+        public Builder syncIntervalMillis(long syncIntervalMillis) {
+            if (syncIntervalMillis < 0) {
+                throw new IllegalArgumentException("刷盘间隔不能为负数！");
+            }
+            this.syncIntervalMillis = syncIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 指定每写入多少条记录刷盘一次（不指定或者为0时不按记录数刷盘）
+         * @param syncEveryRecords 刷盘的记录数间隔
+         * @return 构造器本身
+         */
+        public Builder syncEveryRecords(int syncEveryRecords) {
+            if (syncEveryRecords < 0) {
+                throw new IllegalArgumentException("刷盘的记录数间隔不能为负数！");
+            }
+            this.syncEveryRecords = syncEveryRecords;
+            return this;
+        }
+
+        /**
+         * 打开追加写入器（文件不存在时创建）
+         * @param path 文件路径
+         * @return 追加写入器
+         */
+        public FileAppender open(String path) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("文件路径不能为空！");
+            }
+            return new FileAppender(new File(path), charset, syncIntervalMillis, syncEveryRecords);
+        }
+    }
+
+    /**
+     * 追加一条字符串记录（不会自动添加换行）
+     * @param s 记录
+     * @apiNote <pre>{@code
+     * appender.append("user login\n");
+     * }</pre>
+     */
+    public void append(String s) {
+        append(s.getBytes(charset));
+    }
+
+    /**
+     * 追加一条记录
+     * @param bs 记录
+     */
+    public void append(byte[] bs) {
+        checkState();
+        queue.add(bs);
+        appended.incrementAndGet();
+
+        // 入队后再检查一次关闭标志：如果入队时已经关闭，写入线程可能已经最后一次清空了队列，
+        // 能从队列中取回记录说明它不会被写入，撤销这次追加；取不回说明写入线程已经取走并写入
+        if (closed && queue.remove(bs)) {
+            appended.decrementAndGet();
+            checkState();
+        }
+
+        // 写入线程空闲时才唤醒，减少系统调用
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * 等待调用前追加的记录全部写入文件（不一定刷盘）
+     */
+    public void flush() {
+        long target = appended.get();
+        LockSupport.unpark(writer);
+
+        synchronized (flushLock) {
+            while (written < target && error == null && writer.isAlive()) {
+                try {
+                    flushLock.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        checkError();
+    }
+
+    /**
+     * 获取已写入文件的记录数
+     * @return 已写入的记录数
+     */
+    public long written() {
+        return written;
+    }
+
+    /**
+     * 写入剩余的记录后关闭（指定了刷盘方式时最后刷盘一次）
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Files.log(() -> "关闭追加写入器失败：" + e.getMessage());
+            }
+        }
+        checkError();
+    }
+
+    /**
+     * 写入线程：合并队列中的记录成批写入，并按持久化方式刷盘
+     */
+    private void writeLoop() {
+        var buff = ByteBuffer.allocateDirect(BATCH_SIZE);
+        long lastSync = System.nanoTime();
+        long unsynced = 0;
+        boolean sync = syncIntervalMillis > 0 || syncEveryRecords > 0;
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+
+        try {
+            while (true) {
+                // 关闭标志要在清空队列之前读取，保证关闭前追加的记录都被写入
+                boolean closing = closed;
+
+                long count = 0;
+                byte[] bs;
+                while ((bs = queue.poll()) != null) {
+                    if (bs.length > buff.remaining()) {
+                        writeFully(buff.flip());
+                        buff.clear();
+                    }
+                    if (bs.length > buff.capacity()) {
+                        writeFully(ByteBuffer.wrap(bs));
+                    } else {
+                        buff.put(bs);
+                    }
+                    count++;
+                }
+                if (buff.position() > 0) {
+                    writeFully(buff.flip());
+                    buff.clear();
+                }
+
+                if (count > 0) {
+                    unsynced += count;
+                    written += count;
+                    synchronized (flushLock) {
+                        flushLock.notifyAll();
+                    }
+                }
+
+                // 按持久化方式刷盘
+                long now = System.nanoTime();
+                if (unsynced > 0 && ((syncEveryRecords > 0 && unsynced >= syncEveryRecords)
+                        || (intervalNanos > 0 && now - lastSync >= intervalNanos))) {
+                    channel.force(false);
+                    unsynced = 0;
+                    lastSync = now;
+                }
+
+                if (closing) {
+                    if (sync && unsynced > 0) {
+                        channel.force(false);
+                    }
+                    return;
+                }
+
+                // 队列为空时空闲等待，追加记录时被唤醒
+                if (queue.isEmpty()) {
+                    idle = true;
+                    if (queue.isEmpty() && !closed) {
+                        LockSupport.parkNanos(unsynced > 0 && intervalNanos > 0
+                                ? Math.max(0, intervalNanos - (now - lastSync)) : IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            }
+        } catch (Throwable e) {
+            error = e;
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 把缓冲区全部写入文件
+     * @param buff 缓冲区
+     * @throws IOException 写入出错
+     */
+    private void writeFully(ByteBuffer buff) throws IOException {
+        while (buff.hasRemaining()) {
+            channel.write(buff);
+        }
+    }
+
+    /**
+     * 检查是否可以追加
+     */
+    private void checkState() {
+        if (closed) {
+            throw new IllegalStateException("追加写入器已经关闭！");
+        }
+        checkError();
+    }
+
+    /**
+     * 写入线程出错时抛出异常
+     */
+    private void checkError() {
+        if (error != null) {
+            throw new RuntimeException("追加写入失败！", error);
+        }
+    }
+}
@@ -0,0 +1,664 @@
+package com.jmc.io;
+
+import com.jmc.lang.Objs;
+import com.jmc.lang.Strs;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 文件名称索引（类似locate） <br>
+ * 1. 索引文件中保存文件夹中所有文件/文件夹的相对路径，按路径排序并使用前缀压缩（每条记录只保存和上一条不同的后缀） <br>
+ * 2. 查询时将索引文件映射到内存，按名称包含的内容查询时并行扫描各个数据块，按路径前缀查询时二分查找 <br>
+ * 3. 索引中保存每个文件夹的修改时间，重新建立索引时修改时间没有变化的文件夹不需要再展开，只需要读取一次文件夹的属性 <br>
+ * 文件夹的修改时间只会在其中的子项增加，删除或者重命名时改变，所以索引只能反映名称的变化，不包含文件长度等属性
+ * @apiNote <pre>{@code
+ * // 建立（或者增量更新）a文件夹的索引
+ * Files.buildIndex("/path/to/a", "/path/to/a.idx");
+ *
+ * // 打开索引并查询
+ * var index = FileIndex.open("/path/to/a.idx");
+ * List<File> files = index.findFiles("jmc", "utils");
+ * List<File> res = index.findByPrefix("src/main/");
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public class FileIndex {
+    /**
+     * 索引文件的魔数（JMCI）
+     */
+    private static final int MAGIC = 0x4A4D4349;
+
+    /**
+     * 索引文件格式版本
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * 每个数据块的记录数（每个数据块的第一条记录保存完整路径）
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * 文件尾的长度：数据块表位置，文件夹表位置，记录数，数据块数，魔数
+     */
+    private static final int FOOTER_SIZE = 8 + 8 + 4 + 4 + 4;
+
+    /**
+     * 文件夹修改时间距离建立索引的时间小于这个值时不信任修改时间（避免同一时刻的修改被漏掉）
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    /**
+     * 记录类型：文件
+     */
+    private static final byte TYPE_FILE = 0;
+
+    /**
+     * 记录类型：文件夹
+     */
+    private static final byte TYPE_DIR = 1;
+
+    /**
+     * 索引文件的内存映射
+     */
+    private final ByteBuffer buff;
+
+    /**
+     * 建立索引的文件夹
+     */
+    private final Path root;
+
+    /**
+     * 建立索引的时间（毫秒）
+     */
+    private final long buildTime;
+
+    /**
+     * 记录数
+     */
+    private final int entryCount;
+
+    /**
+     * 每个数据块在索引文件中的位置
+     */
+    private final long[] blockOffsets;
+
+    /**
+     * 文件夹表在索引文件中的位置
+     */
+    private final long dirTableOffset;
+
+    private FileIndex(ByteBuffer buff) {
+        this.buff = buff;
+
+        int footer = buff.limit() - FOOTER_SIZE;
+        if (footer < 0 || buff.getInt(0) != MAGIC || buff.getInt(buff.limit() - 4) != MAGIC) {
+            throw new RuntimeException("不是有效的索引文件！");
+        }
+        if (buff.getInt(4) != VERSION) {
+            throw new RuntimeException("不支持的索引文件版本：" + buff.getInt(4));
+        }
+
+        this.buildTime = buff.getLong(8);
+        int rootLength = buff.getInt(16);
+        this.root = Path.of(readString(20, rootLength));
+
+        long blockTableOffset = buff.getLong(footer);
+        this.dirTableOffset = buff.getLong(footer + 8);
+        this.entryCount = buff.getInt(footer + 16);
+        int blockCount = buff.getInt(footer + 20);
+
+        this.blockOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = buff.getLong((int) blockTableOffset + i * 8);
+        }
+    }
+
+    /**
+     * 打开索引文件（映射到内存）
+     * @param indexPath 索引文件路径
+     * @return 文件名称索引
+     */
+    public static FileIndex open(String indexPath) {
+        Objs.throwsIfNullOrEmpty("索引文件路径不能为空！", indexPath);
+        if (!Files.isFile(indexPath)) {
+            throw new RuntimeException("索引文件不存在：" + indexPath);
+        }
+        return new FileIndex(Files.map(indexPath));
+    }
+
+    /**
+     * 获取建立索引的文件夹
+     * @return 文件夹的绝对路径
+     */
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * 获取建立索引的时间
+     * @return 时间（毫秒）
+     */
+    public long buildTime() {
+        return buildTime;
+    }
+
+    /**
+     * 获取索引中的文件和文件夹数量
+     * @return 记录数
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * 查询名称中包含任意一个内容的文件
+     * @param contains 文件名称中包含的内容（不指定时返回所有文件）
+     * @return 按路径排序的文件列表
+     * @apiNote <pre>{@code
+     * // 查询名称包含jmc或者utils的文件
+     * List<File> res = index.findFiles("jmc", "utils");
+     * }</pre>
+     */
+    public List<File> findFiles(String... contains) {
+        return find(TYPE_FILE, nameFilter(contains));
+    }
+
+    /**
+     * 查询名称中包含任意一个内容的文件夹
+     * @param contains 文件夹名称中包含的内容（不指定时返回所有文件夹）
+     * @return 按路径排序的文件夹列表
+     */
+    public List<File> findDirs(String... contains) {
+        return find(TYPE_DIR, nameFilter(contains));
+    }
+
+    /**
+     * 查询相对路径以指定前缀开头的文件和文件夹
+     * @param prefix 相对于建立索引的文件夹的路径前缀（使用/分隔）
+     * @return 按路径排序的文件/文件夹列表
+     * @apiNote <pre>{@code
+     * // 查询src/main文件夹中的所有文件和文件夹
+     * List<File> res = index.findByPrefix("src/main/");
+     * }</pre>
+     */
+    public List<File> findByPrefix(String prefix) {
+        Objects.requireNonNull(prefix, "路径前缀不能为空！");
+
+        // 二分查找第一个完整路径不小于前缀的数据块，前缀相同的记录可能从它的上一个数据块开始
+        int lo = 0, hi = blockOffsets.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (firstPath(mid).compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        var res = new ArrayList<File>();
+        for (int block = Math.max(0, lo - 1); block < blockOffsets.length; block++) {
+            var entries = new ArrayList<Entry>();
+            decodeBlock(block, entries::add);
+            for (var entry : entries) {
+                if (entry.path().startsWith(prefix)) {
+                    res.add(toFile(entry.path()));
+                } else if (entry.path().compareTo(prefix) > 0) {
+                    return res;
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * 建立索引，索引文件已经存在并且是同一个文件夹的索引时增量更新
+     * @param dir 建立索引的文件夹
+     * @param indexFile 索引文件
+     * @return 索引中的文件和文件夹数量
+     */
+    static int build(File dir, File indexFile) {
+        var root = dir.getAbsoluteFile().toPath().normalize();
+        long buildTime = System.currentTimeMillis();
+
+        // 读取旧索引，只有同一个文件夹的有效索引才能复用
+        Snapshot old = null;
+        if (indexFile.isFile()) {
+            try {
+                // 读取到堆中而不是映射，避免映射的文件无法被替换
+                var oldIndex = new FileIndex(ByteBuffer.wrap(Files.readToBytes(indexFile)));
+                if (oldIndex.root.equals(root)) {
+                    old = oldIndex.snapshot();
+                }
+            } catch (RuntimeException e) {
+                Files.log(() -> "旧索引无效，重新建立索引：" + e.getMessage());
+            }
+        }
+
+        var builder = new Builder(root, old);
+        var pool = new ForkJoinPool(CopyEngine.detectParallelism(root.toString()));
+        try {
+            pool.invoke(builder.new ScanTask(""));
+        } finally {
+            pool.shutdown();
+        }
+
+        var entries = new ArrayList<>(builder.entries);
+        entries.sort(null);
+        var dirs = new ArrayList<>(builder.dirs.entrySet());
+        dirs.sort(Map.Entry.comparingByKey());
+
+        write(indexFile, root, buildTime, entries, dirs);
+        Files.log(() -> "索引建立完成：" + entries.size() + "条记录，重新展开"
+                + builder.listed.size() + "个文件夹，复用" + builder.reused.size() + "个文件夹");
+        return entries.size();
+    }
+
+    /**
+     * 索引记录
+     * @param path 相对路径（使用/分隔）
+     * @param type 记录类型
+     */
+    private record Entry(String path, byte type) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            return path.compareTo(o.path);
+        }
+
+        /**
+         * 获取名称（路径的最后一级）
+         * @return 名称
+         */
+        String name() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+    }
+
+    /**
+     * 旧索引的内容，用于增量更新
+     * @param buildTime 建立索引的时间
+     * @param dirMtimes 文件夹相对路径 -> 修改时间
+     * @param children 文件夹相对路径 -> 一级子项
+     */
+    private record Snapshot(long buildTime, Map<String, Long> dirMtimes, Map<String, List<Entry>> children) {}
+
+    /**
+     * 读取索引的全部内容
+     * @return 索引内容
+     */
+    private Snapshot snapshot() {
+        var children = new HashMap<String, List<Entry>>();
+        for (int block = 0; block < blockOffsets.length; block++) {
+            decodeBlock(block, entry -> {
+                int slash = entry.path().lastIndexOf('/');
+                var parent = slash < 0 ? "" : entry.path().substring(0, slash);
+                children.computeIfAbsent(parent, k -> new ArrayList<>()).add(entry);
+            });
+        }
+
+        var dirMtimes = new HashMap<String, Long>();
+        int pos = (int) dirTableOffset;
+        int dirCount = buff.getInt(pos);
+        pos += 4;
+        for (int i = 0; i < dirCount; i++) {
+            int length = buff.getInt(pos);
+            var path = readString(pos + 4, length);
+            dirMtimes.put(path, buff.getLong(pos + 4 + length));
+            pos += 4 + length + 8;
+        }
+
+        return new Snapshot(buildTime, dirMtimes, children);
+    }
+
+    /**
+     * 扫描文件夹的状态
+     */
+    private static class Builder {
+        /**
+         * 建立索引的文件夹
+         */
+        private final Path root;
+
+        /**
+         * 旧索引的内容（没有时为null）
+         */
+        private final Snapshot old;
+
+        /**
+         * 所有记录
+         */
+        private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 文件夹相对路径 -> 修改时间
+         */
+        private final Map<String, Long> dirs = new ConcurrentHashMap<>();
+
+        /**
+         * 重新展开的文件夹
+         */
+        private final ConcurrentLinkedQueue<String> listed = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 复用旧索引的文件夹
+         */
+        private final ConcurrentLinkedQueue<String> reused = new ConcurrentLinkedQueue<>();
+
+        Builder(Path root, Snapshot old) {
+            this.root = root;
+            this.old = old;
+        }
+
+        /**
+         * 扫描一层文件夹的任务，子文件夹会分出新的任务并行扫描
+         */
+        @SuppressWarnings("serial")
+        private class ScanTask extends RecursiveAction {
+            /**
+             * 文件夹相对路径（根文件夹为空字符串）
+             */
+            private final String rel;
+
+            ScanTask(String rel) {
+                this.rel = rel;
+            }
+
+            @Override
+            protected void compute() {
+                var dir = rel.isEmpty() ? root : root.resolve(rel);
+
+                long mtime;
+                try {
+                    mtime = java.nio.file.Files.getLastModifiedTime(dir).toMillis();
+                } catch (IOException e) {
+                    Files.log(() -> "读取文件夹属性失败：" + dir);
+                    return;
+                }
+                dirs.put(rel, mtime);
+
+                // 修改时间没有变化（并且不是在建立旧索引的同一时刻修改的）时复用旧索引中的子项
+                List<Entry> children;
+                var oldMtime = old == null ? null : old.dirMtimes().get(rel);
+                if (oldMtime != null && oldMtime == mtime && mtime < old.buildTime() - RACY_MILLIS) {
+                    children = old.children().getOrDefault(rel, Collections.emptyList());
+                    reused.add(rel);
+                } else {
+                    children = list(dir);
+                    listed.add(rel);
+                }
+
+                var subTasks = new ArrayList<ScanTask>();
+                for (var child : children) {
+                    entries.add(child);
+                    if (child.type() == TYPE_DIR) {
+                        subTasks.add(new ScanTask(child.path()));
+                    }
+                }
+                invokeAll(subTasks);
+            }
+
+            /**
+             * 展开文件夹
+             * @param dir 文件夹路径
+             * @return 一级子项
+             */
+            private List<Entry> list(Path dir) {
+                var res = new ArrayList<Entry>();
+                var prefix = rel.isEmpty() ? "" : rel + "/";
+                try {
+                    java.nio.file.Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1,
+                            new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                            res.add(new Entry(prefix + path.getFileName(), attrs.isDirectory() ? TYPE_DIR : TYPE_FILE));
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(Path path, IOException e) {
+                            Files.log(() -> "展开文件夹失败：" + path);
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                } catch (IOException e) {
+                    Files.log(() -> "展开文件夹失败：" + dir);
+                }
+                return res;
+            }
+        }
+    }
+
+    /**
+     * 写入索引文件（先写入临时文件再替换，查询中的旧索引不受影响）
+     * @param indexFile 索引文件
+     * @param root 建立索引的文件夹
+     * @param buildTime 建立索引的时间
+     * @param entries 按路径排序的记录
+     * @param dirs 按路径排序的文件夹修改时间
+     */
+    private static void write(File indexFile, Path root, long buildTime,
+                              List<Entry> entries, List<Map.Entry<String, Long>> dirs) {
+        var parent = indexFile.getAbsoluteFile().getParentFile();
+        Files.mkdirs(parent);
+        var temp = new File(parent, indexFile.getName() + ".tmp");
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1024 * 1024))) {
+            // 文件头
+            var rootBytes = root.toString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(buildTime);
+            out.writeInt(rootBytes.length);
+            out.write(rootBytes);
+
+            // 记录（前缀压缩）
+            int blockCount = (entries.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            var blockOffsets = new long[blockCount];
+            byte[] prev = new byte[0];
+            for (int i = 0; i < entries.size(); i++) {
+                var entry = entries.get(i);
+                var bs = entry.path().getBytes(StandardCharsets.UTF_8);
+
+                int shared = 0;
+                if (i % BLOCK_SIZE == 0) {
+                    blockOffsets[i / BLOCK_SIZE] = out.size();
+                } else {
+                    int max = Math.min(prev.length, bs.length);
+                    while (shared < max && prev[shared] == bs[shared]) {
+                        shared++;
+                    }
+                }
+
+                writeVarInt(out, shared);
+                writeVarInt(out, bs.length - shared);
+                out.write(bs, shared, bs.length - shared);
+                out.writeByte(entry.type());
+                prev = bs;
+            }
+
+            // 数据块表
+            long blockTableOffset = out.size();
+            for (long offset : blockOffsets) {
+                out.writeLong(offset);
+            }
+
+            // 文件夹表
+            long dirTableOffset = out.size();
+            out.writeInt(dirs.size());
+            for (var dir : dirs) {
+                var bs = dir.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bs.length);
+                out.write(bs);
+                out.writeLong(dir.getValue());
+            }
+
+            // 文件尾
+            out.writeLong(blockTableOffset);
+            out.writeLong(dirTableOffset);
+            out.writeInt(entries.size());
+            out.writeInt(blockCount);
+            out.writeInt(MAGIC);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            java.nio.file.Files.move(temp.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 并行扫描所有数据块，查询符合条件的记录
+     * @param type 记录类型
+     * @param nameFilter 名称过滤器
+     * @return 按路径排序的文件/文件夹列表
+     */
+    private List<File> find(byte type, Predicate<String> nameFilter) {
+        return IntStream.range(0, blockOffsets.length)
+                .parallel()
+                .mapToObj(block -> {
+                    var res = new ArrayList<File>();
+                    decodeBlock(block, entry -> {
+                        if (entry.type() == type && nameFilter.test(entry.name())) {
+                            res.add(toFile(entry.path()));
+                        }
+                    });
+                    return res;
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 解码一个数据块中的记录
+     * @param block 数据块序号
+     * @param action 处理每条记录的操作
+     */
+    private void decodeBlock(int block, Consumer<Entry> action) {
+        int pos = (int) blockOffsets[block];
+        int count = Math.min(BLOCK_SIZE, entryCount - block * BLOCK_SIZE);
+
+        byte[] path = new byte[256];
+        int length = 0;
+        int[] cursor = {pos};
+        for (int i = 0; i < count; i++) {
+            int shared = readVarInt(cursor);
+            int suffix = readVarInt(cursor);
+
+            length = shared + suffix;
+            if (length > path.length) {
+                path = Arrays.copyOf(path, Math.max(length, path.length * 2));
+            }
+            buff.get(cursor[0], path, shared, suffix);
+            cursor[0] += suffix;
+            byte type = buff.get(cursor[0]++);
+
+            action.accept(new Entry(new String(path, 0, length, StandardCharsets.UTF_8), type));
+        }
+    }
+
+    /**
+     * 获取数据块的第一条记录的完整路径
+     * @param block 数据块序号
+     * @return 完整路径
+     */
+    private String firstPath(int block) {
+        int[] cursor = {(int) blockOffsets[block]};
+        readVarInt(cursor);
+        int length = readVarInt(cursor);
+        return readString(cursor[0], length);
+    }
+
+    /**
+     * 把相对路径转换为File对象
+     * @param rel 相对路径
+     * @return File对象
+     */
+    private File toFile(String rel) {
+        return root.resolve(rel).toFile();
+    }
+
+    /**
+     * 读取UTF-8字符串
+     * @param pos 开始位置
+     * @param length 字节长度
+     * @return 字符串
+     */
+    private String readString(int pos, int length) {
+        var bs = new byte[length];
+        buff.get(pos, bs);
+        return new String(bs, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取变长整数
+     * @param cursor 当前位置（读取后向后移动）
+     * @return 整数
+     */
+    private int readVarInt(int[] cursor) {
+        int res = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buff.get(cursor[0]++);
+            res |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return res;
+            }
+        }
+    }
+
+    /**
+     * 写入变长整数（每个字节7位，最高位表示后面还有字节）
+     * @param out 输出流
+     * @param value 非负整数
+     * @throws IOException 写入出错
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * 根据名称包含的内容创建名称过滤器
+     * @param contains 名称中包含的内容
+     * @return 名称过滤器
+     */
+    private static Predicate<String> nameFilter(String... contains) {
+        var names = contains.length == 0 ? new String[] {""} : contains;
+        return name -> Strs.orContains(name, names);
+    }
+}
@@ -10,16 +10,31 @@ import lombok.Getter;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -129,6 +144,31 @@ import java.util.zip.ZipOutputStream;
  *                 2. 删除findInfo方法
  *                 3. 添加getLength和getFileInfo方法
  *                 4. 添加getReadableLength方法
+ *   2026.10.17    1. 添加CopyEngine，复制文件夹时根据存储设备确定并发数，使用有界队列和小文件批次
+ *                 2. 添加copyRanged方法，大文件可以分段并行复制
+ *                 3. 添加sync方法，增量同步文件夹
+ *                 4. 添加deltaCopy方法，大文件只写入有变化的区域
+ *                 5. 添加多线程压缩zip方法，可以指定线程数和压缩级别
+ *                 6. zip储存模式只读取一遍文件，边写入边计算CRC
+ *                 7. 添加流式压缩方法，可以把zip直接写入任意输出流/通道
+ *                 8. 添加ZipArchive，按条目索引随机读取zip，支持多线程读取和小条目缓存
+ *                 9. lines方法改为按需读取和解码，不再一次性读取整个文件
+ *                 10. lines方法读取大文件时可以拆分成多个区间并行处理
+ *                 11. readToBytes和read按文件长度一次读取，添加map和mapSegments方法
+ *                 12. 添加appender方法和FileAppender，多线程追加时成批写入，可以指定刷盘方式
+ *                 13. getFileInfo和getLength改为按子文件夹并行统计，每个子项只读取一次属性，跟随符号链接并跳过循环
+ *                 14. 添加DirectoryStatsCache，缓存文件夹统计信息并通过WatchService增量更新
+ *                 15. 添加find方法，返回惰性的搜索结果流，可以提前结束，并行搜索和限制深度
+ *                 16. findAny改为并行搜索，找到后立即停止，跳过无法展开的文件夹，可以指定时间限制
+ *                 17. 添加buildIndex方法和FileIndex，建立前缀压缩的文件名称索引，可以按修改时间增量更新
+ *                 18. delete改为并行删除，自底向上删除文件夹，添加可以指定并发数并返回删除结果的delete方法
+ *                 19. move改为先尝试原子重命名，失败时逐个文件复制后立即删除源文件，中途退出后可以重新移动
+ *                 20. getEncoding改为流式采样识别，添加返回置信度的detectEncoding和并行识别文件夹的detectEncodings方法
+ *                 21. setEncoding改为流式转换并原子替换源文件，添加并行转换文件夹的setEncodings方法
+ *                 22. 添加findDuplicates方法，按长度，首尾摘要和全部内容分阶段查找重复文件
+ *                 23. 添加hash方法，支持大文件的并行树形摘要，文件夹的Merkle摘要和按长度与修改时间缓存的文件摘要
+ *                 24. 添加grep方法，并行搜索文件内容，普通字符串在映射的字节中直接查找
+ *                 25. 添加IoMetrics统计复制，移动，删除，压缩，解压，读取和输出的吞吐量，耗时分布，出错次数和线程池排队数，修复耗时日志的整数除法
  * </pre>
  * @since 1.0
  * @author Jmc
@@ -144,7 +184,17 @@ public class Files
 	private static final int LARGE_FILE_SIZE = 1024 * 1024 * 500;
 
 	/**
-	 * 最多正在操作文件数（用于指定复制等操作线程池最大线程数）
+	 * 数组的最大长度
+	 */
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	/**
+	 * 分段映射文件时每段的大小
+	 */
+	private static final long MAP_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+	/**
+	 * 最多正在操作文件数（用于指定解压等操作线程池最大线程数）
 	 */
 	private static final int MAX_OPERATING_AMOUNT = 500;
 
@@ -177,7 +227,7 @@ public class Files
 	 * 打印日志（懒加载提高性能）
 	 * @param msg 日志内容
 	 */
-	private static void log(Supplier<String> msg) {
+	static void log(Supplier<String> msg) {
 		if (log != null) {
 			log.info(msg);
 		}
@@ -198,93 +248,49 @@ public class Files
 	 * // 将a文件夹复制到/path/to/dir/a
 	 * Files.copy("/path/to/a", "/path/to/dir");
 	 * }</pre>
+	 * @see CopyEngine
 	 */
 	public static void copy(String srcPath, String desPath) {
-        Objs.throwsIfNullOrEmpty("源路径和目标路径不能为空！", srcPath, desPath);
-
-        // 创建源文件
-        File src = new File(srcPath);
+		CopyEngine.builder().build().copy(srcPath, desPath);
+	}
 
-        // 检查路径是否存在
-        if (!src.exists()) {
-			throw new RuntimeException("源文件不存在，复制失败");
+	/**
+	 * 复制文件（根据文件大小选择复制方式）
+	 * @param src 源文件
+	 * @param des 目标文件
+	 * @param length 源文件长度
+	 * @param ranges 大文件并行复制的分段数
+	 * @param rangePool 分段复制的线程池（多个文件共用，分段数大于1时不能为空）
+	 * @return 是否复制成功
+	 * @since 4.0
+	 */
+	static boolean copyFile(File src, File des, long length, int ranges, ExecutorService rangePool) {
+		long start = IoMetrics.start();
+		boolean ok = length < LARGE_FILE_SIZE ? copySmallFile(src, des) : copyLargeFile(src, des, ranges, rangePool);
+		if (ok) {
+			IoMetrics.file(IoMetrics.Op.COPY, length, start);
 		}
-
-        // 创建目标文件
-        File des = new File(desPath + "/" + src.getName());
-
-        // 记录开始时间
-        long startTime = System.currentTimeMillis();
-
-        // 如果是文件
-        if (src.isFile()) {
-			log(() -> "正在复制" + src.getName() + "这个文件");
-
-			// 创建父目录
-			mkdirs(des.getParent());
-
-			// 如果是小文件
-            if (src.length() < LARGE_FILE_SIZE) {
-				copySmallFile(src, des);
-			} else {
-				copyLargeFile(src, des);
-			}
-        } else {
-			log(() -> "正在复制" + src.getName() + "这个文件夹");
-
-			// 线程池
-			var pool = Executors.newFixedThreadPool(MAX_OPERATING_AMOUNT);
-
-			// 复制文件夹
-			new Object() {
-				void loop(File srcDir, File desDir) {
-					File[] fs = srcDir.listFiles();
-					if (fs == null) {
-						throw new RuntimeException("展开文件夹失败");
-					}
-
-					for (File src : fs) {
-						File des = new File(desDir, src.getName());
-
-						if (src.isDirectory()) {
-							// 创建这个目录
-							mkdirs(des);
-
-							// 递归复制
-							loop(src, des);
-						} else {
-							pool.execute(src.length() < LARGE_FILE_SIZE ?
-									() -> copySmallFile(src, des) : () -> copyLargeFile(src, des));
-						}
-					}
-				}
-			}.loop(src, des);
-
-			pool.shutdown();
-
-			// 等待执行完成
-			Tries.tryRun(() -> { while (!pool.awaitTermination(1, TimeUnit.DAYS)) {} });
-        }
-
-		// 统计时间
-		long endTime = System.currentTimeMillis();
-		log(() -> "耗时" + (double)((endTime - startTime) / 1000) + "秒，已完成");
-    }
+		return ok;
+	}
 
 	/**
 	 * 复制小文件
 	 * @param src 源文件
 	 * @param des 目标文件
+	 * @return 是否复制成功（失败时打印错误信息）
 	 */
-	private static void copySmallFile(File src, File des) {
+	static boolean copySmallFile(File src, File des) {
 		// 日志信息
 		log(() -> "正在复制文件: " + src.getAbsolutePath());
 
 		try (var in = new FileInputStream(src);
 			 var out = new FileOutputStream(des)) {
 			in.transferTo(out);
+			return true;
 		} catch (Exception e) {
+			IoMetrics.error(IoMetrics.Op.COPY);
 			e.printStackTrace();
+			return false;
 		}
 	}
 
@@ -293,8 +299,9 @@ public class Files
 	 * 使用的是Java的零拷贝技术
 	 * @param src 源文件
 	 * @param des 目标文件
+	 * @return 是否复制成功（失败时打印错误信息）
 	 */
-	private static void copyLargeFile(File src, File des) {
+	static boolean copyLargeFile(File src, File des) {
 		// 日志信息
 		log(() -> "正在复制大文件: " + src.getAbsolutePath());
 
@@ -331,9 +338,151 @@ public class Files
 			}
 			// 强制将内存中剩余数据写入硬盘，保证数据完整性
 			outChannel.force(true);
+			return true;
+		} catch (Exception e) {
+			IoMetrics.error(IoMetrics.Op.COPY);
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * 并行分段复制大文件 <br>
+	 * 把文件分为互不重叠的多个区间，每个区间由分段线程池中的一个线程用独立的通道复制 <br>
+	 * 支持内核复制（如Linux: sendfile）时使用transferTo，否则使用定位读写
+	 * @param src 源文件
+	 * @param des 目标文件
+	 * @param ranges 分段数（小于等于1时退化为单线程复制）
+	 * @param rangePool 分段复制的线程池（多个文件共用，总的分段并发数不超过它的线程数）
+	 * @return 是否复制成功（失败时打印错误信息）
+	 * @since 4.0
+	 */
+	static boolean copyLargeFile(File src, File des, int ranges, ExecutorService rangePool) {
+		if (ranges <= 1) {
+			return copyLargeFile(src, des);
+		}
+
+		// 日志信息
+		log(() -> "正在分" + ranges + "段复制大文件: " + src.getAbsolutePath());
+
+		try (var in = FileChannel.open(src.toPath(), StandardOpenOption.READ);
+			 var out = FileChannel.open(des.toPath(), StandardOpenOption.CREATE,
+					 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			if (size == 0) {
+				return true;
+			}
+
+			// 预先分配目标文件长度，避免各区间写入时反复扩展文件
+			out.write(ByteBuffer.allocate(1), size - 1);
+
+			// 每段长度按1MB对齐
+			long align = 1024 * 1024;
+			long rangeSize = ((size + ranges - 1) / ranges + align - 1) / align * align;
+
+			var tasks = new ArrayList<Callable<Void>>();
+			for (long start = 0; start < size; start += rangeSize) {
+				long begin = start, end = Math.min(size, start + rangeSize);
+				tasks.add(() -> {
+					copyRange(src, des, begin, end);
+					return null;
+				});
+			}
+
+			for (var future : rangePool.invokeAll(tasks)) {
+				future.get();
+			}
+
+			// 强制将内存中剩余数据写入硬盘，保证数据完整性
+			out.force(true);
+			return true;
 		} catch (Exception e) {
+			IoMetrics.error(IoMetrics.Op.COPY);
 			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * 复制文件的一个区间
+	 * @param src 源文件
+	 * @param des 目标文件
+	 * @param start 区间开始位置（包含）
+	 * @param end 区间结束位置（不包含）
+	 * @throws IOException 读写出错
+	 */
+	private static void copyRange(File src, File des, long start, long end) throws IOException {
+		// 每个区间使用独立的通道，互不影响读写位置
+		try (var in = FileChannel.open(src.toPath(), StandardOpenOption.READ);
+			 var out = FileChannel.open(des.toPath(), StandardOpenOption.WRITE)) {
+			long pos = start;
+
+			// 内核复制：目标通道从区间开始处写入
+			out.position(start);
+			while (pos < end) {
+				long n = in.transferTo(pos, end - pos, out);
+				if (n <= 0) {
+					break;
+				}
+				pos += n;
+			}
+
+			// 不支持内核复制时用定位读写复制剩余部分
+			var buff = ByteBuffer.allocateDirect(1024 * 1024);
+			while (pos < end) {
+				buff.clear().limit((int) Math.min(buff.capacity(), end - pos));
+				// 源文件在复制过程中变短时，目标文件中预先分配的部分会留下0，不能当作复制成功
+				if (in.read(buff, pos) < 0) {
+					throw new IOException("源文件在复制过程中变短了：" + src.getAbsolutePath());
+				}
+				buff.flip();
+				while (buff.hasRemaining()) {
+					pos += out.write(buff, pos);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 并行分段复制文件 <br>
+	 * 适用于固态硬盘或网络存储上的超大文件（几十到几百GB），机械硬盘上多段并行会导致来回寻道，建议分段数为1
+	 * @param srcPath 源文件路径
+	 * @param desPath 目标文件夹路径
+	 * @param ranges 分段数（同时也是线程数）
+	 * @return 统计结果（复制失败时抛出异常）
+	 * @apiNote <pre>{@code
+	 * // 将a.db分8段并行复制到dir文件夹
+	 * IoStats stats = Files.copyRanged("/path/to/a.db", "/path/to/dir", 8);
+	 * // 打印复制速度
+	 * System.out.println(stats.bytesPerSecond());
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static IoStats copyRanged(String srcPath, String desPath, int ranges) {
+		Objs.throwsIfNullOrEmpty("源路径和目标路径不能为空！", srcPath, desPath);
+
+		var src = new File(srcPath);
+		if (!src.isFile()) {
+			throw new RuntimeException("源文件不存在或者不是文件，复制失败");
 		}
+
+		var des = new File(desPath, src.getName());
+		mkdirs(desPath);
+
+		long length = src.length();
+		long startTime = System.nanoTime();
+		long start = IoMetrics.start();
+		var pool = Executors.newFixedThreadPool(Math.max(1, ranges));
+		try {
+			if (!copyLargeFile(src, des, ranges, pool)) {
+				throw new RuntimeException("分段复制文件失败：" + src.getAbsolutePath());
+			}
+			IoMetrics.file(IoMetrics.Op.COPY, length, start);
+		} finally {
+			pool.shutdown();
+			IoMetrics.call(IoMetrics.Op.COPY, start);
+		}
+		return new IoStats(1, length, System.nanoTime() - startTime);
 	}
 
 	/**
@@ -346,6 +495,204 @@ public class Files
 		copy(src.getAbsolutePath(), destPath);
 	}
 
+	/**
+	 * 增量同步文件或文件夹（只复制有变化的文件） <br>
+	 * 默认文件长度和修改时间都相同时跳过，也可以改为比较文件内容
+	 * @param srcPath 源路径
+	 * @param desPath 目标路径
+	 * @param options 同步选项
+	 * @return 同步结果
+	 * @apiNote <pre>{@code
+	 * // 将a文件夹同步到/path/to/dir/a，只复制有变化的文件
+	 * var res = Files.sync("/path/to/a", "/path/to/dir", SyncOptions.builder().build());
+	 *
+	 * // 比较文件内容，并删除源文件夹中已经不存在的文件
+	 * var options = SyncOptions.builder()
+	 *         .checksum(true)
+	 *         .delete(true)
+	 *         .build();
+	 * var res2 = Files.sync("/path/to/a", "/path/to/dir", options);
+	 * // 复制，跳过，删除和复制失败的文件数量
+	 * long copied = res2.copied(), skipped = res2.skipped(), deleted = res2.deleted(), failed = res2.failed();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static SyncResult sync(String srcPath, String desPath, SyncOptions options) {
+		Objs.throwsIfNullOrEmpty("源路径，目标路径和同步选项不能为空！", srcPath, desPath, options);
+
+		var src = new File(srcPath);
+		if (!src.exists()) {
+			throw new RuntimeException("源文件不存在，同步失败");
+		}
+
+		var des = new File(desPath, src.getName());
+
+		log(() -> "正在同步" + src.getName() + "到" + des.getAbsolutePath());
+		var res = DirSync.sync(src, des, options);
+		log(() -> "同步完成：" + res);
+
+		return res;
+	}
+
+	/**
+	 * 使用默认选项增量同步文件或文件夹（比较文件长度和修改时间，不删除目标中多余的文件）
+	 * @param srcPath 源路径
+	 * @param desPath 目标路径
+	 * @return 同步结果
+	 * @apiNote <pre>{@code
+	 * // 将a文件夹同步到/path/to/dir/a，只复制有变化的文件
+	 * var res = Files.sync("/path/to/a", "/path/to/dir");
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static SyncResult sync(String srcPath, String desPath) {
+		return sync(srcPath, desPath, SyncOptions.builder().build());
+	}
+
+	/**
+	 * 增量同步的选项
+	 * @param checksum 是否比较文件内容（否则比较文件长度和修改时间）
+	 * @param delete 是否删除源文件夹中已经不存在的文件
+	 * @param parallelism 并行比较的线程数
+	 * @since 4.0
+	 */
+	public record SyncOptions(boolean checksum, boolean delete, int parallelism) {
+		/**
+		 * 创建增量同步的选项（检查线程数必须大于0）
+		 */
+		public SyncOptions {
+			if (parallelism <= 0) {
+				throw new IllegalArgumentException("线程数必须大于0！");
+			}
+		}
+
+		/**
+		 * 获取同步选项的构造器
+		 * @return 同步选项的构造器
+		 */
+		public static Builder builder() {
+			return new Builder();
+		}
+
+		/**
+		 * 同步选项的构造器
+		 */
+		public static class Builder {
+			/**
+			 * 是否比较文件内容
+			 */
+			private boolean checksum;
+
+			/**
+			 * 是否删除源文件夹中已经不存在的文件
+			 */
+			private boolean delete;
+
+			/**
+			 * 并行比较的线程数
+			 */
+			private int parallelism = Runtime.getRuntime().availableProcessors();
+
+			private Builder() {}
+
+			/**
+			 * 指定是否比较文件内容（默认否，只比较文件长度和修改时间）
+			 * @param checksum 是否比较文件内容
+			 * @return 构造器本身
+			 */
+			public Builder checksum(boolean checksum) {
+				this.checksum = checksum;
+				return this;
+			}
+
+			/**
+			 * 指定是否删除源文件夹中已经不存在的文件（默认否）
+			 * @param delete 是否删除
+			 * @return 构造器本身
+			 */
+			public Builder delete(boolean delete) {
+				this.delete = delete;
+				return this;
+			}
+
+			/**
+			 * 指定并行比较的线程数（默认是CPU核数）
+			 * @param parallelism 线程数
+			 * @return 构造器本身
+			 */
+			public Builder parallelism(int parallelism) {
+				this.parallelism = parallelism;
+				return this;
+			}
+
+			/**
+			 * 构造同步选项
+			 * @return 同步选项
+			 */
+			public SyncOptions build() {
+				return new SyncOptions(checksum, delete, parallelism);
+			}
+		}
+	}
+
+	/**
+	 * 增量同步的结果
+	 * @param copied 复制的文件数量
+	 * @param skipped 没有变化而跳过的文件数量
+	 * @param deleted 删除的文件/文件夹数量（删除的文件夹算作一个）
+	 * @param failed 复制失败的文件数量（下次同步时会重新复制）
+	 * @param copiedBytes 复制的字节数
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record SyncResult(long copied, long skipped, long deleted, long failed, long copiedBytes, long nanos) {}
+
+	/**
+	 * 差量复制文件（类似rsync算法） <br>
+	 * 用滚动校验和 + MD5在源文件中查找目标文件已有的块，只在目标文件上原地写入不同的区域 <br>
+	 * 适用于只有少量块发生变化的大文件（虚拟机镜像，SQLite数据库文件等）
+	 * @param srcPath 源文件路径
+	 * @param desPath 目标文件路径（不存在时直接复制）
+	 * @return 差量复制结果
+	 * @apiNote <pre>{@code
+	 * // 用a.img更新备份文件/backup/a.img，只写入有变化的区域
+	 * var res = Files.deltaCopy("/path/to/a.img", "/backup/a.img");
+	 * // 实际写入的字节数
+	 * long transferred = res.transferredBytes();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static DeltaResult deltaCopy(String srcPath, String desPath) {
+		Objs.throwsIfNullOrEmpty("源路径和目标路径不能为空！", srcPath, desPath);
+
+		var src = new File(srcPath);
+		if (!src.isFile()) {
+			throw new RuntimeException("源文件不存在或者不是文件，复制失败");
+		}
+
+		var des = new File(desPath);
+		if (des.isDirectory()) {
+			throw new RuntimeException("目标路径必须是文件！");
+		}
+		mkdirs(des.getAbsoluteFile().getParentFile());
+
+		log(() -> "正在差量复制" + src.getName() + "到" + des.getAbsolutePath());
+		var res = DeltaCopy.copy(src, des);
+		log(() -> "差量复制完成：" + res);
+
+		return res;
+	}
+
+	/**
+	 * 差量复制的结果
+	 * @param length 文件长度
+	 * @param matchedBytes 和目标文件同位置内容相同、不需要写入的字节数
+	 * @param transferredBytes 实际写入目标文件的字节数（和matchedBytes之和等于文件长度）
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record DeltaResult(long length, long matchedBytes, long transferredBytes, long nanos) {}
+
 	/**
 	 * 移动文件或文件夹
 	 * @param srcPath 源路径
@@ -359,36 +706,72 @@ public class Files
 	 * }</pre>
 	 */
 	public static void move(String srcPath, String desPath) {
-		Objs.throwsIfNullOrEmpty("根路径和目标路径不能为空", srcPath, desPath);
+		move(srcPath, desPath, CopyEngine.detectParallelism(srcPath));
+	}
 
-        // 创建源文件
-        File src = new File(srcPath);
+	/**
+	 * 移动文件或文件夹 <br>
+	 * 1. 先尝试原子重命名，同一个文件系统中直接完成 <br>
+	 * 2. 不能重命名（比如跨文件系统）时逐层展开，每个文件复制完成后立即删除源文件，多个子文件夹并行移动 <br>
+	 * 3. 中途退出后用同样的参数重新移动可以接着完成，已经复制完成的文件不会再复制
+	 * @param srcPath 源路径
+	 * @param desPath 目标路径
+	 * @param parallelism 并发数
+	 * @return 移动结果
+	 * @apiNote <pre>{@code
+	 * // 使用4个线程将a文件夹移动到另一个磁盘的/mnt/backup/a
+	 * var res = Files.move("/path/to/a", "/mnt/backup", 4);
+	 * // 重命名的数量，复制后删除的文件数量和复制的字节数
+	 * long renamed = res.renamed(), copied = res.copied(), bytes = res.copiedBytes();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static MoveResult move(String srcPath, String desPath, int parallelism) {
+		Objs.throwsIfNullOrEmpty("根路径和目标路径不能为空", srcPath, desPath);
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("并发数必须大于0！");
+		}
 
-        // 判断源文件是否存在
-        if (!src.exists()) {
-            throw new RuntimeException("源文件不存在");
-        }
+		File src = new File(srcPath);
+		File des = new File(desPath + "/" + src.getName());
 
-        // 目标文件
-        File des = new File(desPath + "/" + src.getName());
+		// 判断源文件是否存在（包括符号链接）
+		if (!src.exists() && !java.nio.file.Files.isSymbolicLink(src.toPath())) {
+			// 上一次移动已经完成
+			if (des.exists()) {
+				log(() -> src.getName() + " 已经移动到 " + des.getParentFile().getName() + " 文件夹");
+				return new MoveResult(0, 0, 0, 0);
+			}
+			throw new RuntimeException("源文件不存在");
+		}
 
-        // 创建目标父目录
+		// 创建目标父目录
 		mkdirs(desPath);
 
-		// 移动文件，若移动失败就该用传统方式
-		if (!src.renameTo(des)) {
-			copy(srcPath, des.getParent());
-
-			if (des.exists()) {
-				delete(srcPath);
-			} else {
-				throw new RuntimeException("\n移动失败！");
-			}
+		long start = IoMetrics.start();
+		MoveResult res;
+		try {
+			res = DirMove.move(src.toPath(), des.toPath(), parallelism);
+		} catch (RuntimeException e) {
+			IoMetrics.error(IoMetrics.Op.MOVE);
+			throw e;
+		} finally {
+			IoMetrics.call(IoMetrics.Op.MOVE, start);
 		}
 
-        // 日志信息
-        log(() -> "成功将 " + src.getName() + " 移动到 " + des.getParentFile().getName() + " 文件夹!");
-    }
+		log(() -> "成功将 " + src.getName() + " 移动到 " + des.getParentFile().getName() + " 文件夹! " + res);
+		return res;
+	}
+
+	/**
+	 * 移动的结果
+	 * @param renamed 重命名移动的文件/文件夹数量（重命名的文件夹算作一个）
+	 * @param copied 复制后删除的文件数量
+	 * @param copiedBytes 复制的字节数
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record MoveResult(long renamed, long copied, long copiedBytes, long nanos) {}
 
 	/**
 	 * 移动文件或文件夹
@@ -457,52 +840,72 @@ public class Files
 	 * }</pre>
 	 */
 	public static void delete(String path) {
+		delete(path, CopyEngine.detectParallelism(path));
+	}
+
+	/**
+	 * 并行删除文件或文件夹 <br>
+	 * 多个线程同时删除不同的子文件夹，文件很多的文件夹中的文件也会分批并行删除，每个文件夹在子项全部删除后再删除
+	 * @param path 文件/文件夹路径
+	 * @param parallelism 并发数
+	 * @return 删除结果
+	 * @apiNote <pre>{@code
+	 * // 使用8个线程删除build文件夹
+	 * var res = Files.delete("/path/to/build", 8);
+	 * // 删除的文件数量，文件夹数量和每秒删除的数量
+	 * long files = res.files(), dirs = res.dirs();
+	 * double rate = res.entriesPerSecond();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static DeleteResult delete(String path, int parallelism) {
 		Objs.throwsIfNullOrEmpty("路径不能为空", path);
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("并发数必须大于0！");
+		}
 
-        File f = new File(path);
+		File f = new File(path);
 
-        // 判断要删除的文件是否存在
-        if (!f.exists()) {
+		// 判断要删除的文件是否存在（包括失效的符号链接）
+		if (!f.exists() && !java.nio.file.Files.isSymbolicLink(f.toPath())) {
 			throw new RuntimeException("要删除的文件不存在！");
 		}
 
-        // 记录开始时间
-        long startTime = System.currentTimeMillis();
-
-        // 判断是否为文件/文件夹
-        log(() -> "正在删除 " + f.getName() + " 这个" + (f.isFile() ? "文件" : "文件夹"));
-
-        // 递归删除
-		new Object() {
-			void loop(File f) {
-				// 如果不能直接删除
-				if (!f.delete()){
-					// 递归删除
-					File[] fs = f.listFiles();
-
-					if (fs == null) {
-						throw new RuntimeException("展开文件夹失败！");
-					}
-
-					for (File del : fs) {
-						loop(del);
-					}
-
-					// 删除之前的非空文件夹
-					if (!f.delete()) {
-						throw new RuntimeException("删除失败！");
-					}
-				} else {
-					log(() -> "正在删除：" + f.getAbsolutePath());
-				}
-			}
-		}.loop(f);
+		// 判断是否为文件/文件夹
+		log(() -> "正在删除 " + f.getName() + " 这个" + (f.isFile() ? "文件" : "文件夹"));
+
+		long start = IoMetrics.start();
+		DeleteResult res;
+		try {
+			res = DirDelete.delete(f, parallelism);
+		} catch (RuntimeException e) {
+			IoMetrics.error(IoMetrics.Op.DELETE);
+			throw e;
+		} finally {
+			IoMetrics.call(IoMetrics.Op.DELETE, start);
+		}
 
-        // 统计时间
-        long endTime = System.currentTimeMillis();
+		log(() -> "耗时" + res.nanos() / 1e9 + "秒，已完成：" + res);
+		return res;
+	}
 
-        log(() -> "耗时" + (double)((endTime - startTime) / 1000) + "秒，已完成");
-    }
+	/**
+	 * 删除的结果
+	 * @param files 删除的文件数量
+	 * @param dirs 删除的文件夹数量
+	 * @param bytes 删除的文件总长度
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record DeleteResult(long files, long dirs, long bytes, long nanos) {
+		/**
+		 * 获取每秒删除的文件和文件夹数量
+		 * @return 每秒删除的数量
+		 */
+		public double entriesPerSecond() {
+			return nanos == 0 ? 0 : (files + dirs) * 1e9 / nanos;
+		}
+	}
 
 	/**
 	 * 删除文件或文件夹
@@ -602,89 +1005,138 @@ public class Files
         // 创建目录
         mkdirs(zip.getParentFile());
 
-        // 创建zip输出流
-		ZipOutputStream out = Tries.tryGet(() -> new ZipOutputStream(new FileOutputStream(zip)));
+        // 记录开始时间
+        long startTime = System.nanoTime();
+        long start = IoMetrics.start();
 
-		assert out != null;
+        // 日志信息
+        log(() -> "正在压缩 " + src.getName() + " 这个" + (src.isFile() ? "文件" : "文件夹"));
 
-		// 按照用户需求设置是否为储存模式
+		// 储存模式只读取一遍文件，边写入边计算CRC，最后回填文件头
 		if (storeMode) {
-			out.setMethod(ZipOutputStream.STORED);
+			try {
+				zipStored(src, zip);
+			} finally {
+				IoMetrics.call(IoMetrics.Op.ZIP, start);
+			}
+			long endTime = System.nanoTime();
+			log(() -> "耗时" + (endTime - startTime) / 1e9 + "秒，已完成");
+			return;
 		}
 
-        // 记录开始时间
-        long startTime = System.currentTimeMillis();
+        // 创建zip输出流
+		ZipOutputStream out = Tries.tryGet(() -> new ZipOutputStream(new FileOutputStream(zip)));
 
-        // 日志信息
-        log(() -> "正在压缩 " + src.getName() + " 这个" + (src.isFile() ? "文件" : "文件夹"));
+		assert out != null;
 
 		// 递归创建zip
-		new Object() {
-			void loop(File f, String root) {
-				// 若f是一个文件夹
-				if (f.isDirectory()) {
-					File[] fs = f.listFiles();
-					if (fs == null) {
-						throw new RuntimeException("文件夹展开失败！");
-					}
+		try {
+			new Object() {
+				void loop(File f, String root) {
+					// 若f是一个文件夹
+					if (f.isDirectory()) {
+						File[] fs = f.listFiles();
+						if (fs == null) {
+							throw new RuntimeException("文件夹展开失败！");
+						}
 
-					if (fs.length == 0) {
-						// 创建(放入)此文件夹
-						ZipEntry entry = new ZipEntry(root + "/");
-						if (storeMode) {
-							entry.setCrc(0);
-							entry.setSize(0);
+						if (fs.length == 0) {
+							// 创建(放入)此文件夹
+							ZipEntry entry = new ZipEntry(root + "/");
+							Tries.tryRun(() -> out.putNextEntry(entry));
+						} else {
+							for (File src : fs) {
+								// 即将被复制文件的完整路径(root为根目录)
+								String filePath = root + "/" + src.getName();
+								// 递归创建
+								loop(src, filePath);
+							}
 						}
-						Tries.tryRun(() -> out.putNextEntry(entry));
 					} else {
-						for (File src : fs) {
-							// 即将被复制文件的完整路径(root为根目录)
-							String filePath = root + "/" + src.getName();
-							// 递归创建
-							loop(src, filePath);
+						// 提示信息
+						log(() -> "正在压缩: " + f.getAbsolutePath());
+						long start = IoMetrics.start();
+
+						// 放入上文提到的完整路径，并输出文件到zip流（都成功时才记录文件数和字节数）
+						try {
+							ZipEntry entry = new ZipEntry(root);
+							out.putNextEntry(entry);
+							try (var in = new FileInputStream(f)) {
+								IoMetrics.file(IoMetrics.Op.ZIP, in.transferTo(out), start);
+							}
+						} catch (IOException e) {
+							IoMetrics.error(IoMetrics.Op.ZIP);
+							e.printStackTrace();
 						}
 					}
-				} else {
-					// 提示信息
-					log(() -> "正在压缩: " + f.getAbsolutePath());
-
-					// 放入上文提到的完整路径
-					try {
-						ZipEntry entry = new ZipEntry(root);
-						if (storeMode) {
-							CRC32 crc = new CRC32();
-							var in = new FileInputStream(f);
-							byte[] b = new byte[8192];
-							int i;
-							while ((i = in.read(b)) != -1) {
-								crc.update(b, 0, i);
-							}
-							in.close();
+				}
+			}.loop(src, src.getName());
+		} finally {
+			// 关闭zip输出流
+			Tries.tryRun(out::close);
+			IoMetrics.call(IoMetrics.Op.ZIP, start);
+		}
+
+		long endTime = System.nanoTime();
+		log(() -> "耗时" + (endTime - startTime) / 1e9 + "秒，已完成");
+    }
 
-							entry.setCrc(crc.getValue());
-							entry.setSize(f.length());
+	/**
+	 * 以储存模式压缩文件或文件夹（每个文件只读取一遍）
+	 * @param src 源文件
+	 * @param zip zip文件
+	 */
+	private static void zipStored(File src, File zip) {
+		try (var out = FileChannel.open(zip.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			var writer = new ZipWriter(out);
+			// 所有文件共用一个缓冲区
+			var buff = ByteBuffer.allocate(1024 * 1024);
+
+			new Object() {
+				void loop(File f, String root) throws IOException {
+					if (f.isDirectory()) {
+						File[] fs = f.listFiles();
+						if (fs == null) {
+							throw new RuntimeException("文件夹展开失败！");
 						}
-						out.putNextEntry(entry);
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
 
-					// 输出文件到zip流
-					try (var in = new FileInputStream(f)) {
-						in.transferTo(out);
-					} catch (IOException e) {
-						e.printStackTrace();
+						if (fs.length == 0) {
+							writer.writeDir(root + "/", f.lastModified());
+						} else {
+							for (File src : fs) {
+								loop(src, root + "/" + src.getName());
+							}
+						}
+					} else {
+						log(() -> "正在压缩: " + f.getAbsolutePath());
+
+						long start = IoMetrics.start();
+						// 先写入占位的文件头，边复制边计算CRC
+						writer.beginEntry(root, ZipWriter.STORED, f.lastModified(), f.length());
+						var crc = new CRC32();
+						long size = 0;
+						try (var in = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+							while (in.read(buff) != -1) {
+								buff.flip();
+								crc.update(buff.duplicate());
+								size += buff.remaining();
+								writer.write(buff);
+								buff.clear();
+							}
+						}
+						writer.endEntry(crc.getValue(), size, size);
+						IoMetrics.file(IoMetrics.Op.ZIP, size, start);
 					}
 				}
-			}
-		}.loop(src, src.getName());
+			}.loop(src, src.getName());
 
-        // 关闭zip输出流
-		Tries.tryRun(out::close);
-
-		long endTime = System.currentTimeMillis();
-		log(() -> "耗时" + (double) ((endTime - startTime) / 1000) + "秒，已完成");
-    }
+			writer.finish();
+		} catch (IOException e) {
+			IoMetrics.error(IoMetrics.Op.ZIP);
+			throw new RuntimeException(e);
+		}
+	}
 
 	/**
 	 * 在本目录下创建压缩文件
@@ -739,6 +1191,114 @@ public class Files
 	 */
 	public static void zip(File src) { zip(src, null, null); }
 
+	/**
+	 * 多线程压缩文件或文件夹 <br>
+	 * 大文件按块并行压缩，压缩率和单线程接近，生成的zip文件是标准格式，条目按路径名称顺序写入
+	 * @param srcPath 源路径
+	 * @param zipPath zip路径（可为空，默认是源路径）
+	 * @param threads 线程数（小于等于0时为CPU核心数）
+	 * @param level 压缩级别（0-9，-1为默认级别）
+	 * @return 统计结果
+	 * @apiNote <pre>{@code
+	 * // 用8个线程将a文件夹压缩为/path/to/a.zip，使用默认压缩级别
+	 * IoStats stats = Files.zip("/path/to/a", null, 8, -1);
+	 *
+	 * // 用所有CPU核心将a文件夹最快速地压缩为/path/to/b/a.zip
+	 * Files.zip("/path/to/a", "/path/to/b/a.zip", 0, 1);
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static IoStats zip(String srcPath, String zipPath, int threads, int level) {
+		Objs.throwsIfNullOrEmpty("源路径不能为空", srcPath);
+
+		var src = new File(srcPath);
+		if (!src.exists()) {
+			throw new RuntimeException("源文件不存在");
+		}
+
+		// zipPath默认是源路径
+		var zip = new File(zipPath != null ? zipPath : src.getParent() + "/" + src.getName() + ".zip");
+		mkdirs(zip.getParentFile());
+
+		int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		log(() -> "正在用" + n + "个线程压缩 " + src.getName() + " 这个" + (src.isFile() ? "文件" : "文件夹"));
+
+		long start = IoMetrics.start();
+		IoStats stats;
+		try {
+			stats = ParallelZip.zip(src, zip, n, level);
+			IoMetrics.add(IoMetrics.Op.ZIP, stats.files(), stats.bytes());
+		} finally {
+			IoMetrics.call(IoMetrics.Op.ZIP, start);
+		}
+		log(() -> "耗时" + stats.seconds() + "秒，已完成");
+		return stats;
+	}
+
+	/**
+	 * 把一批文件和文件夹压缩后直接写入输出通道（不生成临时文件，不关闭输出通道） <br>
+	 * 路径按需读取，一边遍历一边压缩写出；条目名称是相对于根文件夹的路径，文件夹路径会生成文件夹条目 <br>
+	 * 输出通道不可定位时，多块的条目在数据后写入数据描述符，仍然是标准zip格式
+	 * @param paths 路径来源（按需读取）
+	 * @param baseDir 根文件夹
+	 * @param out 输出通道
+	 * @param threads 线程数（小于等于0时为CPU核心数）
+	 * @param level 压缩级别（0-9，-1为默认级别）
+	 * @return 统计结果
+	 * @apiNote <pre>{@code
+	 * // 把a文件夹中的所有文件压缩后写入网络通道，条目名称形如a/b.txt
+	 * var it = List.of(Path.of("/path/to/a/b.txt"), Path.of("/path/to/a/c.txt")).iterator();
+	 * Files.zip(it, "/path/to", socketChannel, 4, -1);
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static IoStats zip(Iterator<java.nio.file.Path> paths, String baseDir, WritableByteChannel out,
+							  int threads, int level) {
+		Objs.throwsIfNullOrEmpty("根文件夹不能为空", baseDir);
+		int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return ParallelZip.zip(paths, java.nio.file.Path.of(baseDir), out, n, level);
+	}
+
+	/**
+	 * 把一批文件和文件夹压缩后直接写入输出通道（不生成临时文件，不关闭输出通道和路径流）
+	 * @param paths 路径流（按需读取）
+	 * @param baseDir 根文件夹
+	 * @param out 输出通道
+	 * @param threads 线程数（小于等于0时为CPU核心数）
+	 * @param level 压缩级别（0-9，-1为默认级别）
+	 * @return 统计结果
+	 * @see #zip(Iterator, String, WritableByteChannel, int, int)
+	 * @since 4.0
+	 */
+	public static IoStats zip(Stream<java.nio.file.Path> paths, String baseDir, WritableByteChannel out,
+							  int threads, int level) {
+		return zip(paths.iterator(), baseDir, out, threads, level);
+	}
+
+	/**
+	 * 把一批文件和文件夹压缩后直接写入输出流（不生成临时文件，不关闭输出流和路径流）
+	 * @param paths 路径流（按需读取）
+	 * @param baseDir 根文件夹
+	 * @param out 输出流
+	 * @param threads 线程数（小于等于0时为CPU核心数）
+	 * @param level 压缩级别（0-9，-1为默认级别）
+	 * @return 统计结果
+	 * @apiNote <pre>{@code
+	 * // 一边遍历a文件夹一边压缩，直接写入HTTP响应
+	 * try (var paths = java.nio.file.Files.walk(Path.of("/path/to/a"))) {
+	 *     Files.zip(paths, "/path/to", response.getOutputStream(), 0, -1);
+	 * }
+	 * }</pre>
+	 * @see #zip(Iterator, String, WritableByteChannel, int, int)
+	 * @since 4.0
+	 */
+	public static IoStats zip(Stream<java.nio.file.Path> paths, String baseDir, OutputStream out,
+							  int threads, int level) {
+		var stats = zip(paths.iterator(), baseDir, Channels.newChannel(out), threads, level);
+		Tries.tryRun(out::flush);
+		return stats;
+	}
+
 	/**
 	 * 解压文件
 	 * @param zipPath zip路径
@@ -778,7 +1338,8 @@ public class Files
         var pool = Executors.newFixedThreadPool(MAX_OPERATING_AMOUNT);
 
         // 记录开始时间
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
+        long start = IoMetrics.start();
 
         // 日志信息
         log(() -> "正在解压 " + src.getName() + " 这个压缩文件");
@@ -798,7 +1359,11 @@ public class Files
             } else {
 				mkdirs(des.getParentFile());
 				// 多线程
+				IoMetrics.enqueue(IoMetrics.Op.UNZIP);
                 pool.execute(() -> {
+					IoMetrics.dequeue(IoMetrics.Op.UNZIP);
+					long fileStart = IoMetrics.start();
+
 					// 日志信息
 					log(() -> "正在解压: " + entry.getName());
 
@@ -807,8 +1372,9 @@ public class Files
 
 					try (var in = zip.getInputStream(entry);
 						 var out = new FileOutputStream(des)) {
-						in.transferTo(out);
+						IoMetrics.file(IoMetrics.Op.UNZIP, in.transferTo(out), fileStart);
 					} catch (Exception e) {
+						IoMetrics.error(IoMetrics.Op.UNZIP);
 						e.printStackTrace();
 					}
 				});
@@ -821,9 +1387,10 @@ public class Files
 
         //关闭流
 		Tries.tryRun(zip::close);
+		IoMetrics.call(IoMetrics.Op.UNZIP, start);
 
-		long endTime = System.currentTimeMillis();
-		log(() -> "耗时" + (double) ((endTime - startTime) / 1000) + "秒，已完成");
+		long endTime = System.nanoTime();
+		log(() -> "耗时" + (endTime - startTime) / 1e9 + "秒，已完成");
     }
 
 	/**
@@ -878,6 +1445,7 @@ public class Files
 	 */
 	public static String read(String path,
 							  @DefaultArg(value = "UTF-8", transferClass = StringToCharset.class) Charset cs) {
+		// 读入按文件长度分配的数组后直接解码，不保留内存映射
 		return new String(readToBytes(path), cs);
 	}
 
@@ -922,26 +1490,58 @@ public class Files
 	 * }</pre>
 	 */
 	public static byte[] readToBytes(String path) {
-		var src = new File(path);
-
-		// 文件必须存在
-		if (!src.exists()) {
-			throw new RuntimeException("文件不存在");
+		long start = IoMetrics.start();
+		try {
+			var bs = readToBytes0(new File(path));
+			IoMetrics.file(IoMetrics.Op.READ, bs.length, start);
+			return bs;
+		} catch (RuntimeException e) {
+			IoMetrics.error(IoMetrics.Op.READ);
+			throw e;
+		} finally {
+			IoMetrics.call(IoMetrics.Op.READ, start);
 		}
+	}
 
-		// 只能读取文件
-		if (src.isDirectory()) {
-			throw new RuntimeException("只能读取文件！");
-		}
+	/**
+	 * 读取文件到byte数组
+	 * @param src 源文件
+	 * @return 结果数组
+	 */
+	private static byte[] readToBytes0(File src) {
+		// 按文件长度一次分配数组，不需要先判断文件是否存在（出错时再判断原因）
+		try (var in = FileChannel.open(src.toPath(), StandardOpenOption.READ)) {
+			long size = in.size();
+			if (size > MAX_ARRAY_SIZE) {
+				throw new RuntimeException("文件超过2GB，无法读取到byte数组，请使用mapSegments方法");
+			}
 
-		var out = new ByteArrayOutputStream();
-		try (var in = new FileInputStream(src)) {
-			in.transferTo(out);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+			var bs = new byte[(int) size];
+			var buff = ByteBuffer.wrap(bs);
+			while (buff.hasRemaining() && in.read(buff) > 0) {}
 
-		return out.toByteArray();
+			// 文件变短了
+			if (buff.hasRemaining()) {
+				return Arrays.copyOf(bs, buff.position());
+			}
+
+			// 文件长度不准确（例如/proc中的文件）或者变长了，继续读取剩余部分
+			var rest = Channels.newInputStream(in).readAllBytes();
+			if (rest.length == 0) {
+				return bs;
+			}
+			var res = Arrays.copyOf(bs, bs.length + rest.length);
+			System.arraycopy(rest, 0, res, bs.length, rest.length);
+			return res;
+		} catch (NoSuchFileException e) {
+			throw new RuntimeException("文件不存在");
+		} catch (IOException e) {
+			// 只能读取文件
+			if (src.isDirectory()) {
+				throw new RuntimeException("只能读取文件！");
+			}
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
@@ -954,6 +1554,69 @@ public class Files
 		return readToBytes(src.getAbsolutePath());
 	}
 
+	/**
+	 * 以只读方式将文件映射到内存（不复制文件内容，适合随机访问或者只读取一部分的大文件）
+	 * @param path 文件路径
+	 * @return 只读的内存映射缓冲区
+	 * @apiNote <pre>{@code
+	 * // 映射a.db，读取第100个字节开始的int
+	 * MappedByteBuffer buff = Files.map("./a.db");
+	 * int x = buff.getInt(100);
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static MappedByteBuffer map(String path) {
+		var segments = mapSegments(path, MAX_ARRAY_SIZE);
+		if (segments.size() > 1) {
+			throw new RuntimeException("文件超过2GB，无法映射到一个缓冲区，请使用mapSegments方法");
+		}
+		return segments.get(0);
+	}
+
+	/**
+	 * 以只读方式将文件按段映射到内存（每段1GB，最后一段可能更短，空文件返回一个空的段）
+	 * @param path 文件路径
+	 * @return 按顺序排列的只读内存映射缓冲区
+	 * @apiNote <pre>{@code
+	 * // 映射超过2GB的a.db，依次处理每一段
+	 * for (MappedByteBuffer buff : Files.mapSegments("./a.db")) {
+	 *     process(buff);
+	 * }
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static List<MappedByteBuffer> mapSegments(String path) {
+		return mapSegments(path, MAP_SEGMENT_SIZE);
+	}
+
+	/**
+	 * 以只读方式将文件按段映射到内存
+	 * @param path 文件路径
+	 * @param segmentSize 每段的大小
+	 * @return 按顺序排列的只读内存映射缓冲区
+	 */
+	private static List<MappedByteBuffer> mapSegments(String path, long segmentSize) {
+		Objs.throwsIfNullOrEmpty("文件路径不能为空", path);
+
+		var src = new File(path);
+		try (var in = FileChannel.open(src.toPath(), StandardOpenOption.READ)) {
+			long size = in.size();
+			var res = new ArrayList<MappedByteBuffer>();
+			// 映射在通道关闭后仍然有效
+			for (long pos = 0; pos < size || res.isEmpty(); pos += segmentSize) {
+				res.add(in.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(segmentSize, size - pos)));
+			}
+			return res;
+		} catch (NoSuchFileException e) {
+			throw new RuntimeException("文件不存在");
+		} catch (IOException e) {
+			if (src.isDirectory()) {
+				throw new RuntimeException("只能映射文件！");
+			}
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * 列出一个目录的一级文件/文件夹
 	 * @param path 文件夹路径
@@ -995,7 +1658,9 @@ public class Files
 	}
 
 	/**
-	 * 读取文件中的所有行到字符串流
+	 * 读取文件中的所有行到字符串流 <br>
+	 * 按需读取和解码，内存占用只和最长的一行有关；读到末尾或者关闭流时关闭文件 <br>
+	 * 大文件（兼容ASCII的编码）按行对齐的区间拆分，可以使用parallel()多线程处理，默认保持行的顺序
 	 * @param path 文件路径
 	 * @param cs 文件编码
 	 * @return 所有行集合
@@ -1007,13 +1672,41 @@ public class Files
 	 * // 获取a.txt所有行到Stream（使用GBK编码）并打印
 	 * Files.lines("./a.txt", Charset.forName("GBK"))
 	 *      .forEach(System.out::println);
+	 *
+	 * // 只读取大文件的前10行，提前关闭文件
+	 * try (var lines = Files.lines("./big.log", null)) {
+	 *     lines.limit(10).forEach(System.out::println);
+	 * }
+	 *
+	 * // 多线程统计大文件中包含ERROR的行数
+	 * try (var lines = Files.lines("./big.log", null)) {
+	 *     long count = lines.parallel().filter(s -> s.contains("ERROR")).count();
+	 * }
 	 * }</pre>
 	 * @since 1.8
 	 */
 	public static Stream<String> lines(String path,
 									   @DefaultArg(value = "UTF-8", transferClass = StringToCharset.class) Charset cs) {
-		var content = read(path, cs);
-		return Arrays.stream(content.split("\n"));
+		var src = new File(path);
+
+		// 文件必须存在
+		if (!src.exists()) {
+			throw new RuntimeException("文件不存在");
+		}
+
+		// 只能读取文件
+		if (src.isDirectory()) {
+			throw new RuntimeException("只能读取文件！");
+		}
+
+		// 较大的文件使用可拆分的行迭代器，parallel()时可以利用多个核心
+		if (src.length() >= LineSpliterator.MIN_SIZE && LineSpliterator.supports(cs)) {
+			return LineSpliterator.lines(src, cs);
+		}
+
+		var reader = new LineReader(src, cs);
+		var spliterator = Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(reader::close);
 	}
 
 	/**
@@ -1071,12 +1764,16 @@ public class Files
 		// 创建父目录
 		mkdirs(des.getParentFile());
 
+		long start = IoMetrics.start();
 		try (var out = new FileOutputStream(des, appendMode)) {
 			out.write(bs);
 			out.flush();
+			IoMetrics.file(IoMetrics.Op.OUT, bs.length, start);
 		} catch (IOException e) {
+			IoMetrics.error(IoMetrics.Op.OUT);
 			e.printStackTrace();
 		}
+		IoMetrics.call(IoMetrics.Op.OUT, start);
 	}
 
 	/**
@@ -1203,11 +1900,14 @@ public class Files
 
 		mkdirs(new File(path).getParentFile());
 
+		long start = IoMetrics.start();
 		try (in; var out = new FileOutputStream(path, appendMode)) {
-			in.transferTo(out);
+			IoMetrics.file(IoMetrics.Op.OUT, in.transferTo(out), start);
 		} catch (Exception e) {
+			IoMetrics.error(IoMetrics.Op.OUT);
 			e.printStackTrace();
 		}
+		IoMetrics.call(IoMetrics.Op.OUT, start);
 	}
 
 	/**
@@ -1221,6 +1921,24 @@ public class Files
 		out(in, des.getAbsolutePath(), appendMode);
 	}
 
+	/**
+	 * 打开文件的追加写入器（UTF-8编码，不主动刷盘） <br>
+	 * 适合多个线程频繁追加的场景，记录在后台线程中成批写入，不会每次都打开关闭文件
+	 * @param path 文件路径
+	 * @return 追加写入器（使用完毕后必须关闭）
+	 * @apiNote <pre>{@code
+	 * // 多个线程向a.log追加记录
+	 * try (var appender = Files.appender("/path/to/a.log")) {
+	 *     appender.append("第一条记录\n");
+	 * }
+	 * }</pre>
+	 * @see FileAppender
+	 * @since 4.0
+	 */
+	public static FileAppender appender(String path) {
+		return FileAppender.builder().open(path);
+	}
+
 
 	// endregion
 
@@ -1498,34 +2216,8 @@ public class Files
 				return new FileInfo(1L, 0L, getLength(path));
 			}
 
-			// 文件夹临时列表
-			var tempDirList = new ArrayList<>(List.of(new File(path)));
-
-			// 文件数量，文件夹数量和文件总长度
-			long fileCount = 0, dirCount = 0, totalLength = 0;
-
-			// 不断遍历文件夹临时列表
-			while (!tempDirList.isEmpty()){
-				var dir = tempDirList.remove(0);
-
-				var list = dir.listFiles();
-				if (list == null) {
-					// 打印错误信息
-					System.err.println("展开文件夹失败：" + dir.getAbsolutePath());
-					continue;
-				}
-
-				for (var f : list) {
-					if (f.isDirectory()){
-						dirCount++;
-						tempDirList.add(f);
-					} else {
-						fileCount++;
-						totalLength += f.length();
-					}
-				}
-			}
-			return new FileInfo(fileCount, dirCount, totalLength);
+			// 文件夹按子文件夹并行统计
+			return DirStats.of(new File(path));
 		}
 	}
 
@@ -1593,7 +2285,7 @@ public class Files
 	 * String res = Files.lengthFormatter(2048);
 	 * }</pre>
 	 */
-	private static String lengthFormatter(long length) {
+	static String lengthFormatter(long length) {
 		long B = 1, KB = B * 1024, MB = KB * 1024,
 				GB = MB * 1024, TB = GB * 1024,
 				PB = TB * 1024, EB = PB * 1024;
@@ -1645,87 +2337,130 @@ public class Files
 	}
 
 	/**
-	 * 获取文件的编码字符集
+	 * 获取文件的编码字符集（没有bom时采样识别，见{@link #detectEncoding(String, int, int)}）
 	 * @param path 文件路径
 	 * @return 编码字符集
 	 * @apiNote <pre>{@code
 	 * // 获取a.txt的编码字符集
 	 * Charset c = Files.getEncoding("./a.txt").orElseThrow();
 	 * }</pre>
-	 * @since 2.7
+	 * @since 2.7
+	 */
+	public static Optional<Charset> getEncoding(String path) {
+		Objs.throwsIfNullOrEmpty("文件路径不能为空！", path);
+		var f = new File(path);
+
+		if (!f.exists()) {
+			throw new RuntimeException("文件不存在！");
+		}
+
+		if (f.isDirectory()) {
+			throw new RuntimeException("非法参数：传入文件夹路径");
+		}
+
+		var res = EncodingDetector.detect(f, EncodingDetector.DEFAULT_SAMPLE_BYTES, EncodingDetector.DEFAULT_WINDOWS);
+		return Optional.ofNullable(res.charset());
+	}
+
+	/**
+	 * 获取文件的编码字符集
+	 * @param f 文件对象
+	 * @return 编码字符集
+	 * @since 2.7
+	 * @see #getEncoding(String)
+	 */
+	public static Optional<Charset> getEncoding(File f) {
+		Objs.throwsIfNullOrEmpty(f);
+		return getEncoding(f.getAbsolutePath());
+	}
+
+	/**
+	 * 识别文件编码，只读取文件的采样窗口，不把整个文件读入内存 <br>
+	 * 1. 有bom时直接根据bom识别 <br>
+	 * 2. 文件不大于采样字节数时读取整个文件，否则在文件开头和均匀分布的位置读取多个窗口 <br>
+	 * 3. 同时校验UTF-8和GBK的字节序列，两种编码都不合法时提前结束，优先识别为UTF-8
+	 * @param path 文件路径
+	 * @param sampleBytes 采样字节数
+	 * @param windows 采样窗口数量（1代表只读取文件开头）
+	 * @return 识别结果
+	 * @apiNote <pre>{@code
+	 * // 只读取a.log开头的64KB识别编码
+	 * var res = Files.detectEncoding("./a.log", 64 * 1024, 1);
+	 * // 识别的编码（无法识别时为null）和置信度
+	 * Charset c = res.charset();
+	 * double confidence = res.confidence();
+	 * }</pre>
+	 * @since 4.0
 	 */
-	public static Optional<Charset> getEncoding(String path) {
+	public static EncodingResult detectEncoding(String path, int sampleBytes, int windows) {
 		Objs.throwsIfNullOrEmpty("文件路径不能为空！", path);
-		var f = new File(path);
-
-		if (!f.exists()) {
-			throw new RuntimeException("文件不存在！");
+		if (windows <= 0 || sampleBytes < windows) {
+			throw new IllegalArgumentException("采样窗口数量必须大于0，并且不能大于采样字节数！");
 		}
 
-		if (f.isDirectory()) {
-			throw new RuntimeException("非法参数：传入文件夹路径");
+		var f = new File(path);
+		if (!f.isFile()) {
+			throw new RuntimeException("文件不存在或者不是文件！");
 		}
 
-		// 找到的文件编码
-		Charset encoding;
-
-		// 判断有bom的文件
-		try (var in = new FileInputStream(f)) {
-			// 获取文件前两个字节（bom）
-			var bom = (in.read() << 8) + in.read();
+		return EncodingDetector.detect(f, sampleBytes, windows);
+	}
 
-			encoding = switch (bom) {
-				case 0xefbb -> StandardCharsets.UTF_8;
-				case 0xfeff -> StandardCharsets.UTF_16BE;
-				case 0xfffe -> StandardCharsets.UTF_16LE;
-				default -> null;
-			};
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+	/**
+	 * 并行识别文件夹中所有文件的编码（包括子文件夹，不跟随符号链接）
+	 * @param dirPath 文件夹路径
+	 * @param sampleBytes 每个文件的采样字节数
+	 * @param windows 每个文件的采样窗口数量
+	 * @param parallelism 并发数
+	 * @return 每个文件的识别结果（按路径排序）
+	 * @apiNote <pre>{@code
+	 * // 找出src文件夹中所有不是UTF-8编码的文件
+	 * Files.detectEncodings("/path/to/src", 64 * 1024, 1, 8).forEach((f, res) -> {
+	 *     if (!StandardCharsets.UTF_8.equals(res.charset())) {
+	 *         System.out.println(f + ": " + res.charset());
+	 *     }
+	 * });
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static Map<File, EncodingResult> detectEncodings(String dirPath, int sampleBytes, int windows, int parallelism) {
+		Objs.throwsIfNullOrEmpty("文件夹路径不能为空！", dirPath);
+		if (windows <= 0 || sampleBytes < windows) {
+			throw new IllegalArgumentException("采样窗口数量必须大于0，并且不能大于采样字节数！");
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("并发数必须大于0！");
 		}
 
-		// 判断无bom的文件
-		if (encoding == null) {
-			var bytes = readToBytes(f);
-			// 尝试用utf-8解码为字符串并编码为gbk字节数组
-			var utf8Read2GbkBytes = new String(bytes, StandardCharsets.UTF_8)
-					.getBytes(Charset.forName("GBK"));
-
-			// 尝试使用gbk解码为字符串并编码回utf-8字节数组
-			var desGbkRead2Utf8Bytes = new String(utf8Read2GbkBytes, Charset.forName("GBK"))
-					.getBytes(StandardCharsets.UTF_8);
-
-			// 尝试用gbk解码为字符串并编码为utf-8字节数组
-			var gbkRead2Utf8Bytes = new String(bytes, Charset.forName("GBK"))
-					.getBytes(StandardCharsets.UTF_8);
-
-			// 尝试使用utf-8解码为字符串并编码回gbk字节数组
-			var desUtf8ReadGbkBytes = new String(gbkRead2Utf8Bytes, StandardCharsets.UTF_8)
-					.getBytes(Charset.forName("GBK"));
-
-			// 如果经过中间转换后仍和原bytes相同，就找到了字符集
-			if (Arrays.equals(bytes, desGbkRead2Utf8Bytes)) {
-				encoding = StandardCharsets.UTF_8;
-			} else if (Arrays.equals(bytes, desUtf8ReadGbkBytes)) {
-				encoding = Charset.forName("GBK");
-			}
+		var dir = new File(dirPath);
+		if (!dir.isDirectory()) {
+			throw new RuntimeException("文件夹不存在或者不是文件夹！");
 		}
 
-		return Optional.ofNullable(encoding);
+		return EncodingDetector.detectAll(dir, sampleBytes, windows, parallelism);
 	}
 
 	/**
-	 * 获取文件的编码字符集
-	 * @param f 文件对象
-	 * @return 编码字符集
-	 * @since 2.7
-	 * @see #getEncoding(String)
+	 * 并行识别文件夹中所有文件的编码（使用默认的采样字节数和并发数）
+	 * @param dirPath 文件夹路径
+	 * @return 每个文件的识别结果（按路径排序）
+	 * @since 4.0
+	 * @see #detectEncodings(String, int, int, int)
 	 */
-	public static Optional<Charset> getEncoding(File f) {
-		Objs.throwsIfNullOrEmpty(f);
-		return getEncoding(f.getAbsolutePath());
+	public static Map<File, EncodingResult> detectEncodings(String dirPath) {
+		return detectEncodings(dirPath, EncodingDetector.DEFAULT_SAMPLE_BYTES, EncodingDetector.DEFAULT_WINDOWS,
+				CopyEngine.detectParallelism(dirPath));
 	}
 
+	/**
+	 * 编码识别结果
+	 * @param charset 识别的编码（无法识别时为null）
+	 * @param confidence 置信度（0 ~ 1，有bom时为1，只有ASCII字符时为0.5）
+	 * @param sampledBytes 实际读取的字节数
+	 * @since 4.0
+	 */
+	public record EncodingResult(Charset charset, double confidence, long sampledBytes) {}
+
 	/**
 	 * 设置文件编码（自动识别原编码）
 	 * @param path 源文件路径
@@ -1754,7 +2489,8 @@ public class Files
 	}
 
 	/**
-	 * 设置文件编码
+	 * 设置文件编码 <br>
+	 * 使用固定大小的缓冲区流式转换，结果先写入临时文件，完成后原子替换源文件
 	 * @param path 源文件路径
 	 * @param oldCharset 旧编码
 	 * @param newCharset 新编码
@@ -1770,9 +2506,11 @@ public class Files
 		}
 
 		var src = new File(path);
-		byte[] srcBytes = readToBytes(src);
-		byte[] bs = new String(srcBytes, oldCharset).getBytes(newCharset);
-		out(bs, src);
+		if (!src.isFile()) {
+			throw new RuntimeException("文件不存在或者不是文件！");
+		}
+
+		Transcoder.transcode(src.toPath(), oldCharset, newCharset);
 	}
 
 	/**
@@ -1786,6 +2524,76 @@ public class Files
 		setEncoding(src.getAbsolutePath(), oldCharset, newCharset);
 	}
 
+	/**
+	 * 并行设置文件夹中所有文件的编码（包括子文件夹，不跟随符号链接）
+	 * @param dirPath 文件夹路径
+	 * @param oldCharset 旧编码
+	 * @param newCharset 新编码
+	 * @param parallelism 并发数
+	 * @return 转换结果
+	 * @apiNote <pre>{@code
+	 * // 使用8个线程将logs文件夹中所有GBK编码的日志转换为UTF-8编码
+	 * var res = Files.setEncodings("/path/to/logs", Charset.forName("GBK"), StandardCharsets.UTF_8, 8);
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static TranscodeResult setEncodings(String dirPath, Charset oldCharset, Charset newCharset, int parallelism) {
+		Objs.throwsIfNullOrEmpty("文件夹路径和编码不能为空！", dirPath, oldCharset, newCharset);
+		return setEncodings0(dirPath, oldCharset, newCharset, parallelism);
+	}
+
+	/**
+	 * 并行设置文件夹中所有文件的编码（自动识别每个文件的原编码，无法识别的文件会被跳过）
+	 * @param dirPath 文件夹路径
+	 * @param newCharset 新编码
+	 * @param parallelism 并发数
+	 * @return 转换结果
+	 * @apiNote <pre>{@code
+	 * // 将src文件夹中所有文本文件转换为UTF-8编码
+	 * var res = Files.setEncodings("/path/to/src", StandardCharsets.UTF_8, 8);
+	 * // 转换的文件数量和跳过的文件数量
+	 * long converted = res.converted(), skipped = res.skipped();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static TranscodeResult setEncodings(String dirPath, Charset newCharset, int parallelism) {
+		Objs.throwsIfNullOrEmpty("文件夹路径和编码不能为空！", dirPath, newCharset);
+		return setEncodings0(dirPath, null, newCharset, parallelism);
+	}
+
+	/**
+	 * 并行设置文件夹中所有文件的编码
+	 * @param dirPath 文件夹路径
+	 * @param oldCharset 旧编码（为null时自动识别）
+	 * @param newCharset 新编码
+	 * @param parallelism 并发数
+	 * @return 转换结果
+	 */
+	private static TranscodeResult setEncodings0(String dirPath, Charset oldCharset, Charset newCharset, int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("并发数必须大于0！");
+		}
+
+		var dir = new File(dirPath);
+		if (!dir.isDirectory()) {
+			throw new RuntimeException("文件夹不存在或者不是文件夹！");
+		}
+
+		var res = Transcoder.transcodeAll(dir, oldCharset, newCharset, parallelism);
+		log(() -> "耗时" + res.nanos() / 1e9 + "秒，已完成：" + res);
+		return res;
+	}
+
+	/**
+	 * 转换文件夹编码的结果
+	 * @param converted 转换的文件数量
+	 * @param skipped 跳过的文件数量（无法识别编码或者已经是新编码）
+	 * @param bytes 转换的源文件总长度
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record TranscodeResult(long converted, long skipped, long bytes, long nanos) {}
+
 	/**
 	 * 按时间重命名（升序）
 	 * @param dirPath 搜索文件夹路径
@@ -1821,6 +2629,198 @@ public class Files
 		renameByTime(dir.getAbsolutePath(), suffix);
 	}
 
+	/**
+	 * 计算文件或文件夹的摘要 <br>
+	 * 1. 文件通过内存映射读取，长度达到树形摘要阈值的文件按块并行计算树形摘要 <br>
+	 * 2. 文件夹计算Merkle摘要（子项按名称排序，包含类型，名称和摘要），子文件夹并行计算，内容和名称都相同的文件夹摘要相同 <br>
+	 * 3. 指定缓存时，长度和修改时间都没有变化的文件直接使用缓存的摘要 <br>
+	 * 路径本身是符号链接时计算链接目标的摘要，文件夹中的符号链接不跟随（摘要是链接目标路径的摘要）
+	 * @param path 文件/文件夹路径
+	 * @param options 摘要选项
+	 * @return 摘要
+	 * @apiNote <pre>{@code
+	 * // 计算build文件夹的摘要，超过256MB的文件按16MB的块并行计算，重复计算时使用缓存
+	 * var cache = new HashCache();
+	 * var options = Files.HashOptions.builder()
+	 *         .algorithm("SHA-256")
+	 *         .treeThreshold(256 * 1024 * 1024)
+	 *         .cache(cache)
+	 *         .build();
+	 * byte[] digest = Files.hash("/path/to/build", options);
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static byte[] hash(String path, HashOptions options) {
+		Objs.throwsIfNullOrEmpty("路径和摘要选项不能为空！", path, options);
+
+		var f = new File(path);
+		if (!f.exists()) {
+			throw new RuntimeException("路径不存在：" + path);
+		}
+
+		return Hasher.hash(f.toPath(), options);
+	}
+
+	/**
+	 * 计算文件或文件夹的摘要（文件的摘要和普通的摘要工具相同）
+	 * @param path 文件/文件夹路径
+	 * @param algorithm 摘要算法（比如MD5，SHA-256）
+	 * @return 摘要
+	 * @apiNote <pre>{@code
+	 * // 计算a.jar的SHA-256摘要
+	 * byte[] digest = Files.hash("/path/to/a.jar", "SHA-256");
+	 * }</pre>
+	 * @see #hash(String, HashOptions)
+	 * @since 4.0
+	 */
+	public static byte[] hash(String path, String algorithm) {
+		return hash(path, HashOptions.builder().algorithm(algorithm).build());
+	}
+
+	/**
+	 * 计算文件或文件夹的摘要，返回小写的十六进制字符串
+	 * @param path 文件/文件夹路径
+	 * @param algorithm 摘要算法（比如MD5，SHA-256）
+	 * @return 十六进制摘要
+	 * @apiNote <pre>{@code
+	 * // 计算a.jar的SHA-256摘要，和sha256sum的结果相同
+	 * String digest = Files.hashHex("/path/to/a.jar", "SHA-256");
+	 * }</pre>
+	 * @see #hash(String, String)
+	 * @since 4.0
+	 */
+	public static String hashHex(String path, String algorithm) {
+		return HexFormat.of().formatHex(hash(path, algorithm));
+	}
+
+	/**
+	 * 摘要选项
+	 * @param algorithm 摘要算法
+	 * @param treeThreshold 使用树形摘要的最小文件长度（Long.MAX_VALUE代表不使用）
+	 * @param chunkSize 树形摘要每块的大小
+	 * @param parallelism 并行计算的线程数
+	 * @param cache 文件摘要的缓存（为null时不缓存）
+	 * @since 4.0
+	 */
+	public record HashOptions(String algorithm, long treeThreshold, int chunkSize, int parallelism, HashCache cache) {
+		/**
+		 * 创建摘要选项（检查摘要算法，块大小和线程数）
+		 */
+		public HashOptions {
+			Objs.throwsIfNullOrEmpty("摘要算法不能为空！", algorithm);
+			try {
+				MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalArgumentException("不支持的摘要算法：" + algorithm);
+			}
+			if (treeThreshold <= 0 || chunkSize <= 0) {
+				throw new IllegalArgumentException("树形摘要阈值和块大小必须大于0！");
+			}
+			if (parallelism <= 0) {
+				throw new IllegalArgumentException("线程数必须大于0！");
+			}
+		}
+
+		/**
+		 * 获取摘要选项的构造器
+		 * @return 摘要选项的构造器
+		 */
+		public static Builder builder() {
+			return new Builder();
+		}
+
+		/**
+		 * 摘要选项的构造器
+		 */
+		public static class Builder {
+			/**
+			 * 摘要算法
+			 */
+			private String algorithm = "SHA-256";
+
+			/**
+			 * 使用树形摘要的最小文件长度
+			 */
+			private long treeThreshold = Long.MAX_VALUE;
+
+			/**
+			 * 树形摘要每块的大小
+			 */
+			private int chunkSize = 16 * 1024 * 1024;
+
+			/**
+			 * 并行计算的线程数
+			 */
+			private int parallelism = Runtime.getRuntime().availableProcessors();
+
+			/**
+			 * 文件摘要的缓存
+			 */
+			private HashCache cache;
+
+			private Builder() {}
+
+			/**
+			 * 指定摘要算法（默认SHA-256）
+			 * @param algorithm 摘要算法
+			 * @return 构造器本身
+			 */
+			public Builder algorithm(String algorithm) {
+				this.algorithm = algorithm;
+				return this;
+			}
+
+			/**
+			 * 指定使用树形摘要的最小文件长度（默认不使用） <br>
+			 * 达到这个长度的文件按块并行计算摘要，结果和普通的摘要工具不同
+			 * @param treeThreshold 最小文件长度
+			 * @return 构造器本身
+			 */
+			public Builder treeThreshold(long treeThreshold) {
+				this.treeThreshold = treeThreshold;
+				return this;
+			}
+
+			/**
+			 * 指定树形摘要每块的大小（默认16MB）
+			 * @param chunkSize 块大小
+			 * @return 构造器本身
+			 */
+			public Builder chunkSize(int chunkSize) {
+				this.chunkSize = chunkSize;
+				return this;
+			}
+
+			/**
+			 * 指定并行计算的线程数（默认是CPU核数）
+			 * @param parallelism 线程数
+			 * @return 构造器本身
+			 */
+			public Builder parallelism(int parallelism) {
+				this.parallelism = parallelism;
+				return this;
+			}
+
+			/**
+			 * 指定文件摘要的缓存（默认不缓存）
+			 * @param cache 缓存
+			 * @return 构造器本身
+			 */
+			public Builder cache(HashCache cache) {
+				this.cache = cache;
+				return this;
+			}
+
+			/**
+			 * 构造摘要选项
+			 * @return 摘要选项
+			 */
+			public HashOptions build() {
+				return new HashOptions(algorithm, treeThreshold, chunkSize, parallelism, cache);
+			}
+		}
+	}
+
 	// endregion
 
 	// region find
@@ -1845,6 +2845,7 @@ public class Files
 	 * // 获取文件夹列表
 	 * var dirs = findResult.dirs();
 	 * }</pre>
+	 * @see #find(String, int, Predicate, BiPredicate)
 	 */
 	public static FindResult findAll(String dirPath, FileFilter filter) {
 		File src = new File(dirPath);
@@ -1963,16 +2964,134 @@ public class Files
 	}
 
 	/**
-	 * 搜索单个文件
+	 * 惰性搜索路径下符合要求的文件和文件夹（不包含搜索的文件夹本身） <br>
+	 * 1. 只有在需要下一个结果时才展开下一个文件夹，findFirst和limit等操作可以提前结束搜索 <br>
+	 * 2. 调用parallel()后多个线程并行搜索不同的子文件夹 <br>
+	 * 3. 名称过滤器在读取属性之前判断，名称不符合的条目只有在需要继续向下搜索时才读取属性 <br>
+	 * 不跟随符号链接，无法展开的文件夹会被跳过
+	 * @param dirPath 搜索文件夹路径
+	 * @param maxDepth 最大搜索深度（1代表只搜索一级子项）
+	 * @param nameFilter 名称过滤器（参数是文件/文件夹名称）
+	 * @param filter 属性过滤器（只对名称符合的条目调用）
+	 * @return 搜索结果流
+	 * @apiNote <pre>{@code
+	 * // 在a目录的前3层中查找名称以.log结尾并且大于1MB的文件
+	 * var logs = Files.find("/path/to/a", 3,
+	 *         name -> name.endsWith(".log"),
+	 *         (path, attrs) -> attrs.isRegularFile() && attrs.size() > 1024 * 1024)
+	 *         .toList();
+	 *
+	 * // 并行查找任意一个名称包含jmc的文件夹
+	 * var dir = Files.find("/path/to/a", Integer.MAX_VALUE,
+	 *         name -> name.contains("jmc"),
+	 *         (path, attrs) -> attrs.isDirectory())
+	 *         .parallel()
+	 *         .findAny();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static Stream<Path> find(String dirPath, int maxDepth,
+									Predicate<String> nameFilter, BiPredicate<Path, BasicFileAttributes> filter) {
+		Objs.throwsIfNullOrEmpty("搜索路径和过滤器不能为空！", dirPath, nameFilter, filter);
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("搜索深度必须大于0！");
+		}
+
+		var dir = new File(dirPath);
+		if (!dir.exists()) {
+			throw new RuntimeException("路径不存在！");
+		}
+		if (dir.isFile()) {
+			throw new RuntimeException("搜索父目录必须为文件夹！");
+		}
+
+		return FindSpliterator.find(dir.toPath(), maxDepth, nameFilter, filter);
+	}
+
+	/**
+	 * 惰性搜索路径下符合要求的文件和文件夹（不限制深度）
+	 * @param dirPath 搜索文件夹路径
+	 * @param filter 属性过滤器
+	 * @return 搜索结果流
+	 * @apiNote <pre>{@code
+	 * // 在a目录中查找第一个大于1GB的文件
+	 * var big = Files.find("/path/to/a", (path, attrs) -> attrs.size() > 1024 * 1024 * 1024)
+	 *         .findFirst();
+	 * }</pre>
+	 * @since 4.0
+	 * @see #find(String, int, Predicate, BiPredicate)
+	 */
+	public static Stream<Path> find(String dirPath, BiPredicate<Path, BasicFileAttributes> filter) {
+		return find(dirPath, Integer.MAX_VALUE, name -> true, filter);
+	}
+
+	/**
+	 * 惰性搜索路径下名称符合要求的文件和文件夹（不限制深度）
+	 * @param dirPath 搜索文件夹路径
+	 * @param contains 文件或文件夹名称中包含的内容
+	 * @return 搜索结果流
+	 * @apiNote <pre>{@code
+	 * // 在a目录中查找前10个名称包含jmc或者utils的文件/文件夹
+	 * var res = Files.find("/path/to/a", "jmc", "utils")
+	 *         .limit(10)
+	 *         .toList();
+	 * }</pre>
+	 * @since 4.0
+	 * @see #find(String, int, Predicate, BiPredicate)
+	 */
+	public static Stream<Path> find(String dirPath, String... contains) {
+		var names = contains.length == 0 ? new String[] {""} : contains;
+		return find(dirPath, Integer.MAX_VALUE, name -> Strs.orContains(name, names), (path, attrs) -> true);
+	}
+
+	/**
+	 * 建立文件夹的文件名称索引，之后可以用FileIndex直接查询，不需要再遍历文件夹 <br>
+	 * 索引文件已经存在并且是同一个文件夹的索引时增量更新，修改时间没有变化的文件夹不会再展开
+	 * @param dirPath 建立索引的文件夹路径
+	 * @param indexPath 索引文件路径
+	 * @return 索引中的文件和文件夹数量
+	 * @apiNote <pre>{@code
+	 * // 建立a文件夹的索引，再次调用时增量更新
+	 * Files.buildIndex("/path/to/a", "/path/to/a.idx");
+	 *
+	 * // 查询名称包含jmc的文件
+	 * List<File> res = FileIndex.open("/path/to/a.idx").findFiles("jmc");
+	 * }</pre>
+	 * @see FileIndex
+	 * @since 4.0
+	 */
+	public static int buildIndex(String dirPath, String indexPath) {
+		Objs.throwsIfNullOrEmpty("文件夹路径和索引文件路径不能为空！", dirPath, indexPath);
+		if (!isDir(dirPath)) {
+			throw new RuntimeException("文件夹不存在：" + dirPath);
+		}
+
+		return FileIndex.build(new File(dirPath), new File(indexPath));
+	}
+
+	/**
+	 * 并行搜索单个文件 <br>
+	 * 多个线程同时搜索不同的子文件夹，找到任意一个文件后立即停止，无法展开的文件夹会被跳过 <br>
+	 * 会跟随符号链接搜索，形成循环的符号链接会被跳过
 	 * @param path 搜索文件夹路径
-	 * @param contains 文件名称包含内容
-	 * @return 搜索结果
+	 * @param contains 文件名称包含内容（空字符串匹配任意文件）
+	 * @param timeoutMillis 时间限制（毫秒，0代表不限制时间）
+	 * @return 搜索结果（没有找到或者超时时为null）
 	 * @apiNote <pre>{@code
-	 * // 在a目录中查找名称中包含jmc的任意一个文件
-	 * File res = findAny("/path/to/a", "jmc");
+	 * // 在网络存储的a目录中查找名称中包含jmc的任意一个文件，最多搜索10秒
+	 * File res = findAny("/mnt/nas/a", "jmc", 10_000);
 	 * }</pre>
+	 * @since 4.0
 	 */
-	public static File findAny(String path, String contains) {
+	public static File findAny(String path, String contains, long timeoutMillis) {
+		Objs.throwsIfNullOrEmpty("搜索路径不能为空！", path);
+		if (contains == null) {
+			throw new IllegalArgumentException("文件名称包含内容不能为null！");
+		}
+		if (timeoutMillis < 0) {
+			throw new IllegalArgumentException("时间限制不能为负数！");
+		}
+
 		var dir = new File(path);
 
 		if (!dir.exists()) {
@@ -1983,27 +3102,22 @@ public class Files
 			throw new RuntimeException("搜索父目录必须为文件夹！");
 		}
 
-		// 文件夹临时列表
-		var temp = new ArrayList<File>() {{ add(dir); }};
-
-		while (!temp.isEmpty()) {
-			var list = temp.remove(0).listFiles();
-			if (list == null) {
-				return null;
-			}
-
-			for (File f : list) {
-				if (f.isDirectory()){
-					temp.add(f);
-				} else {
-					if (f.getName().contains(contains)) {
-						return f;
-					}
-				}
-			}
-		}
+		return AnyFinder.find(dir, contains, timeoutMillis);
+	}
 
-		return null;
+	/**
+	 * 并行搜索单个文件（不限制时间）
+	 * @param path 搜索文件夹路径
+	 * @param contains 文件名称包含内容
+	 * @return 搜索结果（没有找到时为null）
+	 * @apiNote <pre>{@code
+	 * // 在a目录中查找名称中包含jmc的任意一个文件
+	 * File res = findAny("/path/to/a", "jmc");
+	 * }</pre>
+	 * @see #findAny(String, String, long)
+	 */
+	public static File findAny(String path, String contains) {
+		return findAny(path, contains, 0);
 	}
 
 	/**
@@ -2017,6 +3131,243 @@ public class Files
 		return findAny(dir.getAbsolutePath(), contains);
 	}
 
+	/**
+	 * 查找重复文件 <br>
+	 * 1. 按文件长度分组，长度唯一的文件不会被读取 <br>
+	 * 2. 长度相同的文件先比较开头和结尾各4KB的SHA-256摘要 <br>
+	 * 3. 仍然相同的文件再通过内存映射比较全部内容的摘要，每组中的文件并行读取 <br>
+	 * 空文件，符号链接和同一个文件的硬链接不算作重复文件
+	 * @param roots 搜索的文件夹或文件路径
+	 * @param parallelism 并发数
+	 * @return 查找结果
+	 * @apiNote <pre>{@code
+	 * // 使用16个线程在两个共享文件夹中查找重复文件
+	 * var res = Files.findDuplicates(List.of("/mnt/nas/a", "/mnt/nas/b"), 16);
+	 * // 每组重复文件（按可以释放的空间从大到小排列）和可以释放的空间
+	 * List<List<File>> groups = res.groups();
+	 * long reclaimable = res.reclaimableBytes();
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static DuplicateResult findDuplicates(List<String> roots, int parallelism) {
+		Objs.throwsIfNullOrEmpty("搜索路径不能为空！", roots);
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("并发数必须大于0！");
+		}
+
+		var files = new ArrayList<File>();
+		for (var root : roots) {
+			Objs.throwsIfNullOrEmpty("搜索路径不能为空！", root);
+			var f = new File(root);
+			if (!f.exists()) {
+				throw new RuntimeException("路径不存在：" + root);
+			}
+			files.add(f);
+		}
+
+		var res = DuplicateFinder.find(files, parallelism);
+		log(() -> "耗时" + res.nanos() / 1e9 + "秒，在" + res.files() + "个文件中找到"
+				+ res.groups().size() + "组重复文件，可以释放" + res.reclaimableBytes() + "字节");
+		return res;
+	}
+
+	/**
+	 * 查找重复文件（根据第一个路径所在的存储设备确定并发数）
+	 * @param roots 搜索的文件夹或文件路径
+	 * @return 查找结果
+	 * @apiNote <pre>{@code
+	 * // 在a和b文件夹中查找重复文件
+	 * var res = Files.findDuplicates("/path/to/a", "/path/to/b");
+	 * }</pre>
+	 * @see #findDuplicates(List, int)
+	 * @since 4.0
+	 */
+	public static DuplicateResult findDuplicates(String... roots) {
+		if (roots == null || roots.length == 0) {
+			throw new NullPointerException("搜索路径不能为空！");
+		}
+		Objs.throwsIfNullOrEmpty("搜索路径不能为空！", (Object[]) roots);
+
+		return findDuplicates(Arrays.asList(roots), CopyEngine.detectParallelism(roots[0]));
+	}
+
+	/**
+	 * 查找重复文件的结果
+	 * @param groups 重复文件组（每组中的文件内容相同，按可以释放的空间从大到小排列）
+	 * @param reclaimableBytes 每组只保留一个文件时可以释放的空间
+	 * @param files 比较的文件数量（不包括空文件和符号链接）
+	 * @param nanos 耗时（纳秒）
+	 * @since 4.0
+	 */
+	public record DuplicateResult(List<List<File>> groups, long reclaimableBytes, long files, long nanos) {}
+
+	/**
+	 * 并行搜索文件夹中所有文件的内容，返回包含指定内容的行 <br>
+	 * 1. 文件按窗口映射到内存，UTF-8，US-ASCII和ISO-8859-1编码的普通字符串直接在字节中用Boyer-Moore-Horspool算法查找，只解码匹配的行 <br>
+	 * 2. 正则表达式，忽略大小写的字符串和其他编码（比如GBK）逐行解码后匹配 <br>
+	 * 3. 结果流是惰性的并行流，不同文件在不同线程中搜索，limit和findFirst可以提前结束 <br>
+	 * 开头8KB中包含0字节的文件被当作二进制文件跳过，无法读取的文件会被跳过，每行最多返回一个结果
+	 * @param root 搜索的文件夹或文件路径
+	 * @param pattern 搜索的字符串或正则表达式
+	 * @param options 搜索选项
+	 * @return 搜索结果流（使用后需要关闭）
+	 * @apiNote <pre>{@code
+	 * // 在logs文件夹的.log文件中搜索包含OutOfMemoryError的行
+	 * var options = Files.GrepOptions.builder()
+	 *         .filter(f -> f.getName().endsWith(".log"))
+	 *         .build();
+	 * try (var matches = Files.grep("/path/to/logs", "OutOfMemoryError", options)) {
+	 *     matches.forEach(m -> System.out.println(m.file() + ":" + m.lineNumber() + ": " + m.line()));
+	 * }
+	 * }</pre>
+	 * @since 4.0
+	 */
+	public static Stream<GrepMatch> grep(String root, String pattern, GrepOptions options) {
+		Objs.throwsIfNullOrEmpty("搜索路径，搜索内容和搜索选项不能为空！", root, pattern, options);
+
+		var f = new File(root);
+		if (!f.exists()) {
+			throw new RuntimeException("路径不存在：" + root);
+		}
+
+		Stream<Path> files = f.isFile()
+				? Stream.of(f.toPath())
+				: FindSpliterator.find(f.toPath(), Integer.MAX_VALUE, name -> true,
+						(path, attrs) -> attrs.isRegularFile() && options.filter().accept(path.toFile()));
+
+		return files.parallel().flatMap(path -> Grep.search(path, pattern, options));
+	}
+
+	/**
+	 * 并行搜索文件夹中所有文件的内容（UTF-8编码，区分大小写的普通字符串）
+	 * @param root 搜索的文件夹或文件路径
+	 * @param literal 搜索的字符串
+	 * @return 搜索结果流（使用后需要关闭）
+	 * @apiNote <pre>{@code
+	 * // 统计logs文件夹中包含ERROR的行数
+	 * try (var matches = Files.grep("/path/to/logs", "ERROR")) {
+	 *     long count = matches.count();
+	 * }
+	 * }</pre>
+	 * @see #grep(String, String, GrepOptions)
+	 * @since 4.0
+	 */
+	public static Stream<GrepMatch> grep(String root, String literal) {
+		return grep(root, literal, GrepOptions.builder().build());
+	}
+
+	/**
+	 * 搜索内容的选项
+	 * @param regex 是否使用正则表达式（否则是普通字符串）
+	 * @param ignoreCase 是否忽略大小写
+	 * @param charset 文件编码（必须兼容ASCII）
+	 * @param filter 文件过滤器（和findFiles相同）
+	 * @since 4.0
+	 */
+	public record GrepOptions(boolean regex, boolean ignoreCase, Charset charset, FileFilter filter) {
+		/**
+		 * 创建搜索内容的选项（检查编码和过滤器）
+		 */
+		public GrepOptions {
+			Objs.throwsIfNullOrEmpty("编码和文件过滤器不能为空！", charset, filter);
+			if (!LineSpliterator.supports(charset)) {
+				throw new IllegalArgumentException("只支持兼容ASCII的编码：" + charset);
+			}
+		}
+
+		/**
+		 * 获取搜索选项的构造器
+		 * @return 搜索选项的构造器
+		 */
+		public static Builder builder() {
+			return new Builder();
+		}
+
+		/**
+		 * 搜索选项的构造器
+		 */
+		public static class Builder {
+			/**
+			 * 是否使用正则表达式
+			 */
+			private boolean regex;
+
+			/**
+			 * 是否忽略大小写
+			 */
+			private boolean ignoreCase;
+
+			/**
+			 * 文件编码
+			 */
+			private Charset charset = StandardCharsets.UTF_8;
+
+			/**
+			 * 文件过滤器
+			 */
+			private FileFilter filter = f -> true;
+
+			private Builder() {}
+
+			/**
+			 * 指定是否使用正则表达式（默认否）
+			 * @param regex 是否使用正则表达式
+			 * @return 构造器本身
+			 */
+			public Builder regex(boolean regex) {
+				this.regex = regex;
+				return this;
+			}
+
+			/**
+			 * 指定是否忽略大小写（默认否）
+			 * @param ignoreCase 是否忽略大小写
+			 * @return 构造器本身
+			 */
+			public Builder ignoreCase(boolean ignoreCase) {
+				this.ignoreCase = ignoreCase;
+				return this;
+			}
+
+			/**
+			 * 指定文件编码（默认UTF-8）
+			 * @param charset 文件编码
+			 * @return 构造器本身
+			 */
+			public Builder charset(Charset charset) {
+				this.charset = charset;
+				return this;
+			}
+
+			/**
+			 * 指定文件过滤器（默认搜索所有文件）
+			 * @param filter 文件过滤器
+			 * @return 构造器本身
+			 */
+			public Builder filter(FileFilter filter) {
+				this.filter = filter;
+				return this;
+			}
+
+			/**
+			 * 构造搜索选项
+			 * @return 搜索选项
+			 */
+			public GrepOptions build() {
+				return new GrepOptions(regex, ignoreCase, charset, filter);
+			}
+		}
+	}
+
+	/**
+	 * 搜索内容的结果
+	 * @param file 文件
+	 * @param lineNumber 行号（从1开始）
+	 * @param line 行的内容（不包含\n）
+	 * @since 4.0
+	 */
+	public record GrepMatch(File file, long lineNumber, String line) {}
+
 	// endregion
 
 	// region tree
@@ -2170,6 +3521,11 @@ public class Files
 			this.currFile = currFile;
 		}
 
+		FileTree(File currFile, long length) {
+			this.currFile = currFile;
+			this.length = length;
+		}
+
 		/**
 		 * 获得文件树实例
 		 * @param dirFile 搜索文件夹的File对象
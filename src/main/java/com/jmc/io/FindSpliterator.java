@@ -0,0 +1,172 @@
+package com.jmc.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按需遍历文件夹的可拆分迭代器，用于惰性搜索文件 <br>
+ * 1. 按层（广度优先）遍历，只有在已经找到的结果用完时才展开下一个文件夹，findFirst和limit可以提前结束 <br>
+ * 2. 并行时把还没有展开的子文件夹分给其他线程 <br>
+ * 3. 先用名称过滤器判断，名称不符合并且不需要再向下搜索的条目不会读取属性 <br>
+ * 不跟随符号链接，无法展开的文件夹会被跳过
+ * @since 4.0
+ * @author Jmc
+ * @see Files#find(String, int, Predicate, BiPredicate)
+ */
+final class FindSpliterator implements Spliterator<Path> {
+    /**
+     * 最大搜索深度（1代表只搜索一级子项）
+     */
+    private final int maxDepth;
+
+    /**
+     * 名称过滤器
+     */
+    private final Predicate<String> nameFilter;
+
+    /**
+     * 属性过滤器
+     */
+    private final BiPredicate<Path, BasicFileAttributes> filter;
+
+    /**
+     * 等待展开的文件夹
+     */
+    private final Deque<Dir> pending;
+
+    /**
+     * 已经找到，等待返回的结果
+     */
+    private final Deque<Path> found = new ArrayDeque<>();
+
+    /**
+     * 等待展开的文件夹
+     * @param path 文件夹路径
+     * @param depth 文件夹深度（搜索的文件夹为0）
+     */
+    private record Dir(Path path, int depth) {}
+
+    private FindSpliterator(int maxDepth, Predicate<String> nameFilter,
+                            BiPredicate<Path, BasicFileAttributes> filter, Deque<Dir> pending) {
+        this.maxDepth = maxDepth;
+        this.nameFilter = nameFilter;
+        this.filter = filter;
+        this.pending = pending;
+    }
+
+    /**
+     * 创建搜索结果流（不包含搜索的文件夹本身）
+     * @param dir 搜索的文件夹
+     * @param maxDepth 最大搜索深度
+     * @param nameFilter 名称过滤器
+     * @param filter 属性过滤器
+     * @return 搜索结果流
+     */
+    static Stream<Path> find(Path dir, int maxDepth, Predicate<String> nameFilter,
+                             BiPredicate<Path, BasicFileAttributes> filter) {
+        var pending = new ArrayDeque<Dir>();
+        pending.add(new Dir(dir, 0));
+        return StreamSupport.stream(new FindSpliterator(maxDepth, nameFilter, filter, pending), false);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Path> action) {
+        // 只有在没有结果时才展开下一个文件夹
+        while (found.isEmpty()) {
+            var dir = pending.pollFirst();
+            if (dir == null) {
+                return false;
+            }
+            expand(dir);
+        }
+
+        action.accept(found.pollFirst());
+        return true;
+    }
+
+    @Override
+    public Spliterator<Path> trySplit() {
+        // 只有一个文件夹时先展开它，找到可以分出去的子文件夹
+        while (pending.size() == 1) {
+            expand(pending.pollFirst());
+        }
+
+        // 把一半还没有展开的文件夹分出去
+        int n = pending.size() / 2;
+        if (n == 0) {
+            return null;
+        }
+
+        var split = new ArrayDeque<Dir>(n);
+        for (int i = 0; i < n; i++) {
+            split.addFirst(pending.pollLast());
+        }
+        return new FindSpliterator(maxDepth, nameFilter, filter, split);
+    }
+
+    /**
+     * 展开文件夹，符合条件的子项放入结果，需要继续搜索的子文件夹放入等待展开的文件夹
+     * @param dir 文件夹
+     */
+    private void expand(Dir dir) {
+        int depth = dir.depth() + 1;
+        boolean descend = depth < maxDepth;
+
+        try (DirectoryStream<Path> stream = java.nio.file.Files.newDirectoryStream(dir.path())) {
+            for (var path : stream) {
+                // 名称不符合并且不需要继续搜索时不读取属性
+                boolean nameMatched = nameFilter.test(path.getFileName().toString());
+                if (!nameMatched && !descend) {
+                    continue;
+                }
+
+                var attrs = readAttributes(path);
+                if (attrs == null) {
+                    continue;
+                }
+                if (descend && attrs.isDirectory()) {
+                    pending.addLast(new Dir(path, depth));
+                }
+                if (nameMatched && filter.test(path, attrs)) {
+                    found.addLast(path);
+                }
+            }
+        } catch (IOException e) {
+            Files.log(() -> "展开文件夹失败：" + dir.path());
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL;
+    }
+
+    /**
+     * 读取子项的属性（不跟随符号链接）
+     * @param path 子项路径
+     * @return 属性（读取失败时为null）
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return java.nio.file.Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.jmc.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 搜索文件内容的实现 <br>
+ * 1. 文件按窗口映射到内存，每个窗口只处理完整的行，内存占用和文件大小无关 <br>
+ * 2. UTF-8，US-ASCII和ISO-8859-1编码的普通字符串（不忽略大小写）直接在字节中用Boyer-Moore-Horspool算法查找，只有匹配的行才会被解码 <br>
+ * 3. 正则表达式，忽略大小写的字符串以及其他编码（比如GBK的双字节字符的第二个字节可能是ASCII字符）逐行解码后匹配 <br>
+ * 4. 每个文件的结果按需产生，limit和findFirst可以提前结束，开头8KB中包含0字节的文件被当作二进制文件跳过 <br>
+ * 只适用于兼容ASCII的编码（UTF-8，GBK，ISO-8859-1等），每行最多返回一个结果
+ * @since 4.0
+ * @author Jmc
+ * @see Files#grep(String, String, Files.GrepOptions)
+ */
+final class Grep {
+    /**
+     * 映射窗口大小
+     */
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * 最大映射窗口大小（单行的最大长度）
+     */
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * 判断二进制文件时检查的字节数
+     */
+    private static final int BINARY_CHECK_SIZE = 8192;
+
+    /**
+     * 文件路径
+     */
+    private final Path path;
+
+    /**
+     * 文件通道
+     */
+    private final FileChannel channel;
+
+    /**
+     * 文件长度
+     */
+    private final long size;
+
+    /**
+     * 搜索选项
+     */
+    private final Files.GrepOptions options;
+
+    /**
+     * 在字节中查找的字符串（使用正则表达式时为null）
+     */
+    private final byte[] literal;
+
+    /**
+     * Horspool算法的跳转表
+     */
+    private final int[] shift;
+
+    /**
+     * 正则表达式的匹配器（在字节中查找字符串时为null）
+     */
+    private final Matcher matcher;
+
+    /**
+     * 下一个要处理的位置（总是一行的开头）
+     */
+    private long pos;
+
+    /**
+     * pos所在行的行号（从1开始）
+     */
+    private long lineNumber = 1;
+
+    /**
+     * 当前映射窗口
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * 当前映射窗口在文件中的开始位置
+     */
+    private long windowStart;
+
+    /**
+     * 当前窗口中完整的行的结束位置（文件中的位置）
+     */
+    private long regionEnd;
+
+    /**
+     * 解码用的字节数组（按需扩容）
+     */
+    private byte[] bs = new byte[256];
+
+    private Grep(Path path, FileChannel channel, String pattern, Files.GrepOptions options) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        this.options = options;
+
+        if (!options.regex() && !options.ignoreCase() && isByteSearchable(options.charset())) {
+            this.literal = pattern.getBytes(options.charset());
+            this.shift = shiftTable(literal);
+            this.matcher = null;
+        } else {
+            int flags = (options.regex() ? 0 : Pattern.LITERAL)
+                    | (options.ignoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+            this.literal = null;
+            this.shift = null;
+            this.matcher = Pattern.compile(pattern, flags).matcher("");
+        }
+    }
+
+    /**
+     * 搜索文件中包含指定内容的行（关闭流时关闭文件）
+     * @param path 文件路径
+     * @param pattern 搜索的字符串或正则表达式
+     * @param options 搜索选项
+     * @return 搜索结果流（文件无法读取时为空流）
+     */
+    static Stream<Files.GrepMatch> search(Path path, String pattern, Files.GrepOptions options) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            Files.log(() -> "读取文件失败：" + path);
+            return Stream.empty();
+        }
+
+        try {
+            var grep = new Grep(path, channel, pattern, options);
+            if (grep.isBinary()) {
+                channel.close();
+                return Stream.empty();
+            }
+
+            var spliterator = new Spliterators.AbstractSpliterator<Files.GrepMatch>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Files.GrepMatch> action) {
+                    var match = grep.next();
+                    if (match == null) {
+                        return false;
+                    }
+                    action.accept(match);
+                    return true;
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            throw e instanceof RuntimeException re ? re : new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 判断编码是否可以直接在字节中查找字符串（字节匹配的位置一定是字符匹配的位置）
+     * @param charset 编码
+     * @return 是否可以在字节中查找
+     */
+    private static boolean isByteSearchable(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 判断文件是否是二进制文件（开头包含0字节）
+     * @return 是否是二进制文件
+     * @throws IOException 读取出错
+     */
+    private boolean isBinary() throws IOException {
+        if (size == 0) {
+            return false;
+        }
+        var head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(BINARY_CHECK_SIZE, size));
+        for (int i = 0; i < head.capacity(); i++) {
+            if (head.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取下一个匹配的行
+     * @return 匹配结果（没有更多结果时为null）
+     */
+    private Files.GrepMatch next() {
+        try {
+            while (true) {
+                if (window == null || pos >= regionEnd) {
+                    if (!mapNext()) {
+                        return null;
+                    }
+                }
+
+                var match = literal != null ? nextLiteral() : nextRegex();
+                if (match != null) {
+                    return match;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取文件失败：" + path, e);
+        }
+    }
+
+    /**
+     * 从pos开始映射下一个窗口，窗口中最后一个\n之后不完整的行留给下一个窗口
+     * @return 是否还有没有处理的内容
+     * @throws IOException 映射出错
+     */
+    private boolean mapNext() throws IOException {
+        if (pos >= size) {
+            return false;
+        }
+
+        int windowSize = WINDOW_SIZE;
+        while (true) {
+            windowStart = pos;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, size - pos));
+            int capacity = window.capacity();
+            if (pos + capacity == size) {
+                regionEnd = size;
+                return true;
+            }
+
+            for (int i = capacity - 1; i >= 0; i--) {
+                if (window.get(i) == '\n') {
+                    regionEnd = windowStart + i + 1;
+                    return true;
+                }
+            }
+
+            // 窗口中没有完整的行时扩大窗口
+            if (capacity >= MAX_WINDOW_SIZE) {
+                throw new RuntimeException("单行长度超过2GB，无法搜索！");
+            }
+            windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+        }
+    }
+
+    /**
+     * 在当前窗口中用Horspool算法查找下一个包含字符串的行
+     * @return 匹配结果（当前窗口中没有更多结果时为null）
+     */
+    private Files.GrepMatch nextLiteral() {
+        int from = (int) (pos - windowStart);
+        int to = (int) (regionEnd - windowStart);
+
+        int i = indexOf(from, to);
+        if (i < 0) {
+            // 只统计行数
+            for (int j = from; j < to; j++) {
+                if (window.get(j) == '\n') {
+                    lineNumber++;
+                }
+            }
+            pos = regionEnd;
+            return null;
+        }
+
+        // 找到匹配位置所在的行
+        int lineStart = from;
+        for (int j = from; j < i; j++) {
+            if (window.get(j) == '\n') {
+                lineNumber++;
+                lineStart = j + 1;
+            }
+        }
+        int lineEnd = indexOfNewline(i, to);
+
+        var match = new Files.GrepMatch(path.toFile(), lineNumber, decode(lineStart, lineEnd));
+        lineNumber++;
+        pos = Math.min(windowStart + lineEnd + 1, regionEnd);
+        return match;
+    }
+
+    /**
+     * 在当前窗口中逐行解码查找下一个匹配正则表达式的行
+     * @return 匹配结果（当前窗口中没有更多结果时为null）
+     */
+    private Files.GrepMatch nextRegex() {
+        int from = (int) (pos - windowStart);
+        int to = (int) (regionEnd - windowStart);
+
+        while (from < to) {
+            int lineEnd = indexOfNewline(from, to);
+            var line = decode(from, lineEnd);
+            long number = lineNumber++;
+            from = Math.min(lineEnd + 1, to);
+            pos = windowStart + from;
+
+            if (matcher.reset(line).find()) {
+                return new Files.GrepMatch(path.toFile(), number, line);
+            }
+        }
+
+        pos = regionEnd;
+        return null;
+    }
+
+    /**
+     * 在窗口中查找\n
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @return \n的位置（找不到时为to）
+     */
+    private int indexOfNewline(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * 用Horspool算法在窗口中查找字符串
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @return 字符串开始的位置（找不到时为-1）
+     */
+    private int indexOf(int from, int to) {
+        int n = literal.length;
+        if (n == 0) {
+            return from < to ? from : -1;
+        }
+
+        int last = n - 1;
+        for (int i = from; i + last < to; i += shift[window.get(i + last) & 0xff]) {
+            int j = last;
+            while (j >= 0 && window.get(i + j) == literal[j]) {
+                j--;
+            }
+            if (j < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 计算Horspool算法的跳转表
+     * @param pattern 查找的字节
+     * @return 每个字节不匹配时的跳转距离
+     */
+    private static int[] shiftTable(byte[] pattern) {
+        var table = new int[256];
+        Arrays.fill(table, Math.max(pattern.length, 1));
+        for (int i = 0; i < pattern.length - 1; i++) {
+            table[pattern[i] & 0xff] = pattern.length - 1 - i;
+        }
+        return table;
+    }
+
+    /**
+     * 解码窗口中的一段
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @return 解码后的字符串
+     */
+    private String decode(int from, int to) {
+        int len = to - from;
+        if (bs.length < len) {
+            bs = new byte[Math.max(len, bs.length * 2)];
+        }
+        window.get(from, bs, 0, len);
+        return new String(bs, 0, len, options.charset());
+    }
+}
@@ -0,0 +1,102 @@
+package com.jmc.io;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件摘要的缓存（线程安全） <br>
+ * 以文件路径和摘要选项为键，文件长度和修改时间都没有变化时直接返回缓存的摘要 <br>
+ * 修改时间在最近2秒内的文件不会被缓存，避免同一时间戳内再次修改的文件返回旧的摘要
+ * @since 4.0
+ * @author Jmc
+ * @see Files.HashOptions.Builder#cache(HashCache)
+ */
+public final class HashCache {
+    /**
+     * 不缓存的修改时间范围（毫秒）
+     */
+    private static final long RACY_MILLIS = 2000;
+
+    /**
+     * 缓存的摘要
+     */
+    private final Map<Key, Value> digests = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存的键
+     * @param path 文件的绝对路径
+     * @param algorithm 摘要算法
+     * @param treeThreshold 使用树形摘要的文件长度
+     * @param chunkSize 树形摘要的块大小
+     */
+    private record Key(String path, String algorithm, long treeThreshold, int chunkSize) {}
+
+    /**
+     * 缓存的值
+     * @param size 文件长度
+     * @param lastModified 修改时间（毫秒）
+     * @param digest 摘要
+     */
+    private record Value(long size, long lastModified, byte[] digest) {}
+
+    /**
+     * 创建空的缓存
+     */
+    public HashCache() {}
+
+    /**
+     * 获取缓存的摘要
+     * @param path 文件的绝对路径
+     * @param options 摘要选项
+     * @param size 文件长度
+     * @param lastModified 修改时间（毫秒）
+     * @return 摘要（没有缓存或者文件已经变化时为null）
+     */
+    byte[] get(String path, Files.HashOptions options, long size, long lastModified) {
+        var value = digests.get(key(path, options));
+        if (value == null || value.size() != size || value.lastModified() != lastModified) {
+            return null;
+        }
+        return value.digest().clone();
+    }
+
+    /**
+     * 缓存摘要
+     * @param path 文件的绝对路径
+     * @param options 摘要选项
+     * @param size 文件长度
+     * @param lastModified 修改时间（毫秒）
+     * @param digest 摘要
+     */
+    void put(String path, Files.HashOptions options, long size, long lastModified, byte[] digest) {
+        if (System.currentTimeMillis() - lastModified < RACY_MILLIS) {
+            return;
+        }
+        digests.put(key(path, options), new Value(size, lastModified, digest.clone()));
+    }
+
+    /**
+     * 获取缓存的键
+     * @param path 文件的绝对路径
+     * @param options 摘要选项
+     * @return 缓存的键
+     */
+    private static Key key(String path, Files.HashOptions options) {
+        return new Key(path, options.algorithm(), options.treeThreshold(), options.chunkSize());
+    }
+
+    /**
+     * 获取缓存的文件数量
+     * @return 文件数量
+     */
+    public int size() {
+        return digests.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        digests.clear();
+    }
+}
@@ -0,0 +1,304 @@
+package com.jmc.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 计算文件和文件夹摘要的实现 <br>
+ * 1. 文件通过内存映射读取，每次映射64MB <br>
+ * 2. 长度达到树形摘要阈值的文件按块并行计算摘要，再对所有块的摘要和文件长度计算摘要（结果和普通摘要不同） <br>
+ * 3. 文件夹的摘要是Merkle摘要：子项按名称排序，对每个子项的类型，名称和摘要计算摘要，子文件夹并行计算 <br>
+ * 4. 指定缓存时，长度和修改时间都没有变化的文件直接使用缓存的摘要 <br>
+ * 根路径是符号链接时计算链接目标的摘要，文件夹中的符号链接不跟随，它们的摘要是链接目标路径的摘要
+ * @since 4.0
+ * @author Jmc
+ * @see Files#hash(String, Files.HashOptions)
+ */
+final class Hasher {
+    /**
+     * 每次映射的大小
+     */
+    private static final long MAP_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 文件夹摘要中文件的类型标记
+     */
+    private static final byte TYPE_FILE = 'f';
+
+    /**
+     * 文件夹摘要中文件夹的类型标记
+     */
+    private static final byte TYPE_DIR = 'd';
+
+    /**
+     * 文件夹摘要中符号链接的类型标记
+     */
+    private static final byte TYPE_LINK = 'l';
+
+    /**
+     * 摘要选项
+     */
+    private final Files.HashOptions options;
+
+    private Hasher(Files.HashOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 计算文件或文件夹的摘要
+     * @param path 文件/文件夹路径
+     * @param options 摘要选项
+     * @return 摘要
+     */
+    static byte[] hash(Path path, Files.HashOptions options) {
+        var hasher = new Hasher(options);
+        // 根路径跟随符号链接，文件夹是链接时从真实路径开始遍历
+        var attrs = readAttributes(path);
+        if (attrs.isDirectory() && java.nio.file.Files.isSymbolicLink(path)) {
+            try {
+                path = path.toRealPath();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        var pool = new ForkJoinPool(options.parallelism());
+        try {
+            return pool.invoke(hasher.new HashTask(path, attrs));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 计算一个文件或者一层文件夹摘要的任务，子文件夹和文件的块会分出新的任务并行计算
+     */
+    @SuppressWarnings("serial")
+    private class HashTask extends RecursiveTask<byte[]> {
+        /**
+         * 文件/文件夹路径
+         */
+        private final Path path;
+
+        /**
+         * 文件/文件夹属性
+         */
+        private final BasicFileAttributes attrs;
+
+        HashTask(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected byte[] compute() {
+            try {
+                if (attrs.isDirectory()) {
+                    return hashDir();
+                }
+                if (attrs.isSymbolicLink()) {
+                    var md = newDigest();
+                    md.update(java.nio.file.Files.readSymbolicLink(path).toString().getBytes(StandardCharsets.UTF_8));
+                    return md.digest();
+                }
+                return hashFile();
+            } catch (IOException e) {
+                throw new RuntimeException("计算摘要失败：" + path, e);
+            }
+        }
+
+        /**
+         * 计算文件夹的Merkle摘要
+         * @return 摘要
+         * @throws IOException 读取失败
+         */
+        private byte[] hashDir() throws IOException {
+            var names = new ArrayList<String>();
+            var types = new ArrayList<Byte>();
+            var subTasks = new ArrayList<HashTask>();
+
+            java.nio.file.Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), 1,
+                    new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path p, BasicFileAttributes a) {
+                    names.add(p.getFileName().toString());
+                    types.add(a.isDirectory() ? TYPE_DIR : a.isSymbolicLink() ? TYPE_LINK : TYPE_FILE);
+                    subTasks.add(new HashTask(p, a));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path p, IOException e) throws IOException {
+                    throw e;
+                }
+            });
+            invokeAll(subTasks);
+
+            // 按名称排序，摘要和文件系统返回的顺序无关
+            var order = new ArrayList<Integer>();
+            for (int i = 0; i < names.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparing(names::get));
+
+            var md = newDigest();
+            for (int i : order) {
+                md.update(types.get(i));
+                md.update(names.get(i).getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+                md.update(subTasks.get(i).join());
+            }
+            return md.digest();
+        }
+
+        /**
+         * 计算文件的摘要（优先使用缓存）
+         * @return 摘要
+         * @throws IOException 读取失败
+         */
+        private byte[] hashFile() throws IOException {
+            var cache = options.cache();
+            var absolutePath = path.toAbsolutePath().toString();
+            long size = attrs.size();
+            long lastModified = attrs.lastModifiedTime().toMillis();
+
+            if (cache != null) {
+                var digest = cache.get(absolutePath, options, size, lastModified);
+                if (digest != null) {
+                    return digest;
+                }
+            }
+
+            byte[] digest;
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                size = channel.size();
+                if (size >= options.treeThreshold()) {
+                    digest = hashTree(channel, size);
+                } else {
+                    var md = newDigest();
+                    update(md, channel, 0, size);
+                    digest = md.digest();
+                }
+            }
+
+            if (cache != null) {
+                cache.put(absolutePath, options, size, lastModified, digest);
+            }
+            Files.log(() -> "已计算摘要：" + path);
+            return digest;
+        }
+
+        /**
+         * 按块并行计算文件的树形摘要
+         * @param channel 文件通道
+         * @param size 文件长度
+         * @return 摘要
+         */
+        private byte[] hashTree(FileChannel channel, long size) {
+            var chunkTasks = new ArrayList<ChunkTask>();
+            for (long pos = 0; pos < size; pos += options.chunkSize()) {
+                chunkTasks.add(new ChunkTask(channel, pos, Math.min(options.chunkSize(), size - pos)));
+            }
+            invokeAll(chunkTasks);
+
+            var md = newDigest();
+            for (var task : chunkTasks) {
+                md.update(task.join());
+            }
+            md.update(ByteBuffer.allocate(Long.BYTES).putLong(0, size));
+            return md.digest();
+        }
+    }
+
+    /**
+     * 计算文件中一块的摘要的任务
+     */
+    @SuppressWarnings("serial")
+    private class ChunkTask extends RecursiveTask<byte[]> {
+        /**
+         * 文件通道
+         */
+        private final FileChannel channel;
+
+        /**
+         * 块的开始位置
+         */
+        private final long pos;
+
+        /**
+         * 块的长度
+         */
+        private final long length;
+
+        ChunkTask(FileChannel channel, long pos, long length) {
+            this.channel = channel;
+            this.pos = pos;
+            this.length = length;
+        }
+
+        @Override
+        protected byte[] compute() {
+            try {
+                var md = newDigest();
+                update(md, channel, pos, length);
+                return md.digest();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * 通过内存映射读取文件的一段并更新摘要
+     * @param md 摘要
+     * @param channel 文件通道
+     * @param pos 开始位置
+     * @param length 长度
+     * @throws IOException 读取失败
+     */
+    private static void update(MessageDigest md, FileChannel channel, long pos, long length) throws IOException {
+        for (long end = pos + length; pos < end; pos += MAP_SIZE) {
+            md.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAP_SIZE, end - pos)));
+        }
+    }
+
+    /**
+     * 创建摘要
+     * @return 摘要
+     */
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(options.algorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取根路径的属性（跟随符号链接）
+     * @param path 文件/文件夹路径
+     * @return 属性
+     */
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return java.nio.file.Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
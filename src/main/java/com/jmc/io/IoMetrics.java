@@ -0,0 +1,339 @@
+package com.jmc.io;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件操作的统计指标（全局，线程安全） <br>
+ * 1. 按操作类型统计调用次数，处理的文件数量和字节数，耗时和出错次数 <br>
+ * 2. 每个文件的耗时记录在按2的幂分桶的直方图中，可以估算分位数 <br>
+ * 3. 复制和解压的内部线程池记录当前排队的任务数和最大排队任务数 <br>
+ * 默认关闭，关闭时每次操作只多读取一次volatile变量
+ * @apiNote <pre>{@code
+ * // 开启统计
+ * IoMetrics.enable(true);
+ * Files.copy("/path/to/a", "/path/to/b");
+ *
+ * // 获取复制操作的统计结果
+ * var copy = IoMetrics.snapshot(IoMetrics.Op.COPY);
+ * // 每秒复制的字节数和单个文件耗时的99分位数（纳秒）
+ * double throughput = copy.bytesPerSecond();
+ * long p99 = copy.latencyPercentile(0.99);
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public final class IoMetrics {
+    /**
+     * 直方图的桶数量（第i个桶记录[2^i, 2^(i+1))纳秒的耗时）
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * 是否开启统计
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * 每种操作的计数器
+     */
+    private static final Map<Op, Counters> COUNTERS = new EnumMap<>(Op.class);
+
+    static {
+        for (var op : Op.values()) {
+            COUNTERS.put(op, new Counters());
+        }
+    }
+
+    private IoMetrics() {}
+
+    /**
+     * 统计的操作类型
+     */
+    public enum Op {
+        /**
+         * 复制
+         */
+        COPY,
+
+        /**
+         * 移动
+         */
+        MOVE,
+
+        /**
+         * 删除
+         */
+        DELETE,
+
+        /**
+         * 压缩
+         */
+        ZIP,
+
+        /**
+         * 解压
+         */
+        UNZIP,
+
+        /**
+         * 读取
+         */
+        READ,
+
+        /**
+         * 输出
+         */
+        OUT
+    }
+
+    /**
+     * 一种操作的计数器
+     */
+    private static class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder files = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong queueDepth = new AtomicLong();
+        final AtomicLong maxQueueDepth = new AtomicLong();
+        final LongAdder[] latency = new LongAdder[BUCKETS];
+
+        Counters() {
+            for (int i = 0; i < BUCKETS; i++) {
+                latency[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * 清空计数（不清空当前排队的任务数）
+         */
+        void reset() {
+            calls.reset();
+            files.reset();
+            bytes.reset();
+            errors.reset();
+            nanos.reset();
+            maxQueueDepth.set(queueDepth.get());
+            for (var bucket : latency) {
+                bucket.reset();
+            }
+        }
+    }
+
+    /**
+     * 一种操作的统计结果
+     * @param op 操作类型
+     * @param calls 调用次数
+     * @param files 处理的文件数量
+     * @param bytes 处理的字节数
+     * @param errors 出错次数
+     * @param nanos 所有调用的总耗时（纳秒，并发的调用会重复计算）
+     * @param queueDepth 当前排队的任务数
+     * @param maxQueueDepth 最大排队任务数
+     * @param latencyHistogram 单个文件耗时的直方图（第i个元素是耗时在[2^i, 2^(i+1))纳秒的文件数量）
+     */
+    public record Snapshot(Op op, long calls, long files, long bytes, long errors, long nanos,
+                           long queueDepth, long maxQueueDepth, long[] latencyHistogram) {
+        /**
+         * 获取每秒处理的字节数
+         * @return 每秒处理的字节数
+         */
+        public double bytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+        }
+
+        /**
+         * 获取每秒处理的文件数
+         * @return 每秒处理的文件数
+         */
+        public double filesPerSecond() {
+            return nanos == 0 ? 0 : files * 1e9 / nanos;
+        }
+
+        /**
+         * 估算单个文件耗时的分位数（返回所在桶的上界）
+         * @param p 分位（0 ~ 1，比如0.99）
+         * @return 耗时（纳秒，没有记录时为0）
+         */
+        public long latencyPercentile(double p) {
+            if (p < 0 || p > 1) {
+                throw new IllegalArgumentException("分位必须在0和1之间！");
+            }
+
+            long total = Arrays.stream(latencyHistogram).sum();
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(p * total));
+            long count = 0;
+            for (int i = 0; i < latencyHistogram.length; i++) {
+                count += latencyHistogram[i];
+                if (count >= rank) {
+                    return i >= 62 ? Long.MAX_VALUE : 1L << (i + 1);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "%s：%d次调用，%d个文件，共%s，%d次出错（%s/秒，单个文件耗时p50 %.3f毫秒，p99 %.3f毫秒，最大排队%d个任务）"
+                    .formatted(
+                            op,
+                            calls,
+                            files,
+                            Files.lengthFormatter(bytes),
+                            errors,
+                            Files.lengthFormatter((long) bytesPerSecond()),
+                            latencyPercentile(0.5) / 1e6,
+                            latencyPercentile(0.99) / 1e6,
+                            maxQueueDepth
+                    );
+        }
+    }
+
+    /**
+     * 设置是否开启统计
+     * @param enable 是否开启
+     */
+    public static void enable(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * 判断是否开启了统计
+     * @return 是否开启
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取一种操作的统计结果
+     * @param op 操作类型
+     * @return 统计结果
+     */
+    public static Snapshot snapshot(Op op) {
+        var c = COUNTERS.get(op);
+        var histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = c.latency[i].sum();
+        }
+        return new Snapshot(op, c.calls.sum(), c.files.sum(), c.bytes.sum(), c.errors.sum(), c.nanos.sum(),
+                c.queueDepth.get(), c.maxQueueDepth.get(), histogram);
+    }
+
+    /**
+     * 获取所有操作的统计结果
+     * @return 每种操作的统计结果
+     */
+    public static Map<Op, Snapshot> snapshot() {
+        var res = new EnumMap<Op, Snapshot>(Op.class);
+        for (var op : Op.values()) {
+            res.put(op, snapshot(op));
+        }
+        return res;
+    }
+
+    /**
+     * 清空所有统计结果
+     */
+    public static void reset() {
+        COUNTERS.values().forEach(Counters::reset);
+    }
+
+    /**
+     * 获取开始时间
+     * @return 开始时间（纳秒，没有开启统计时为0）
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 记录一次调用
+     * @param op 操作类型
+     * @param start 开始时间（start方法的返回值）
+     */
+    static void call(Op op, long start) {
+        if (!enabled || start == 0) {
+            return;
+        }
+        var c = COUNTERS.get(op);
+        c.calls.increment();
+        c.nanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * 记录处理完成的一个文件和它的耗时
+     * @param op 操作类型
+     * @param bytes 文件长度
+     * @param start 开始时间（start方法的返回值）
+     */
+    static void file(Op op, long bytes, long start) {
+        if (!enabled || start == 0) {
+            return;
+        }
+        var c = COUNTERS.get(op);
+        c.files.increment();
+        c.bytes.add(bytes);
+
+        long nanos = Math.max(1, System.nanoTime() - start);
+        c.latency[63 - Long.numberOfLeadingZeros(nanos)].increment();
+    }
+
+    /**
+     * 记录处理完成的文件（没有单个文件的耗时）
+     * @param op 操作类型
+     * @param files 文件数量
+     * @param bytes 字节数
+     */
+    static void add(Op op, long files, long bytes) {
+        if (!enabled) {
+            return;
+        }
+        var c = COUNTERS.get(op);
+        c.files.add(files);
+        c.bytes.add(bytes);
+    }
+
+    /**
+     * 记录一次出错
+     * @param op 操作类型
+     */
+    static void error(Op op) {
+        if (enabled) {
+            COUNTERS.get(op).errors.increment();
+        }
+    }
+
+    /**
+     * 记录一个任务进入线程池队列
+     * @param op 操作类型
+     */
+    static void enqueue(Op op) {
+        if (!enabled) {
+            return;
+        }
+        var c = COUNTERS.get(op);
+        c.maxQueueDepth.accumulateAndGet(c.queueDepth.incrementAndGet(), Math::max);
+    }
+
+    /**
+     * 记录一个任务离开线程池队列（开始执行）
+     * @param op 操作类型
+     */
+    static void dequeue(Op op) {
+        if (!enabled) {
+            return;
+        }
+        // 开启统计前进入队列的任务不计数
+        COUNTERS.get(op).queueDepth.updateAndGet(n -> Math.max(0, n - 1));
+    }
+}
@@ -0,0 +1,66 @@
+package com.jmc.io;
+
+/**
+ * 文件操作统计结果（成功的文件数量和字节数，失败的文件数量和耗时）
+ * @apiNote <pre>{@code
+ * // 复制a文件夹到b文件夹，并获取统计结果
+ * IoStats stats = CopyEngine.builder().build().copy("/path/to/a", "/path/to/b");
+ * // 每秒复制的文件数
+ * double filesPerSecond = stats.filesPerSecond();
+ * // 每秒复制的字节数
+ * double bytesPerSecond = stats.bytesPerSecond();
+ * }</pre>
+ * @param files 处理成功的文件数量
+ * @param bytes 处理成功的字节数
+ * @param failed 处理失败的文件数量
+ * @param nanos 耗时（纳秒）
+ * @since 4.0
+ * @author Jmc
+ */
+public record IoStats(long files, long bytes, long failed, long nanos) {
+    /**
+     * 没有失败文件的统计结果
+     * @param files 处理的文件数量
+     * @param bytes 处理的字节数
+     * @param nanos 耗时（纳秒）
+     */
+    public IoStats(long files, long bytes, long nanos) {
+        this(files, bytes, 0, nanos);
+    }
+
+    /**
+     * 获取耗时秒数
+     * @return 耗时秒数
+     */
+    public double seconds() {
+        return nanos / 1e9;
+    }
+
+    /**
+     * 获取每秒处理的文件数
+     * @return 每秒处理的文件数
+     */
+    public double filesPerSecond() {
+        return nanos == 0 ? 0 : files / seconds();
+    }
+
+    /**
+     * 获取每秒处理的字节数
+     * @return 每秒处理的字节数
+     */
+    public double bytesPerSecond() {
+        return nanos == 0 ? 0 : bytes / seconds();
+    }
+
+    @Override
+    public String toString() {
+        return "%d个文件，共%s，耗时%.3f秒（%.1f个文件/秒，%s/秒）%s".formatted(
+                files,
+                Files.lengthFormatter(bytes),
+                seconds(),
+                filesPerSecond(),
+                Files.lengthFormatter((long) bytesPerSecond()),
+                failed == 0 ? "" : "，" + failed + "个文件失败"
+        );
+    }
+}
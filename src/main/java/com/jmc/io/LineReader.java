@@ -0,0 +1,212 @@
+package com.jmc.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需读取文件的行迭代器，内存占用只和最长的一行有关 <br>
+ * 行的划分和String.split("\n")一致：只按\n划分（保留\r），去掉末尾的空行，空文件返回一个空行 <br>
+ * 读到文件末尾或者调用close时关闭文件
+ * @since 4.0
+ * @author Jmc
+ * @see Files#lines(String, Charset)
+ */
+final class LineReader implements Iterator<String>, Closeable {
+    /**
+     * 字符缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 文件字符流
+     */
+    private final Reader reader;
+
+    /**
+     * 字符缓冲区
+     */
+    private final char[] buf = new char[BUFFER_SIZE];
+
+    /**
+     * 缓冲区中下一个字符的位置和有效字符数
+     */
+    private int pos, limit;
+
+    /**
+     * 当前行
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * 是否已经读到文件末尾
+     */
+    private boolean eof;
+
+    /**
+     * 是否读到过字符
+     */
+    private boolean anyChar;
+
+    /**
+     * 还没确定是否在末尾的连续空行数
+     */
+    private int emptyLines;
+
+    /**
+     * 已经确定要返回的空行数（在queued之前返回）
+     */
+    private int emptyToReturn;
+
+    /**
+     * 空行之后的非空行
+     */
+    private String queued;
+
+    /**
+     * 下一行
+     */
+    private String next;
+
+    /**
+     * 打开文件的行迭代器
+     * @param src 文件
+     * @param cs 文件编码
+     */
+    LineReader(File src, Charset cs) {
+        try {
+            var channel = FileChannel.open(src.toPath(), StandardOpenOption.READ);
+            // 和new String(bytes, cs)一样替换无法解码的字节
+            var decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.reader = Channels.newReader(channel, decoder, -1);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var res = next;
+        next = null;
+        return res;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取下一行（空行要等到后面出现非空行才能确定不是末尾空行）
+     * @return 下一行（没有时返回null）
+     */
+    private String advance() {
+        if (emptyToReturn > 0) {
+            emptyToReturn--;
+            return "";
+        }
+        if (queued != null) {
+            var res = queued;
+            queued = null;
+            return res;
+        }
+
+        while (true) {
+            var raw = readLine();
+            if (raw == null) {
+                close();
+                // 空文件返回一个空行
+                if (!anyChar) {
+                    anyChar = true;
+                    return "";
+                }
+                return null;
+            }
+
+            if (raw.isEmpty()) {
+                emptyLines++;
+                continue;
+            }
+
+            if (emptyLines > 0) {
+                emptyToReturn = emptyLines - 1;
+                emptyLines = 0;
+                queued = raw;
+                return "";
+            }
+            return raw;
+        }
+    }
+
+    /**
+     * 读取到下一个\n为止的内容
+     * @return 不包含\n的内容（文件末尾没有内容时返回null）
+     */
+    private String readLine() {
+        line.setLength(0);
+        while (true) {
+            if (pos == limit) {
+                if (eof || !fill()) {
+                    return line.length() > 0 ? line.toString() : null;
+                }
+            }
+
+            int start = pos;
+            while (pos < limit && buf[pos] != '\n') {
+                pos++;
+            }
+            line.append(buf, start, pos - start);
+
+            if (pos < limit) {
+                // 跳过\n
+                pos++;
+                return line.toString();
+            }
+        }
+    }
+
+    /**
+     * 读取字符填充缓冲区
+     * @return 是否读取到字符
+     */
+    private boolean fill() {
+        try {
+            int n = reader.read(buf);
+            if (n <= 0) {
+                eof = true;
+                return false;
+            }
+            pos = 0;
+            limit = n;
+            anyChar = true;
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 可拆分的行迭代器，用于并行处理超大文本文件 <br>
+ * 1. 文件按字节区间拆分，拆分点对齐到\n之后，每个区间只包含完整的行 <br>
+ * 2. 每个区间在自己的线程中按窗口定位读取文件并解码，内存占用和文件大小无关，也不留下内存映射（关闭流后可以立即删除或覆盖文件） <br>
+ * 3. 保持行的原始顺序（ORDERED），调用者不关心顺序时可以使用unordered()提高并行效率 <br>
+ * 只适用于兼容ASCII的编码（UTF-8，GBK，ISO-8859-1等），这些编码中\n字节不会出现在多字节字符内部
+ * @since 4.0
+ * @author Jmc
+ * @see Files#lines(String, Charset)
+ */
+final class LineSpliterator implements Spliterator<String> {
+    /**
+     * 使用可拆分迭代器的最小文件大小，同时也是拆分后区间的最小大小
+     */
+    static final long MIN_SIZE = 1024 * 1024;
+
+    /**
+     * 读取窗口大小
+     */
+    private static final int WINDOW_SIZE = 1024 * 1024;
+
+    /**
+     * 最大读取窗口大小（单行的最大长度）
+     */
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * 寻找拆分点和文件末尾时的读取缓冲区大小
+     */
+    private static final int SCAN_SIZE = 8192;
+
+    /**
+     * 文件通道（所有拆分出的迭代器共用）
+     */
+    private final FileChannel channel;
+
+    /**
+     * 文件编码
+     */
+    private final Charset cs;
+
+    /**
+     * 当前行的开始位置
+     */
+    private long pos;
+
+    /**
+     * 区间结束位置（不包含）
+     */
+    private long end;
+
+    /**
+     * 读取窗口（第一次读取时分配，行太长时扩容）
+     */
+    private byte[] window;
+
+    /**
+     * 读取窗口在文件中的开始位置
+     */
+    private long windowStart;
+
+    /**
+     * 读取窗口中有效的字节数
+     */
+    private int windowLength;
+
+    private LineSpliterator(FileChannel channel, Charset cs, long pos, long end) {
+        this.channel = channel;
+        this.cs = cs;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    /**
+     * 判断编码是否兼容ASCII（\n编码为单个0x0A字节）
+     * @param cs 编码
+     * @return 是否兼容
+     */
+    static boolean supports(Charset cs) {
+        return Arrays.equals("a\nb".getBytes(cs), "a\nb".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 按行读取文件到可并行的字符串流（关闭流时关闭文件） <br>
+     * 行的划分和String.split("\n")一致：只按\n划分（保留\r），去掉末尾的空行
+     * @param src 文件
+     * @param cs 文件编码（必须兼容ASCII）
+     * @return 行的字符串流
+     */
+    static Stream<String> lines(File src, Charset cs) {
+        try {
+            var channel = FileChannel.open(src.toPath(), StandardOpenOption.READ);
+            try {
+                // 末尾的\n都去掉，相当于split去掉末尾空行
+                long end = trimTrailingNewlines(channel, channel.size());
+                var spliterator = new LineSpliterator(channel, cs, 0, end);
+                return StreamSupport.stream(spliterator, false).onClose(() -> {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (pos >= end) {
+            return false;
+        }
+        action.accept(nextLine());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super String> action) {
+        while (pos < end) {
+            action.accept(nextLine());
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (end - pos < MIN_SIZE * 2) {
+            return null;
+        }
+
+        // 从中间开始找到下一个\n，拆分点在\n之后
+        long cut;
+        try {
+            cut = indexOfNewline(channel, pos + (end - pos) / 2, end);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (cut < 0 || cut + 1 >= end) {
+            return null;
+        }
+
+        // 前半部分交给新的迭代器，保持顺序
+        var prefix = new LineSpliterator(channel, cs, pos, cut + 1);
+        pos = cut + 1;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // 按每行平均64字节估算
+        return Math.max(1, (end - pos) / 64);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * 读取并解码下一行
+     * @return 下一行（不包含\n）
+     */
+    private String nextLine() {
+        try {
+            if (window == null || pos < windowStart || pos >= windowStart + windowLength) {
+                fill(pos, WINDOW_SIZE);
+            }
+
+            // 在窗口中寻找\n，找不到时从当前行开始重新读取，窗口装不下整行时扩大窗口
+            long nl;
+            while (true) {
+                int i = indexOf(window, (int) (pos - windowStart), windowLength);
+                if (i >= 0) {
+                    nl = windowStart + i;
+                    break;
+                }
+                if (windowStart + windowLength >= end) {
+                    // 区间的最后一行没有\n
+                    nl = end;
+                    break;
+                }
+                if (pos > windowStart) {
+                    fill(pos, window.length);
+                } else if (window.length >= MAX_WINDOW_SIZE) {
+                    throw new RuntimeException("单行长度超过2GB，无法读取！");
+                } else {
+                    fill(pos, (int) Math.min((long) window.length * 2, MAX_WINDOW_SIZE));
+                }
+            }
+
+            int from = (int) (pos - windowStart);
+            int len = (int) (nl - pos);
+            pos = nl + 1;
+            return new String(window, from, len, cs);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 从指定位置开始定位读取到窗口（不超过区间结束位置）
+     * @param from 开始位置
+     * @param size 窗口大小
+     * @throws IOException 读取出错
+     */
+    private void fill(long from, int size) throws IOException {
+        if (window == null || window.length < size) {
+            window = new byte[size];
+        }
+
+        var buff = ByteBuffer.wrap(window, 0, (int) Math.min(window.length, end - from));
+        while (buff.hasRemaining()) {
+            if (channel.read(buff, from + buff.position()) < 0) {
+                // 文件在读取过程中变短了，区间到此结束
+                end = from + buff.position();
+                break;
+            }
+        }
+        windowStart = from;
+        windowLength = buff.position();
+    }
+
+    /**
+     * 在字节数组中寻找\n
+     * @param bs 字节数组
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @return \n在数组中的位置（找不到返回-1）
+     */
+    private static int indexOf(byte[] bs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bs[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在文件中寻找\n
+     * @param channel 文件通道
+     * @param from 开始位置
+     * @param to 结束位置（不包含）
+     * @return \n在文件中的位置（找不到返回-1）
+     * @throws IOException 读取出错
+     */
+    private static long indexOfNewline(FileChannel channel, long from, long to) throws IOException {
+        var buff = ByteBuffer.allocate(SCAN_SIZE);
+        while (from < to) {
+            buff.clear().limit((int) Math.min(SCAN_SIZE, to - from));
+            int n = channel.read(buff, from);
+            if (n <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buff.get(i) == '\n') {
+                    return from + i;
+                }
+            }
+            from += n;
+        }
+        return -1;
+    }
+
+    /**
+     * 去掉文件末尾连续的\n
+     * @param channel 文件通道
+     * @param length 文件长度
+     * @return 去掉末尾\n后的长度
+     * @throws IOException 读取出错
+     */
+    private static long trimTrailingNewlines(FileChannel channel, long length) throws IOException {
+        var buff = ByteBuffer.allocate(SCAN_SIZE);
+        while (length > 0) {
+            long from = Math.max(0, length - SCAN_SIZE);
+            buff.clear().limit((int) (length - from));
+            while (buff.hasRemaining() && channel.read(buff, from + buff.position()) > 0) {}
+
+            for (int i = buff.position() - 1; i >= 0; i--) {
+                if (buff.get(i) != '\n') {
+                    return from + i + 1;
+                }
+            }
+            length = from;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,504 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程zip压缩的实现（类似pigz） <br>
+ * 1. 文件按块（1MB）分给工作线程压缩，每块用前一块末尾的32KB作为字典，压缩率和单线程接近 <br>
+ * 2. 非最后一块使用SYNC_FLUSH对齐到字节边界，各块的压缩数据可以直接拼接成一个DEFLATE流 <br>
+ * 3. 调用线程按提交顺序写入压缩好的块，合并各块的CRC32，条目顺序是确定的 <br>
+ * 正在压缩的块数量有上限，缓冲区和Deflater都会复用，内存占用不随文件大小增长 <br>
+ * 输出通道不可定位时（例如网络流），多块的条目在数据后写入数据描述符
+ * @since 4.0
+ * @author Jmc
+ * @see Files#zip(String, String, int, int)
+ */
+final class ParallelZip implements AutoCloseable {
+    /**
+     * 分块大小
+     */
+    static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * DEFLATE字典大小
+     */
+    private static final int DICT_SIZE = 32 * 1024;
+
+    /**
+     * 每个线程最多正在压缩的块数
+     */
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    /**
+     * 压缩级别
+     */
+    private final int level;
+
+    /**
+     * 工作线程池
+     */
+    private final ExecutorService pool;
+
+    /**
+     * 正在压缩（还没写入）的块数许可
+     */
+    private final Semaphore permits;
+
+    /**
+     * 复用的输入缓冲区
+     */
+    private final Queue<byte[]> inBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 复用的输出缓冲区
+     */
+    private final Queue<byte[]> outBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 复用的Deflater
+     */
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 等待写入的条目（按提交顺序）
+     */
+    private final Queue<Object> pending = new ArrayDeque<>();
+
+    /**
+     * zip写入器
+     */
+    private final ZipWriter writer;
+
+    /**
+     * 压缩的文件数
+     */
+    private long files;
+
+    /**
+     * 压缩的字节数
+     */
+    private long bytes;
+
+    /**
+     * 压缩好的一块数据
+     * @param out 压缩后的数据（所在缓冲区）
+     * @param outLen 压缩后的长度
+     * @param crc 原始数据的CRC32
+     * @param len 原始长度
+     */
+    private record Chunk(byte[] out, int outLen, long crc, int len) {}
+
+    /**
+     * 文件夹条目
+     * @param name 条目名称
+     * @param time 修改时间
+     */
+    private record DirEntry(String name, long time) {}
+
+    /**
+     * 等待写入的文件条目
+     */
+    private static class FileEntry {
+        /**
+         * 条目名称
+         */
+        final String name;
+
+        /**
+         * 修改时间
+         */
+        final long time;
+
+        /**
+         * 文件长度
+         */
+        final long length;
+
+        /**
+         * 总块数
+         */
+        final long chunks;
+
+        /**
+         * 已提交还没写入的块
+         */
+        final Queue<Future<Chunk>> submitted = new ArrayDeque<>();
+
+        /**
+         * 已写入的块数
+         */
+        long written;
+
+        /**
+         * 已写入部分的CRC32
+         */
+        long crc;
+
+        /**
+         * 已写入部分的压缩后长度
+         */
+        long compressedSize;
+
+        FileEntry(String name, long time, long length) {
+            this.name = name;
+            this.time = time;
+            this.length = length;
+            this.chunks = Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * 创建多线程压缩器
+     * @param out 输出通道
+     * @param threads 线程数
+     * @param level 压缩级别（0-9，-1为默认级别）
+     * @throws IOException 获取输出通道位置出错
+     */
+    ParallelZip(WritableByteChannel out, int threads, int level) throws IOException {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("压缩级别必须在-1到9之间！");
+        }
+
+        this.level = level;
+        this.writer = new ZipWriter(out);
+        this.permits = new Semaphore(threads * CHUNKS_PER_THREAD);
+
+        var count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            var t = new Thread(r, "jmc-zip-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 压缩文件或文件夹到zip文件
+     * @param src 源文件
+     * @param zip zip文件
+     * @param threads 线程数
+     * @param level 压缩级别（0-9，-1为默认级别）
+     * @return 压缩统计
+     */
+    static IoStats zip(File src, File zip, int threads, int level) {
+        long startTime = System.nanoTime();
+
+        try (var out = FileChannel.open(zip.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             var parallelZip = new ParallelZip(out, threads, level)) {
+            parallelZip.addTree(src, src.getName());
+            parallelZip.finish();
+            return new IoStats(parallelZip.files, parallelZip.bytes, System.nanoTime() - startTime);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 把路径来源中的文件和文件夹压缩到输出通道（条目名称是相对于根文件夹的路径，不关闭输出通道）
+     * @param paths 路径来源（按需读取）
+     * @param baseDir 根文件夹
+     * @param out 输出通道
+     * @param threads 线程数
+     * @param level 压缩级别（0-9，-1为默认级别）
+     * @return 压缩统计
+     */
+    static IoStats zip(Iterator<Path> paths, Path baseDir, WritableByteChannel out, int threads, int level) {
+        long startTime = System.nanoTime();
+
+        try (var parallelZip = new ParallelZip(out, threads, level)) {
+            while (paths.hasNext()) {
+                var path = paths.next();
+                var name = entryName(baseDir, path);
+                if (java.nio.file.Files.isDirectory(path)) {
+                    // 根文件夹本身不需要条目
+                    if (!name.isEmpty()) {
+                        parallelZip.addDir(name + "/", path.toFile().lastModified());
+                    }
+                } else {
+                    parallelZip.addFile(path.toFile(), name);
+                }
+            }
+            parallelZip.finish();
+            return new IoStats(parallelZip.files, parallelZip.bytes, System.nanoTime() - startTime);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 获取路径相对于根文件夹的条目名称（使用/分隔）
+     * @param baseDir 根文件夹
+     * @param path 路径
+     * @return 条目名称
+     */
+    private static String entryName(Path baseDir, Path path) {
+        var base = baseDir.toAbsolutePath().normalize();
+        var abs = path.toAbsolutePath().normalize();
+        if (!abs.startsWith(base)) {
+            throw new RuntimeException("路径不在根文件夹中：" + path);
+        }
+        return base.relativize(abs).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * 递归添加文件或文件夹（子项按名称排序，空文件夹单独添加一个条目）
+     * @param f 文件或文件夹
+     * @param name 条目名称
+     * @throws IOException 写入出错
+     */
+    void addTree(File f, String name) throws IOException {
+        if (f.isDirectory()) {
+            var fs = f.listFiles();
+            if (fs == null) {
+                throw new RuntimeException("文件夹展开失败！");
+            }
+
+            if (fs.length == 0) {
+                addDir(name + "/", f.lastModified());
+            } else {
+                Arrays.sort(fs, Comparator.comparing(File::getName));
+                for (var child : fs) {
+                    addTree(child, name + "/" + child.getName());
+                }
+            }
+        } else {
+            addFile(f, name);
+        }
+    }
+
+    /**
+     * 添加文件夹条目
+     * @param name 条目名称（以/结尾）
+     * @param time 修改时间
+     * @throws IOException 写入出错
+     */
+    void addDir(String name, long time) throws IOException {
+        pending.add(new DirEntry(name, time));
+        // 前面没有等待写入的文件时直接写入
+        drainReady();
+    }
+
+    /**
+     * 添加文件条目，把文件分块提交给工作线程压缩
+     * @param f 文件
+     * @param name 条目名称
+     * @throws IOException 写入出错
+     */
+    void addFile(File f, String name) throws IOException {
+        Files.log(() -> "正在压缩: " + f.getAbsolutePath());
+
+        var entry = new FileEntry(name, f.lastModified(), f.length());
+        pending.add(entry);
+
+        for (long i = 0; i < entry.chunks; i++) {
+            // 没有许可时先写入最早的块，释放缓冲区
+            while (!permits.tryAcquire()) {
+                drainOne();
+            }
+
+            long off = i * CHUNK_SIZE;
+            int len = (int) Math.min(CHUNK_SIZE, entry.length - off);
+            boolean last = i == entry.chunks - 1;
+            entry.submitted.add(pool.submit(() -> compress(f, off, len, last)));
+        }
+
+        files++;
+        bytes += entry.length;
+
+        // 尽早写出已经压缩好的块，流式输出时接收方可以更早收到数据
+        drainDone();
+    }
+
+    /**
+     * 写入所有等待的条目，然后写入中央目录
+     * @throws IOException 写入出错
+     */
+    void finish() throws IOException {
+        while (!pending.isEmpty()) {
+            drainOne();
+        }
+        writer.finish();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        deflaters.forEach(Deflater::end);
+        deflaters.clear();
+    }
+
+    /**
+     * 写入队首已经可以写入的文件夹条目
+     * @throws IOException 写入出错
+     */
+    private void drainReady() throws IOException {
+        while (pending.peek() instanceof DirEntry dir) {
+            writer.writeDir(dir.name(), dir.time());
+            pending.poll();
+        }
+    }
+
+    /**
+     * 按顺序写入已经压缩完成的块（不等待）
+     * @throws IOException 写入出错
+     */
+    private void drainDone() throws IOException {
+        drainReady();
+        while (pending.peek() instanceof FileEntry entry
+                && !entry.submitted.isEmpty() && entry.submitted.peek().isDone()) {
+            drainOne();
+        }
+    }
+
+    /**
+     * 按顺序写入最早提交的一块（必要时等待它压缩完成）
+     * @throws IOException 写入出错
+     */
+    private void drainOne() throws IOException {
+        drainReady();
+
+        var entry = (FileEntry) pending.peek();
+        if (entry == null) {
+            return;
+        }
+
+        var chunk = await(entry);
+        if (entry.chunks == 1) {
+            // 只有一块时CRC和长度都已知，不需要回填
+            writer.writeEntry(entry.name, ZipWriter.DEFLATED, entry.time, chunk.crc(), chunk.outLen(), chunk.len(),
+                    List.of(ByteBuffer.wrap(chunk.out(), 0, chunk.outLen())));
+        } else {
+            if (entry.written == 0) {
+                writer.beginEntry(entry.name, ZipWriter.DEFLATED, entry.time, entry.length);
+            }
+            writer.write(ByteBuffer.wrap(chunk.out(), 0, chunk.outLen()));
+            entry.crc = entry.written == 0 ? chunk.crc() : ZipWriter.crc32Combine(entry.crc, chunk.crc(), chunk.len());
+            entry.compressedSize += chunk.outLen();
+        }
+        entry.written++;
+
+        outBuffers.add(chunk.out());
+        permits.release();
+
+        if (entry.written == entry.chunks) {
+            if (entry.chunks > 1) {
+                writer.endEntry(entry.crc, entry.compressedSize, entry.length);
+            }
+            pending.poll();
+            drainReady();
+        }
+    }
+
+    /**
+     * 等待条目最早提交的一块压缩完成
+     * @param entry 文件条目
+     * @return 压缩好的块
+     */
+    private Chunk await(FileEntry entry) {
+        try {
+            return entry.submitted.remove().get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("压缩失败：" + entry.name, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 压缩文件的一块（在工作线程中执行）
+     * @param f 文件
+     * @param off 块在文件中的位置
+     * @param len 块长度
+     * @param last 是否是最后一块
+     * @return 压缩好的块
+     * @throws IOException 读取出错
+     */
+    private Chunk compress(File f, long off, int len, boolean last) throws IOException {
+        // 读取前一块末尾的数据作为字典
+        int dict = (int) Math.min(off, DICT_SIZE);
+        var in = take(inBuffers, CHUNK_SIZE + DICT_SIZE);
+        try (var channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            var buff = ByteBuffer.wrap(in, 0, dict + len);
+            while (buff.hasRemaining()) {
+                if (channel.read(buff, off - dict + buff.position()) < 0) {
+                    throw new IOException("文件在压缩时被修改：" + f.getAbsolutePath());
+                }
+            }
+        }
+
+        var crc = new CRC32();
+        crc.update(in, dict, len);
+
+        var deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+
+        // 压缩后可能略大于原始长度
+        var out = take(outBuffers, CHUNK_SIZE + CHUNK_SIZE / 16 + 1024);
+        int outLen = 0;
+        try {
+            if (dict > 0) {
+                deflater.setDictionary(in, 0, dict);
+            }
+            deflater.setInput(in, dict, len);
+
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (outLen == out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+                    outLen += deflater.deflate(out, outLen, out.length - outLen);
+                }
+            } else {
+                // 输出缓冲区没有写满时，SYNC_FLUSH才完成
+                do {
+                    if (outLen == out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+                    outLen += deflater.deflate(out, outLen, out.length - outLen, Deflater.SYNC_FLUSH);
+                } while (outLen == out.length);
+            }
+        } finally {
+            deflater.reset();
+            deflaters.add(deflater);
+            inBuffers.add(in);
+        }
+
+        return new Chunk(out, outLen, crc.getValue(), len);
+    }
+
+    /**
+     * 从缓冲池取出缓冲区（没有时新建）
+     * @param buffers 缓冲池
+     * @param size 缓冲区大小
+     * @return 缓冲区
+     */
+    private static byte[] take(Queue<byte[]> buffers, int size) {
+        var bs = buffers.poll();
+        return bs != null ? bs : new byte[size];
+    }
+}
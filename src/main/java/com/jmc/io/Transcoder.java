@@ -0,0 +1,309 @@
+package com.jmc.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流式转换文件编码的实现 <br>
+ * 1. 每个线程复用一组解码器，编码器和固定大小的缓冲区，不把整个文件读入内存 <br>
+ * 2. 转换结果先写入同一个文件夹中的临时文件，完成后原子重命名为源文件，中途失败时源文件不会被破坏 <br>
+ * 3. 转换文件夹时每个文件夹是一个fork-join任务，文件和子文件夹并行转换 <br>
+ * 无法解码或编码的字符会被替换（和new String(bytes, charset)相同），不跟随符号链接
+ * @since 4.0
+ * @author Jmc
+ * @see Files#setEncoding(String, Charset, Charset)
+ * @see Files#setEncodings(String, Charset, Charset, int)
+ */
+final class Transcoder {
+    /**
+     * 缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 转换时使用的临时文件后缀
+     */
+    private static final String TEMP_SUFFIX = ".jmc-encoding";
+
+    /**
+     * 每个线程复用的解码器，编码器和缓冲区
+     */
+    private static final ThreadLocal<Coders> CODERS = new ThreadLocal<>();
+
+    /**
+     * 转换的文件数量
+     */
+    private final LongAdder converted = new LongAdder();
+
+    /**
+     * 跳过的文件数量（无法识别编码或者已经是新编码）
+     */
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * 转换的源文件总长度
+     */
+    private final LongAdder bytes = new LongAdder();
+
+    private Transcoder() {}
+
+    /**
+     * 一组解码器，编码器和缓冲区
+     */
+    private static class Coders {
+        final CharsetDecoder decoder;
+        final CharsetEncoder encoder;
+        final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Coders(Charset oldCharset, Charset newCharset) {
+            this.decoder = oldCharset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.encoder = newCharset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * 重置状态，准备转换下一个文件
+         */
+        void reset() {
+            decoder.reset();
+            encoder.reset();
+            in.clear();
+            chars.clear();
+            out.clear();
+        }
+    }
+
+    /**
+     * 获取当前线程的解码器和编码器（编码不同时重新创建）
+     * @param oldCharset 旧编码
+     * @param newCharset 新编码
+     * @return 解码器，编码器和缓冲区
+     */
+    private static Coders coders(Charset oldCharset, Charset newCharset) {
+        var coders = CODERS.get();
+        if (coders == null || !coders.decoder.charset().equals(oldCharset)
+                || !coders.encoder.charset().equals(newCharset)) {
+            coders = new Coders(oldCharset, newCharset);
+            CODERS.set(coders);
+        }
+        coders.reset();
+        return coders;
+    }
+
+    /**
+     * 转换文件编码
+     * @param src 文件
+     * @param oldCharset 旧编码
+     * @param newCharset 新编码
+     */
+    static void transcode(Path src, Charset oldCharset, Charset newCharset) {
+        var coders = coders(oldCharset, newCharset);
+        var temp = src.resolveSibling(src.getFileName() + TEMP_SUFFIX);
+
+        try {
+            try (var in = FileChannel.open(src, StandardOpenOption.READ);
+                 var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                boolean eof = false;
+                while (!eof) {
+                    eof = in.read(coders.in) < 0;
+                    coders.in.flip();
+                    decode(coders, out, eof);
+                    coders.in.compact();
+                }
+
+                // 输出编码器和解码器中剩余的内容
+                while (coders.decoder.flush(coders.chars).isOverflow()) {
+                    encode(coders, out, false);
+                }
+                encode(coders, out, true);
+                while (coders.encoder.flush(coders.out).isOverflow()) {
+                    write(coders.out, out);
+                }
+                write(coders.out, out);
+            }
+
+            // 保留源文件的权限
+            try {
+                java.nio.file.Files.setPosixFilePermissions(temp, java.nio.file.Files.getPosixFilePermissions(src));
+            } catch (UnsupportedOperationException ignored) {}
+
+            java.nio.file.Files.move(temp, src, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                java.nio.file.Files.deleteIfExists(temp);
+            } catch (IOException ignored) {}
+            throw new RuntimeException("转换编码失败：" + src, e);
+        }
+    }
+
+    /**
+     * 解码输入缓冲区中的字节，字符缓冲区满时先编码输出
+     * @param coders 解码器，编码器和缓冲区
+     * @param out 输出通道
+     * @param eof 是否已经读取到文件末尾
+     * @throws IOException 写入失败
+     */
+    private static void decode(Coders coders, FileChannel out, boolean eof) throws IOException {
+        while (coders.decoder.decode(coders.in, coders.chars, eof).isOverflow()) {
+            encode(coders, out, false);
+        }
+        encode(coders, out, false);
+    }
+
+    /**
+     * 编码字符缓冲区中的字符，输出缓冲区满时写入输出通道
+     * @param coders 解码器，编码器和缓冲区
+     * @param out 输出通道
+     * @param eof 是否已经没有更多字符
+     * @throws IOException 写入失败
+     */
+    private static void encode(Coders coders, FileChannel out, boolean eof) throws IOException {
+        coders.chars.flip();
+        while (coders.encoder.encode(coders.chars, coders.out, eof).isOverflow()) {
+            write(coders.out, out);
+        }
+        coders.chars.compact();
+    }
+
+    /**
+     * 把输出缓冲区的内容写入输出通道
+     * @param buf 输出缓冲区
+     * @param out 输出通道
+     * @throws IOException 写入失败
+     */
+    private static void write(ByteBuffer buf, FileChannel out) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * 并行转换文件夹中所有文件的编码
+     * @param dir 文件夹
+     * @param oldCharset 旧编码（为null时自动识别每个文件的编码，无法识别的文件会被跳过）
+     * @param newCharset 新编码
+     * @param parallelism 并发数
+     * @return 转换结果
+     */
+    static Files.TranscodeResult transcodeAll(File dir, Charset oldCharset, Charset newCharset, int parallelism) {
+        long startTime = System.nanoTime();
+
+        var transcoder = new Transcoder();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(transcoder.new TranscodeTask(dir.toPath(), oldCharset, newCharset, false));
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Files.TranscodeResult(
+                transcoder.converted.sum(),
+                transcoder.skipped.sum(),
+                transcoder.bytes.sum(),
+                System.nanoTime() - startTime
+        );
+    }
+
+    /**
+     * 转换一个文件或者一层文件夹的任务，文件和子文件夹会分出新的任务并行转换
+     */
+    @SuppressWarnings("serial")
+    private class TranscodeTask extends RecursiveAction {
+        /**
+         * 文件/文件夹路径
+         */
+        private final Path path;
+
+        /**
+         * 旧编码（为null时自动识别）
+         */
+        private final Charset oldCharset;
+
+        /**
+         * 新编码
+         */
+        private final Charset newCharset;
+
+        /**
+         * 是否是文件
+         */
+        private final boolean file;
+
+        TranscodeTask(Path path, Charset oldCharset, Charset newCharset, boolean file) {
+            this.path = path;
+            this.oldCharset = oldCharset;
+            this.newCharset = newCharset;
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            if (file) {
+                var charset = oldCharset != null ? oldCharset : EncodingDetector.detect(path.toFile(),
+                        EncodingDetector.DEFAULT_SAMPLE_BYTES, EncodingDetector.DEFAULT_WINDOWS).charset();
+                if (charset == null || charset.equals(newCharset)) {
+                    skipped.increment();
+                    return;
+                }
+
+                long length = path.toFile().length();
+                transcode(path, charset, newCharset);
+                converted.increment();
+                bytes.add(length);
+                Files.log(() -> "已转换：" + path + "（" + charset + " -> " + newCharset + "）");
+                return;
+            }
+
+            var subTasks = new ArrayList<TranscodeTask>();
+            try {
+                java.nio.file.Files.walkFileTree(path, EnumSet.noneOf(FileVisitOption.class), 1,
+                        new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path p, BasicFileAttributes attrs) {
+                        // 跳过符号链接等特殊文件
+                        if (attrs.isDirectory() || attrs.isRegularFile()) {
+                            subTasks.add(new TranscodeTask(p, oldCharset, newCharset, attrs.isRegularFile()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path p, IOException e) throws IOException {
+                        throw e;
+                    }
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("展开文件夹失败：" + path, e);
+            }
+
+            invokeAll(subTasks);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.jmc.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 可随机读取的zip归档 <br>
+ * 1. 打开时读取一次中央目录，在内存中建立条目索引，之后按名称直接定位，不需要扫描整个文件 <br>
+ * 2. 所有线程共用一个ZipFile（读取是线程安全的），同时打开的条目流数量没有限制 <br>
+ * 3. 可选缓存解压后的小条目（按总字节数限制的LRU缓存），重复读取同一个条目时不需要再次解压
+ * @apiNote <pre>{@code
+ * // 使用默认配置打开a.zip，并读取其中的一个条目
+ * try (var zip = ZipArchive.of("/path/to/a.zip")) {
+ *     byte[] bs = zip.readBytes("a/b.txt");
+ * }
+ *
+ * // 缓存不超过64KB的条目（缓存总大小16MB）
+ * try (var zip = ZipArchive.builder()
+ *         .cacheSize(16 * 1024 * 1024)
+ *         .maxCachedEntrySize(64 * 1024)
+ *         .open("/path/to/a.zip")) {
+ *     // 以流的方式读取大条目
+ *     try (var in = zip.getInputStream("a/big.bin")) {
+ *         in.transferTo(out);
+ *     }
+ * }
+ * }</pre>
+ * @since 4.0
+ * @author Jmc
+ */
+public class ZipArchive implements Closeable {
+    /**
+     * 默认缓存的最大条目大小
+     */
+    private static final int DEFAULT_MAX_CACHED_ENTRY_SIZE = 64 * 1024;
+
+    /**
+     * 条目索引（名称 -> 条目，按中央目录顺序）
+     */
+    private final Map<String, ZipEntry> index;
+
+    /**
+     * 共用的zip句柄
+     */
+    private final ZipFile zipFile;
+
+    /**
+     * 缓存总大小上限（字节，0代表不缓存）
+     */
+    private final long cacheSize;
+
+    /**
+     * 缓存的最大条目大小
+     */
+    private final int maxCachedEntrySize;
+
+    /**
+     * 解压后的小条目缓存（按访问顺序排列）
+     */
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 缓存的总字节数
+     */
+    private long cachedBytes;
+
+    /**
+     * 缓存命中次数
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 缓存未命中次数
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 是否已经关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * zip条目信息
+     * @param name 条目名称
+     * @param size 原始长度
+     * @param compressedSize 压缩后长度
+     * @param crc CRC32校验值
+     * @param time 修改时间（毫秒）
+     * @param isDirectory 是否是文件夹
+     */
+    public record Entry(String name, long size, long compressedSize, long crc, long time, boolean isDirectory) {}
+
+    private ZipArchive(File file, long cacheSize, int maxCachedEntrySize) {
+        this.cacheSize = cacheSize;
+        this.maxCachedEntrySize = maxCachedEntrySize;
+
+        try {
+            this.zipFile = new ZipFile(file);
+        } catch (IOException e) {
+            throw new RuntimeException("打开zip文件失败：" + file, e);
+        }
+
+        // 读取中央目录建立索引
+        var map = new LinkedHashMap<String, ZipEntry>();
+        var entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            var entry = entries.nextElement();
+            map.put(entry.getName(), entry);
+        }
+        this.index = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 使用默认配置打开zip归档（不缓存条目）
+     * @param zipPath zip路径
+     * @return zip归档
+     * @apiNote <pre>{@code
+     * try (var zip = ZipArchive.of("/path/to/a.zip")) {
+     *     byte[] bs = zip.readBytes("a/b.txt");
+     * }
+     * }</pre>
+     */
+    public static ZipArchive of(String zipPath) {
+        return builder().open(zipPath);
+    }
+
+    /**
+     * 获取zip归档的构造器
+     * @return zip归档的构造器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * zip归档的构造器
+     */
+    public static class Builder {
+        /**
+         * 缓存总大小上限
+         */
+        private long cacheSize;
+
+        /**
+         * 缓存的最大条目大小
+         */
+        private int maxCachedEntrySize = DEFAULT_MAX_CACHED_ENTRY_SIZE;
+
+        private Builder() {}
+
+        /**
+         * 指定缓存总大小上限（不指定或者为0时不缓存）
+         * @param cacheSize 缓存总大小（字节）
+         * @return 构造器本身
+         */
+        public Builder cacheSize(long cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("缓存大小不能为负数！");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * 指定缓存的最大条目大小（不指定时为64KB），超过该大小的条目不缓存
+         * @param maxCachedEntrySize 最大条目大小（字节）
+         * @return 构造器本身
+         */
+        public Builder maxCachedEntrySize(int maxCachedEntrySize) {
+            if (maxCachedEntrySize < 0) {
+                throw new IllegalArgumentException("最大条目大小不能为负数！");
+            }
+            this.maxCachedEntrySize = maxCachedEntrySize;
+            return this;
+        }
+
+        /**
+         * 打开zip归档
+         * @param zipPath zip路径
+         * @return zip归档
+         */
+        public ZipArchive open(String zipPath) {
+            var file = new File(zipPath);
+            if (!file.isFile()) {
+                throw new RuntimeException("zip文件不存在：" + zipPath);
+            }
+            return new ZipArchive(file, cacheSize, maxCachedEntrySize);
+        }
+    }
+
+    /**
+     * 获取所有条目（按中央目录顺序）
+     * @return 条目列表
+     */
+    public List<Entry> entries() {
+        var res = new ArrayList<Entry>(index.size());
+        for (var entry : index.values()) {
+            res.add(toEntry(entry));
+        }
+        return res;
+    }
+
+    /**
+     * 获取条目信息
+     * @param name 条目名称
+     * @return 条目信息（不存在时返回null）
+     */
+    public Entry getEntry(String name) {
+        var entry = index.get(name);
+        return entry == null ? null : toEntry(entry);
+    }
+
+    /**
+     * 是否包含条目
+     * @param name 条目名称
+     * @return 是否包含
+     */
+    public boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * 获取条目数量
+     * @return 条目数量
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 读取条目的全部内容（小条目会被缓存）
+     * @param name 条目名称
+     * @return 条目内容
+     * @apiNote <pre>{@code
+     * byte[] bs = zip.readBytes("a/b.txt");
+     * }</pre>
+     */
+    public byte[] readBytes(String name) {
+        var entry = requireEntry(name);
+
+        var cached = getCached(name);
+        if (cached != null) {
+            return cached.clone();
+        }
+
+        byte[] bs;
+        try (var in = zipFile.getInputStream(entry)) {
+            bs = in.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("读取zip条目失败：" + name, e);
+        }
+
+        putCached(name, bs);
+        return bs;
+    }
+
+    /**
+     * 以流的方式读取条目（关闭zip归档时流也会被关闭）
+     * @param name 条目名称
+     * @return 条目输入流
+     * @apiNote <pre>{@code
+     * try (var in = zip.getInputStream("a/big.bin")) {
+     *     in.transferTo(out);
+     * }
+     * }</pre>
+     */
+    public InputStream getInputStream(String name) {
+        var entry = requireEntry(name);
+
+        var cached = getCached(name);
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+
+        try {
+            return zipFile.getInputStream(entry);
+        } catch (IOException e) {
+            throw new RuntimeException("读取zip条目失败：" + name, e);
+        }
+    }
+
+    /**
+     * 获取缓存命中次数
+     * @return 缓存命中次数
+     */
+    public long cacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取缓存未命中次数（只统计可以缓存的条目）
+     * @return 缓存未命中次数
+     */
+    public long cacheMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 关闭zip归档（同时关闭所有没有关闭的条目流）
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            Files.log(() -> "关闭zip文件失败：" + e.getMessage());
+        }
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * 获取条目，不存在时抛出异常
+     * @param name 条目名称
+     * @return 条目
+     */
+    private ZipEntry requireEntry(String name) {
+        if (closed) {
+            throw new IllegalStateException("zip归档已经关闭！");
+        }
+
+        var entry = index.get(name);
+        if (entry == null) {
+            throw new RuntimeException("zip中不存在条目：" + name);
+        }
+        return entry;
+    }
+
+    /**
+     * 从缓存中获取条目内容
+     * @param name 条目名称
+     * @return 条目内容（不在缓存中时返回null）
+     */
+    private byte[] getCached(String name) {
+        if (cacheSize == 0) {
+            return null;
+        }
+
+        byte[] bs;
+        synchronized (cache) {
+            bs = cache.get(name);
+        }
+        if (bs != null) {
+            hits.increment();
+        } else if (index.get(name).getSize() <= maxCachedEntrySize) {
+            misses.increment();
+        }
+        return bs;
+    }
+
+    /**
+     * 把小条目放入缓存，超过总大小上限时淘汰最久没有使用的条目
+     * @param name 条目名称
+     * @param bs 条目内容
+     */
+    private void putCached(String name, byte[] bs) {
+        if (cacheSize == 0 || bs.length > maxCachedEntrySize || bs.length > cacheSize) {
+            return;
+        }
+
+        // 缓存副本，避免调用者修改返回的数组
+        synchronized (cache) {
+            var old = cache.put(name, bs.clone());
+            cachedBytes += bs.length - (old == null ? 0 : old.length);
+
+            var it = cache.values().iterator();
+            while (cachedBytes > cacheSize && it.hasNext()) {
+                cachedBytes -= it.next().length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 转换为条目信息
+     * @param entry zip条目
+     * @return 条目信息
+     */
+    private static Entry toEntry(ZipEntry entry) {
+        return new Entry(entry.getName(), entry.getSize(), entry.getCompressedSize(), entry.getCrc(),
+                entry.getTime(), entry.isDirectory());
+    }
+}
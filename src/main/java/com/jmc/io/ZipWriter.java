@@ -0,0 +1,518 @@
+package com.jmc.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * zip文件的底层写入器 <br>
+ * 和ZipOutputStream不同，它直接写入已经压缩好的数据（由调用者提供CRC和长度），方便多线程压缩 <br>
+ * 写入顺序: 本地文件头 + 数据 -> 中央目录 -> （ZIP64结束记录） -> 结束记录 <br>
+ * 条目的CRC和长度在写完数据后才知道时：可定位的输出通道回填本地文件头，否则在数据后写入数据描述符
+ * @since 4.0
+ * @author Jmc
+ */
+final class ZipWriter {
+    /**
+     * 本地文件头标识
+     */
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    /**
+     * 中央目录文件头标识
+     */
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+
+    /**
+     * ZIP64中央目录结束记录标识
+     */
+    private static final int ZIP64_END_SIG = 0x06064b50;
+
+    /**
+     * ZIP64中央目录结束记录定位器标识
+     */
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+    /**
+     * 中央目录结束记录标识
+     */
+    private static final int END_SIG = 0x06054b50;
+
+    /**
+     * ZIP64扩展字段标识
+     */
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * 数据描述符标识
+     */
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+
+    /**
+     * 通用标志位: 文件名使用UTF-8编码
+     */
+    private static final short FLAG_UTF8 = 0x0800;
+
+    /**
+     * 通用标志位: CRC和长度在数据后的数据描述符中
+     */
+    private static final short FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    /**
+     * 长度预估超过该值时，预先在本地文件头中留出ZIP64扩展字段
+     */
+    private static final long ZIP64_HINT = 0xF0000000L;
+
+    /**
+     * 超过该值时需要使用ZIP64格式
+     */
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * 压缩方法: 储存
+     */
+    static final int STORED = 0;
+
+    /**
+     * 压缩方法: DEFLATE
+     */
+    static final int DEFLATED = 8;
+
+    /**
+     * 输出通道
+     */
+    private final WritableByteChannel out;
+
+    /**
+     * 当前写入位置
+     */
+    private long position;
+
+    /**
+     * 输出通道是否可以定位（可以回填本地文件头）
+     */
+    private final boolean seekable;
+
+    /**
+     * 已写入的条目（用于写入中央目录）
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * 正在写入的条目
+     */
+    private OpenEntry current;
+
+    /**
+     * 正在写入的条目信息
+     * @param name 条目名称
+     * @param method 压缩方法
+     * @param dosTime DOS格式的修改时间
+     * @param offset 本地文件头位置
+     * @param zip64 本地文件头是否包含ZIP64扩展字段
+     */
+    private record OpenEntry(byte[] name, int method, int dosTime, long offset, boolean zip64) {}
+
+    /**
+     * zip条目信息
+     * @param name 条目名称
+     * @param method 压缩方法
+     * @param dosTime DOS格式的修改时间
+     * @param crc CRC32校验值
+     * @param compressedSize 压缩后长度
+     * @param size 原始长度
+     * @param offset 本地文件头位置
+     * @param flags 通用标志位
+     */
+    record Entry(byte[] name, int method, int dosTime, long crc, long compressedSize, long size, long offset,
+                 short flags) {
+        /**
+         * 是否是文件夹
+         * @return 是否是文件夹
+         */
+        boolean isDirectory() {
+            return name.length > 0 && name[name.length - 1] == '/';
+        }
+
+        /**
+         * 是否需要ZIP64扩展
+         * @return 是否需要ZIP64扩展
+         */
+        boolean zip64() {
+            return size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC || offset >= ZIP64_MAGIC;
+        }
+    }
+
+    /**
+     * 创建zip写入器
+     * @param out 输出通道（可定位的通道从当前位置开始写入）
+     * @throws IOException 获取通道位置出错
+     */
+    ZipWriter(WritableByteChannel out) throws IOException {
+        this.out = out;
+        this.seekable = out instanceof SeekableByteChannel;
+        this.position = seekable ? ((SeekableByteChannel) out).position() : 0;
+    }
+
+    /**
+     * 获取当前写入位置
+     * @return 当前写入位置
+     */
+    long position() {
+        return position;
+    }
+
+    /**
+     * 写入一个CRC和长度已知的条目
+     * @param name 条目名称
+     * @param method 压缩方法
+     * @param time 修改时间（毫秒）
+     * @param crc CRC32校验值
+     * @param compressedSize 压缩后长度
+     * @param size 原始长度
+     * @param data 压缩后的数据块（按顺序）
+     * @throws IOException 写入出错
+     */
+    void writeEntry(String name, int method, long time, long crc, long compressedSize, long size,
+                    List<ByteBuffer> data) throws IOException {
+        var entry = new Entry(name.getBytes(StandardCharsets.UTF_8), method, dosTime(time),
+                crc, compressedSize, size, position, FLAG_UTF8);
+        boolean zip64 = size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC;
+        write(localHeader(entry, zip64));
+        for (var buff : data) {
+            write(buff);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * 写入一个文件夹条目
+     * @param name 条目名称（以/结尾）
+     * @param time 修改时间（毫秒）
+     * @throws IOException 写入出错
+     */
+    void writeDir(String name, long time) throws IOException {
+        writeEntry(name, STORED, time, 0, 0, 0, List.of());
+    }
+
+    /**
+     * 开始写入一个CRC和长度未知的条目（之后调用write写入数据，最后调用endEntry结束）
+     * @param name 条目名称
+     * @param method 压缩方法
+     * @param time 修改时间（毫秒）
+     * @param sizeHint 预估的原始长度（用于决定是否预留ZIP64扩展字段）
+     * @throws IOException 写入出错
+     */
+    void beginEntry(String name, int method, long time, long sizeHint) throws IOException {
+        if (current != null) {
+            throw new IllegalStateException("上一个条目还没有结束！");
+        }
+
+        // 不可定位的通道只能在数据后写入数据描述符，DEFLATE之外的压缩方法无法被流式读取
+        if (!seekable && method != DEFLATED) {
+            throw new IllegalStateException("不可定位的输出通道只能流式写入DEFLATE条目！");
+        }
+
+        // 压缩后长度可能略大于原始长度，需要留出余量
+        boolean zip64 = sizeHint >= ZIP64_HINT;
+        current = new OpenEntry(name.getBytes(StandardCharsets.UTF_8), method, dosTime(time), position, zip64);
+
+        var entry = new Entry(current.name(), method, current.dosTime(), 0, 0, 0, position, flags());
+        write(localHeader(entry, zip64));
+    }
+
+    /**
+     * 结束正在写入的条目（回填本地文件头或者写入数据描述符）
+     * @param crc CRC32校验值
+     * @param compressedSize 压缩后长度
+     * @param size 原始长度
+     * @throws IOException 写入出错
+     */
+    void endEntry(long crc, long compressedSize, long size) throws IOException {
+        var open = current;
+        current = null;
+
+        var entry = new Entry(open.name(), open.method(), open.dosTime(), crc, compressedSize, size,
+                open.offset(), flags());
+        if (!open.zip64() && (size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC)) {
+            throw new IOException("条目长度超过预估，无法写入ZIP64格式：" + new String(open.name(), StandardCharsets.UTF_8));
+        }
+
+        if (seekable) {
+            // 回填本地文件头
+            var channel = (SeekableByteChannel) out;
+            var header = localHeader(entry, open.zip64());
+            channel.position(open.offset());
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.position(position);
+        } else {
+            var buff = buffer(24);
+            buff.putInt(DATA_DESCRIPTOR_SIG).putInt((int) crc);
+            if (open.zip64()) {
+                buff.putLong(compressedSize).putLong(size);
+            } else {
+                buff.putInt((int) compressedSize).putInt((int) size);
+            }
+            write(buff.flip());
+        }
+
+        entries.add(entry);
+    }
+
+    /**
+     * 获取流式条目的通用标志位
+     * @return 通用标志位
+     */
+    private short flags() {
+        return seekable ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR;
+    }
+
+    /**
+     * 写入中央目录和结束记录，不关闭输出通道
+     * @throws IOException 写入出错
+     */
+    void finish() throws IOException {
+        long cdOffset = position;
+        for (var entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long cdSize = position - cdOffset;
+        int count = entries.size();
+
+        boolean zip64 = count >= 0xFFFF || cdOffset >= ZIP64_MAGIC || cdSize >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = position;
+
+            var buff = buffer(56 + 20);
+            // ZIP64中央目录结束记录
+            buff.putInt(ZIP64_END_SIG)
+                .putLong(44)
+                .putShort((short) 45)
+                .putShort((short) 45)
+                .putInt(0)
+                .putInt(0)
+                .putLong(count)
+                .putLong(count)
+                .putLong(cdSize)
+                .putLong(cdOffset);
+            // ZIP64中央目录结束记录定位器
+            buff.putInt(ZIP64_LOCATOR_SIG)
+                .putInt(0)
+                .putLong(zip64EndOffset)
+                .putInt(1);
+            write(buff.flip());
+        }
+
+        var buff = buffer(22);
+        buff.putInt(END_SIG)
+            .putShort((short) 0)
+            .putShort((short) 0)
+            .putShort((short) Math.min(count, 0xFFFF))
+            .putShort((short) Math.min(count, 0xFFFF))
+            .putInt((int) Math.min(cdSize, ZIP64_MAGIC))
+            .putInt((int) Math.min(cdOffset, ZIP64_MAGIC))
+            .putShort((short) 0);
+        write(buff.flip());
+    }
+
+    /**
+     * 生成本地文件头
+     * @param entry 条目信息
+     * @param zip64 是否包含ZIP64扩展字段（必须同时包含原始长度和压缩后长度）
+     * @return 本地文件头
+     */
+    private static ByteBuffer localHeader(Entry entry, boolean zip64) {
+        var buff = buffer(30 + entry.name().length + (zip64 ? 20 : 0));
+        buff.putInt(LOCAL_HEADER_SIG)
+            .putShort((short) (zip64 ? 45 : 20))
+            .putShort(entry.flags())
+            .putShort((short) entry.method())
+            .putInt(entry.dosTime())
+            .putInt((int) entry.crc())
+            .putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize()))
+            .putInt((int) (zip64 ? ZIP64_MAGIC : entry.size()))
+            .putShort((short) entry.name().length)
+            .putShort((short) (zip64 ? 20 : 0))
+            .put(entry.name());
+        if (zip64) {
+            buff.putShort(ZIP64_EXTRA_ID)
+                .putShort((short) 16)
+                .putLong(entry.size())
+                .putLong(entry.compressedSize());
+        }
+        return buff.flip();
+    }
+
+    /**
+     * 写入中央目录文件头
+     * @param entry 条目信息
+     * @throws IOException 写入出错
+     */
+    private void writeCentralHeader(Entry entry) throws IOException {
+        // 中央目录的ZIP64扩展字段只包含超出范围的值（按原始长度，压缩后长度，偏移量的顺序）
+        boolean sizeOver = entry.size() >= ZIP64_MAGIC,
+                compressedSizeOver = entry.compressedSize() >= ZIP64_MAGIC,
+                offsetOver = entry.offset() >= ZIP64_MAGIC;
+        int extraLen = (sizeOver ? 8 : 0) + (compressedSizeOver ? 8 : 0) + (offsetOver ? 8 : 0);
+        if (extraLen > 0) {
+            extraLen += 4;
+        }
+
+        var buff = buffer(46 + entry.name().length + extraLen);
+        buff.putInt(CENTRAL_HEADER_SIG)
+            .putShort((short) 45)
+            .putShort((short) (entry.zip64() ? 45 : 20))
+            .putShort(entry.flags())
+            .putShort((short) entry.method())
+            .putInt(entry.dosTime())
+            .putInt((int) entry.crc())
+            .putInt((int) (compressedSizeOver ? ZIP64_MAGIC : entry.compressedSize()))
+            .putInt((int) (sizeOver ? ZIP64_MAGIC : entry.size()))
+            .putShort((short) entry.name().length)
+            .putShort((short) extraLen)
+            .putShort((short) 0)
+            .putShort((short) 0)
+            .putShort((short) 0)
+            .putInt(entry.isDirectory() ? 0x10 : 0)
+            .putInt((int) (offsetOver ? ZIP64_MAGIC : entry.offset()))
+            .put(entry.name());
+        if (extraLen > 0) {
+            buff.putShort(ZIP64_EXTRA_ID).putShort((short) (extraLen - 4));
+            if (sizeOver) {
+                buff.putLong(entry.size());
+            }
+            if (compressedSizeOver) {
+                buff.putLong(entry.compressedSize());
+            }
+            if (offsetOver) {
+                buff.putLong(entry.offset());
+            }
+        }
+        write(buff.flip());
+    }
+
+    /**
+     * 写入数据并更新写入位置
+     * @param buff 数据
+     * @throws IOException 写入出错
+     */
+    void write(ByteBuffer buff) throws IOException {
+        while (buff.hasRemaining()) {
+            position += out.write(buff);
+        }
+    }
+
+    /**
+     * 创建小端序的缓冲区
+     * @param capacity 容量
+     * @return 缓冲区
+     */
+    private static ByteBuffer buffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 把毫秒时间转换为DOS格式时间（低16位是时间，高16位是日期）
+     * @param time 毫秒时间
+     * @return DOS格式时间
+     */
+    static int dosTime(long time) {
+        var t = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (t.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (t.getYear() - 1980) << 25
+                | t.getMonthValue() << 21
+                | t.getDayOfMonth() << 16
+                | t.getHour() << 11
+                | t.getMinute() << 5
+                | t.getSecond() >> 1;
+    }
+
+    /**
+     * 合并两段数据的CRC32（移植自zlib的crc32_combine）
+     * @param crc1 第一段数据的CRC32
+     * @param crc2 第二段数据的CRC32
+     * @param len2 第二段数据的长度
+     * @return 两段数据连接后的CRC32
+     */
+    static long crc32Combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+
+        var even = new long[32];
+        var odd = new long[32];
+
+        // 奇数次幂的矩阵：一个0比特的运算
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // 两个0比特的运算
+        gf2MatrixSquare(even, odd);
+        // 四个0比特的运算
+        gf2MatrixSquare(odd, even);
+
+        // 对crc1补len2个0字节
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+
+            if (len2 == 0) {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    /**
+     * GF(2)矩阵乘以向量
+     * @param mat 矩阵
+     * @param vec 向量
+     * @return 结果向量
+     */
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * GF(2)矩阵平方
+     * @param square 结果矩阵
+     * @param mat 矩阵
+     */
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
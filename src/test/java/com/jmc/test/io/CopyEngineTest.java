@@ -0,0 +1,91 @@
+package com.jmc.test.io;
+
+import com.jmc.io.CopyEngine;
+import com.jmc.io.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class CopyEngineTest {
+    @Test
+    public void copyDirTest() {
+        var srcDir = Files.createTempDir("copy_engine_src");
+        var desDir = Files.createTempDir("copy_engine_des");
+
+        // 在源文件夹中创建多层文件
+        for (int i = 0; i < 100; i++) {
+            Files.out("file" + i, srcDir + "/sub" + (i % 3) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.mkdirs(srcDir + "/empty");
+
+        // 指定并发数和队列容量复制文件夹
+        var stats = CopyEngine.builder()
+                .parallelism(2)
+                .queueCapacity(1)
+                .build()
+                .copy(srcDir, desDir);
+        System.out.println(stats);
+
+        var copied = desDir + "/copy_engine_src";
+        Assert.assertEquals(100, stats.files());
+        Assert.assertEquals(Files.getLength(srcDir), stats.bytes());
+        Assert.assertEquals("file42", Files.read(copied + "/sub0/42.txt", StandardCharsets.UTF_8));
+        Assert.assertTrue(Files.isDir(copied + "/empty"));
+
+        Files.delete(srcDir, desDir);
+    }
+
+    @Test
+    public void virtualThreadsTest() {
+        var srcDir = Files.createTempDir("copy_engine_vt_src");
+        var desDir = Files.createTempDir("copy_engine_vt_des");
+
+        for (int i = 0; i < 10; i++) {
+            Files.out("file" + i, srcDir + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+
+        // 使用虚拟线程复制（低版本Java自动回退到平台线程）
+        var stats = CopyEngine.builder()
+                .virtualThreads(true)
+                .build()
+                .copy(srcDir, desDir);
+
+        Assert.assertEquals(10, stats.files());
+        Assert.assertEquals("file7", Files.read(desDir + "/copy_engine_vt_src/7.txt", StandardCharsets.UTF_8));
+
+        Files.delete(srcDir, desDir);
+    }
+
+    @Test
+    public void copyFailedTest() {
+        var srcDir = Files.createTempDir("copy_engine_fail_src");
+        var desDir = Files.createTempDir("copy_engine_fail_des");
+
+        for (int i = 0; i < 10; i++) {
+            Files.out("file" + i, srcDir + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        // 目标位置已经有同名文件夹，这个文件复制失败
+        Files.mkdirs(desDir + "/copy_engine_fail_src/3.txt");
+
+        // 只统计复制成功的文件，失败的文件单独计数
+        var stats = CopyEngine.builder().build().copy(srcDir, desDir);
+        Assert.assertEquals(9, stats.files());
+        Assert.assertEquals(45, stats.bytes());
+        Assert.assertEquals(1, stats.failed());
+
+        // 复制单个文件失败
+        stats = CopyEngine.builder().build().copy(srcDir + "/3.txt", desDir + "/copy_engine_fail_src");
+        Assert.assertEquals(0, stats.files());
+        Assert.assertEquals(0, stats.bytes());
+        Assert.assertEquals(1, stats.failed());
+
+        Files.delete(srcDir, desDir);
+    }
+
+    @Test
+    public void detectParallelismTest() {
+        // 自动识别当前目录所在存储设备的并发数
+        Assert.assertTrue(CopyEngine.detectParallelism(".") > 0);
+    }
+}
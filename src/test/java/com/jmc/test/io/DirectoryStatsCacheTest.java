@@ -0,0 +1,58 @@
+package com.jmc.test.io;
+
+import com.jmc.io.DirectoryStatsCache;
+import com.jmc.io.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BooleanSupplier;
+
+public class DirectoryStatsCacheTest {
+    @Test
+    public void cacheTest() throws Exception {
+        var dir = Files.createTempDir("stats_cache");
+        for (int i = 0; i < 10; i++) {
+            Files.out("file" + i, dir + "/sub" + (i % 2) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+
+        try (var cache = DirectoryStatsCache.of(dir)) {
+            // 初始扫描结果和getFileInfo一致
+            Assert.assertEquals(Files.getFileInfo(dir), cache.getFileInfo());
+            Assert.assertEquals(25, cache.getLength(dir + "/sub0"));
+            Assert.assertEquals(5, cache.getLength(dir + "/sub1/1.txt"));
+
+            // 新建文件和文件夹后自动更新
+            Files.out("66666", dir + "/sub0/new.txt", StandardCharsets.UTF_8, false);
+            Files.out("666", dir + "/sub2/deep/a.txt", StandardCharsets.UTF_8, false);
+            waitUntil(() -> cache.getLength() == 58);
+            Assert.assertEquals(Files.getFileInfo(dir), cache.getFileInfo());
+
+            // 删除文件夹后自动更新
+            Files.delete(dir + "/sub1");
+            waitUntil(() -> cache.getLength() == 33);
+            Assert.assertEquals(Files.getFileInfo(dir), cache.getFileInfo());
+
+            // 根据缓存生成树状图
+            var tree = cache.tree(dir, 1, 0);
+            Assert.assertEquals(33, tree.getLength());
+            Assert.assertEquals(2, tree.getSubFileTrees().size());
+        }
+
+        Files.delete(dir);
+    }
+
+    /**
+     * 等待条件成立（最多10秒）
+     * @param condition 条件
+     */
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.jmc.test.io;
+
+import com.jmc.io.FileAppender;
+import com.jmc.io.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FileAppenderTest {
+    @Test
+    public void appendTest() throws Exception {
+        var dir = Files.createTempDir("appender");
+        var path = dir + "/a.log";
+
+        // 多个线程同时追加
+        try (var appender = Files.appender(path)) {
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 8; t++) {
+                int id = t;
+                var thread = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        appender.append(id + "-" + i + "\n");
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (var thread : threads) {
+                thread.join();
+            }
+
+            // flush后之前的记录都已经写入文件
+            appender.flush();
+            Assert.assertEquals(8000, appender.written());
+            Assert.assertEquals(8000, Files.lines(path).count());
+        }
+
+        // 每条线程的记录保持追加顺序
+        var lines = Files.lines(path).filter(s -> s.startsWith("3-")).toList();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("3-" + i, lines.get(i));
+        }
+
+        // 追加到已有文件，每10条记录刷盘一次
+        try (var appender = FileAppender.builder().syncEveryRecords(10).open(path)) {
+            appender.append("last\n");
+        }
+        Assert.assertEquals(8001, Files.lines(path).count());
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void closedTest() {
+        var dir = Files.createTempDir("appender_closed");
+        var path = dir + "/a.log";
+
+        var appender = FileAppender.builder().syncIntervalMillis(5).open(path);
+        appender.append("a");
+        appender.close();
+        Assert.assertEquals("a", Files.read(path));
+        Assert.assertThrows(IllegalStateException.class, () -> appender.append("b"));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void appendWhileCloseTest() throws Exception {
+        var dir = Files.createTempDir("appender_race_" + System.nanoTime());
+
+        try {
+            for (int round = 0; round < 20; round++) {
+                var path = dir + "/" + round + ".log";
+                var appender = Files.appender(path);
+                var accepted = new LongAdder();
+
+                var threads = new ArrayList<Thread>();
+                for (int t = 0; t < 4; t++) {
+                    var thread = new Thread(() -> {
+                        try {
+                            while (true) {
+                                appender.append("x\n");
+                                accepted.increment();
+                            }
+                        } catch (IllegalStateException ignored) {
+                            // 已经关闭
+                        }
+                    });
+                    threads.add(thread);
+                    thread.start();
+                }
+
+                // 追加和关闭同时进行，成功追加的记录都必须写入文件（关闭可能先于所有追加，此时文件为空）
+                Thread.sleep(2);
+                appender.close();
+                for (var thread : threads) {
+                    thread.join();
+                }
+                Assert.assertEquals(accepted.sum(), appender.written());
+                Assert.assertEquals(accepted.sum() * 2, new File(path).length());
+            }
+        } finally {
+            Files.delete(dir);
+        }
+    }
+}
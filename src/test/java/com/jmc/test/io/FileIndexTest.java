@@ -0,0 +1,56 @@
+package com.jmc.test.io;
+
+import com.jmc.io.FileIndex;
+import com.jmc.io.Files;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class FileIndexTest {
+    @Test
+    public void indexTest() throws Exception {
+        var dir = Files.createTempDir("file_index");
+        var indexDir = Files.createTempDir("file_index_out");
+        var indexPath = indexDir + "/a.idx";
+
+        for (int i = 0; i < 100; i++) {
+            Files.out("file" + i, dir + "/sub" + (i % 4) + "/" + (i % 2 == 0 ? "jmc" : "utils") + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+
+        // 把文件夹的修改时间改到一小时前，重新建立索引时可以复用
+        for (var d : Files.findDirs(dir, "sub")) {
+            java.nio.file.Files.setLastModifiedTime(d.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 3600_000));
+        }
+
+        // 4个文件夹和100个文件
+        Assert.assertEquals(104, Files.buildIndex(dir, indexPath));
+
+        var index = FileIndex.open(indexPath);
+        Assert.assertEquals(Path.of(dir).toAbsolutePath().normalize(), index.root());
+        Assert.assertEquals(50, index.findFiles("jmc").size());
+        Assert.assertEquals(100, index.findFiles().size());
+        Assert.assertEquals(4, index.findDirs().size());
+        Assert.assertEquals(Files.findFiles(dir, "utils1").size(), index.findFiles("utils1").size());
+
+        // 按前缀查询
+        var sub1 = index.findByPrefix("sub1/");
+        Assert.assertEquals(25, sub1.size());
+        Assert.assertTrue(sub1.stream().allMatch(f -> f.getParentFile().getName().equals("sub1")));
+        Assert.assertEquals(0, index.findByPrefix("none").size());
+
+        // 增量更新：只有sub1的修改时间变化
+        Files.out("new", dir + "/sub1/jmc_new.txt", StandardCharsets.UTF_8, false);
+        Files.delete(dir + "/sub1/utils1.txt");
+        Assert.assertEquals(104, Files.buildIndex(dir, indexPath));
+
+        index = FileIndex.open(indexPath);
+        Assert.assertEquals(new File(dir, "sub1/jmc_new.txt"), index.findFiles("jmc_new").get(0));
+        Assert.assertTrue(index.findFiles("utils1.txt").isEmpty());
+
+        Files.delete(dir, indexDir);
+    }
+}
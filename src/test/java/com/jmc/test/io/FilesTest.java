@@ -1,10 +1,22 @@
 package com.jmc.test.io;
 
 import com.jmc.io.Files;
+import com.jmc.io.HashCache;
+import com.jmc.io.IoMetrics;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 
 public class FilesTest {
@@ -16,6 +28,17 @@ public class FilesTest {
                 + fileName;
     }
 
+    // 获取和临时文件夹不在同一个文件系统中的文件夹（Linux的/dev/shm，没有时返回null）
+    private String getOtherFileStoreDir() throws IOException {
+        var shm = Path.of("/dev/shm");
+        var tmp = Path.of(System.getProperty("java.io.tmpdir"));
+        if (!java.nio.file.Files.isDirectory(shm)
+                || java.nio.file.Files.getFileStore(shm).equals(java.nio.file.Files.getFileStore(tmp))) {
+            return null;
+        }
+        return shm.toString();
+    }
+
     @Test
     public void readAndOutTest() {
         var path = getFilePath("a.txt");
@@ -56,6 +79,92 @@ public class FilesTest {
         Assert.assertFalse(Files.exists(path));
     }
 
+    @Test
+    public void mapTest() {
+        var path = getFilePath("map.txt");
+        Files.out("hello", path);
+
+        Assert.assertArrayEquals("hello".getBytes(), Files.readToBytes(path));
+        var buff = Files.map(path);
+        Assert.assertEquals(5, buff.capacity());
+        Assert.assertEquals('e', buff.get(1));
+        Assert.assertEquals(1, Files.mapSegments(path).size());
+
+        // 大文件分块解码（多字节字符跨越缓冲区边界）
+        var s = "中文abc\n".repeat(2 * 1024 * 1024);
+        Files.out(s, path);
+        Assert.assertEquals(s, Files.read(path));
+        Files.out(s, path, StandardCharsets.UTF_16, false);
+        Assert.assertEquals(s, Files.read(path, StandardCharsets.UTF_16));
+        Files.out(s, path);
+        Assert.assertEquals(s.getBytes(StandardCharsets.UTF_8).length, Files.readToBytes(path).length);
+
+        Assert.assertThrows(RuntimeException.class, () -> Files.readToBytes(getFilePath("not_exists.txt")));
+
+        Files.delete(path);
+        Assert.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void parallelLinesTest() {
+        var path = getFilePath("big_lines.txt");
+        var sb = new StringBuilder();
+        var random = new Random(666);
+        for (int i = 0; i < 200000; i++) {
+            sb.append("第").append(i).append("行").append("x".repeat(random.nextInt(30)));
+            sb.append(i % 7 == 0 ? "\r\n" : i % 11 == 0 ? "\n\n" : "\n");
+        }
+        sb.append("\n\n");
+        var content = sb.toString();
+        Files.out(content, path);
+
+        // 并行处理时保持行的顺序，结果和split("\n")一致
+        var expected = java.util.Arrays.asList(content.split("\n"));
+        try (var lines = Files.lines(path)) {
+            Assert.assertEquals(expected, lines.parallel().toList());
+        }
+        try (var lines = Files.lines(path)) {
+            Assert.assertEquals(expected.size(), lines.count());
+        }
+
+        // 超过读取窗口的长行
+        var longLines = "a\n" + "y".repeat(3 * 1024 * 1024) + "\nb\n" + "z".repeat(1024 * 1024 + 1);
+        Files.out(longLines, path);
+        try (var lines = Files.lines(path)) {
+            Assert.assertEquals(java.util.Arrays.asList(longLines.split("\n")), lines.parallel().toList());
+        }
+
+        Files.delete(path);
+        Assert.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void lazyLinesTest() {
+        var path = getFilePath("lines.txt");
+        // 和split("\n")的结果一致（保留\r，去掉末尾空行）
+        var contents = new String[] {
+                "", "\n", "\n\n", "a", "a\n", "a\n\n\nb\n\n", "\na\r\nb", "中文\n", "x".repeat(20000) + "\ny"
+        };
+        for (var content : contents) {
+            Files.out(content, path);
+            Assert.assertArrayEquals(content.split("\n"), Files.lines(path).toArray(String[]::new));
+        }
+
+        // 使用GBK编码
+        Files.out("你好\n世界", path, java.nio.charset.Charset.forName("GBK"), false);
+        Assert.assertArrayEquals(new String[] {"你好", "世界"},
+                Files.lines(path, java.nio.charset.Charset.forName("GBK")).toArray(String[]::new));
+
+        // 只读取前几行，关闭流时关闭文件
+        Files.out("1\n2\n3\n4", path);
+        try (var lines = Files.lines(path)) {
+            Assert.assertEquals(java.util.List.of("1", "2"), lines.limit(2).toList());
+        }
+
+        Files.delete(path);
+        Assert.assertFalse(Files.exists(path));
+    }
+
     @Test
     public void createTempTest() {
         // 创建临时文件a.txt
@@ -95,6 +204,137 @@ public class FilesTest {
         Assert.assertFalse(Files.exists("test"));
     }
 
+    @Test
+    public void copyRangedTest() {
+        // 生成64MB多一点的随机文件（长度不按1MB对齐）
+        var bs = new byte[64 * 1024 * 1024 + 12345];
+        new Random(666).nextBytes(bs);
+
+        var srcPath = getFilePath("big.bin");
+        Files.out(bs, srcPath, false);
+
+        // 不同分段数复制的结果都和源文件相同
+        for (int ranges : new int[] {1, 2, 4, 8}) {
+            var desDir = getFilePath("ranged" + ranges);
+            var stats = Files.copyRanged(srcPath, desDir, ranges);
+            Assert.assertEquals(1, stats.files());
+            Assert.assertEquals(bs.length, stats.bytes());
+
+            Assert.assertArrayEquals(bs, Files.readToBytes(desDir + "/big.bin"));
+            Files.delete(desDir);
+        }
+
+        // 复制失败时抛出异常（目标位置是文件夹）
+        var failDir = getFilePath("ranged_fail");
+        Files.mkdirs(failDir + "/big.bin");
+        Assert.assertThrows(RuntimeException.class, () -> Files.copyRanged(srcPath, failDir, 4));
+        Files.delete(failDir);
+
+        Files.delete(srcPath);
+        Assert.assertFalse(Files.exists(srcPath));
+    }
+
+    @Test
+    public void syncTest() {
+        var srcDir = getFilePath("sync");
+        var desDir = getFilePath("sync_des");
+        Files.out("a", srcDir + "/a.txt", false);
+        Files.out("b", srcDir + "/sub/b.txt", false);
+
+        // 第一次同步复制所有文件
+        var res = Files.sync(srcDir, desDir);
+        Assert.assertEquals(2, res.copied());
+        Assert.assertEquals(0, res.skipped());
+
+        // 没有变化时跳过所有文件
+        res = Files.sync(srcDir, desDir);
+        Assert.assertEquals(0, res.copied());
+        Assert.assertEquals(2, res.skipped());
+
+        // 修改一个文件，删除一个文件，比较文件内容并删除多余文件
+        Files.out("c", srcDir + "/a.txt", false);
+        Files.delete(srcDir + "/sub/b.txt");
+        var options = Files.SyncOptions.builder()
+                .checksum(true)
+                .delete(true)
+                .build();
+        res = Files.sync(srcDir, desDir, options);
+        Assert.assertEquals(1, res.copied());
+        Assert.assertEquals(1, res.deleted());
+        Assert.assertEquals("c", Files.read(desDir + "/sync/a.txt", StandardCharsets.UTF_8));
+        Assert.assertFalse(Files.exists(desDir + "/sync/sub/b.txt"));
+
+        // 一个文件夹中的大量文件分批同步
+        for (int i = 0; i < 200; i++) {
+            Files.out(String.valueOf(i), srcDir + "/flat/" + i + ".txt", false);
+        }
+        res = Files.sync(srcDir, desDir);
+        Assert.assertEquals(200, res.copied());
+        Assert.assertEquals(1, res.skipped());
+        Assert.assertEquals("123", Files.read(desDir + "/sync/flat/123.txt", StandardCharsets.UTF_8));
+
+        // 类型不同时删除目标文件夹，其中每个子项都计入删除数量
+        Files.delete(srcDir + "/flat");
+        Files.out("flat", srcDir + "/flat", false);
+        res = Files.sync(srcDir, desDir);
+        Assert.assertEquals(1, res.copied());
+        Assert.assertEquals(201, res.deleted());
+        Assert.assertEquals("flat", Files.read(desDir + "/sync/flat", StandardCharsets.UTF_8));
+
+        // 复制失败（目标父路径是文件）时计数，不抛出异常
+        Files.out("x", desDir + "/not_dir", false);
+        res = Files.sync(srcDir + "/a.txt", desDir + "/not_dir");
+        Assert.assertEquals(0, res.copied());
+        Assert.assertEquals(1, res.failed());
+        Assert.assertEquals(0, res.copiedBytes());
+
+        Files.delete(srcDir, desDir);
+        Assert.assertFalse(Files.exists(srcDir));
+        Assert.assertFalse(Files.exists(desDir));
+    }
+
+    @Test
+    public void deltaCopyTest() {
+        var bs = new byte[4 * 1024 * 1024 + 100];
+        var random = new Random(666);
+        random.nextBytes(bs);
+
+        var srcPath = getFilePath("delta.bin");
+        var desPath = getFilePath("delta_des.bin");
+        Files.out(bs, srcPath, false);
+        Files.out(bs, desPath, false);
+
+        // 修改源文件中的几个字节
+        bs[100] ^= 1;
+        bs[3 * 1024 * 1024] ^= 1;
+        Files.out(bs, srcPath, false);
+
+        var res = Files.deltaCopy(srcPath, desPath);
+        System.out.println(res);
+        Assert.assertArrayEquals(bs, Files.readToBytes(desPath));
+        // 只写入了变化的块
+        Assert.assertTrue(res.transferredBytes() < bs.length / 100);
+        Assert.assertEquals(bs.length, res.matchedBytes() + res.transferredBytes());
+
+        // 在源文件开头插入数据，后面的块位置都变了，需要原地重写
+        var inserted = new byte[bs.length + 10];
+        System.arraycopy(bs, 0, inserted, 10, bs.length);
+        Files.out(inserted, srcPath, false);
+
+        res = Files.deltaCopy(srcPath, desPath);
+        System.out.println(res);
+        Assert.assertArrayEquals(inserted, Files.readToBytes(desPath));
+        Assert.assertEquals(inserted.length, res.matchedBytes() + res.transferredBytes());
+        Assert.assertTrue(res.matchedBytes() < bs.length / 100);
+
+        // 目标文件不存在，复制失败时抛出异常（目标父路径是文件）
+        Assert.assertThrows(RuntimeException.class, () -> Files.deltaCopy(srcPath, desPath + "/a.bin"));
+
+        Files.delete(srcPath, desPath);
+        Assert.assertFalse(Files.exists(srcPath));
+        Assert.assertFalse(Files.exists(desPath));
+    }
+
     @Test
     public void moveAndRenameTest() {
         var path = getFilePath("test/a.txt");
@@ -140,6 +380,145 @@ public class FilesTest {
         Assert.assertFalse(Files.exists(zipPath));
     }
 
+    @Test
+    public void storeModeZipTest() throws Exception {
+        var dir = Files.createTempDir("store_zip");
+        var bs = new byte[3 * 1024 * 1024 + 7];
+        new Random(666).nextBytes(bs);
+        Files.out(bs, dir + "/a.bin", false);
+        Files.out("666", dir + "/sub/b.txt", StandardCharsets.UTF_8, false);
+        Files.mkdirs(dir + "/empty");
+
+        // 以储存模式压缩
+        var zipPath = dir + ".zip";
+        Files.zip(dir, zipPath, true);
+
+        var name = new java.io.File(dir).getName();
+        try (var zip = new java.util.zip.ZipFile(zipPath)) {
+            var entry = zip.getEntry(name + "/a.bin");
+            Assert.assertEquals(java.util.zip.ZipEntry.STORED, entry.getMethod());
+            Assert.assertEquals(bs.length, entry.getCompressedSize());
+            Assert.assertArrayEquals(bs, zip.getInputStream(entry).readAllBytes());
+            Assert.assertTrue(zip.getEntry(name + "/empty/").isDirectory());
+        }
+
+        var unzipDir = Files.createTempDir("store_unzip");
+        Files.unzip(zipPath, unzipDir);
+        Assert.assertEquals("666", Files.read(unzipDir + "/" + name + "/sub/b.txt"));
+
+        Files.delete(dir, zipPath, unzipDir);
+    }
+
+    @Test
+    public void parallelZipTest() throws Exception {
+        var dir = Files.createTempDir("parallel_zip");
+        // 大文件前半部分随机，后半部分重复，会被分成多块压缩
+        var bs = new byte[5 * 1024 * 1024 + 123];
+        new Random(666).nextBytes(bs);
+        for (int i = bs.length / 2; i < bs.length; i++) {
+            bs[i] = (byte) (i % 7);
+        }
+        Files.out(bs, dir + "/big.bin", false);
+        for (int i = 0; i < 20; i++) {
+            Files.out("file" + i, dir + "/sub/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.out("", dir + "/zero.txt", StandardCharsets.UTF_8, false);
+        Files.mkdirs(dir + "/empty");
+
+        var zipPath = dir + ".zip";
+        var stats = Files.zip(dir, zipPath, 4, -1);
+        System.out.println(stats);
+        Assert.assertEquals(22, stats.files());
+
+        // 用标准的ZipFile读取
+        var name = new java.io.File(dir).getName();
+        try (var zip = new java.util.zip.ZipFile(zipPath)) {
+            Assert.assertEquals(23, zip.size());
+            Assert.assertTrue(zip.getEntry(name + "/empty/").isDirectory());
+            Assert.assertArrayEquals(bs, zip.getInputStream(zip.getEntry(name + "/big.bin")).readAllBytes());
+            Assert.assertEquals("file7", new String(zip.getInputStream(zip.getEntry(name + "/sub/7.txt")).readAllBytes()));
+            Assert.assertEquals(0, zip.getEntry(name + "/zero.txt").getSize());
+        }
+
+        // 解压后内容一致
+        var unzipDir = Files.createTempDir("parallel_unzip");
+        Files.unzip(zipPath, unzipDir);
+        Assert.assertArrayEquals(bs, Files.readToBytes(unzipDir + "/" + name + "/big.bin"));
+
+        Files.delete(dir, zipPath, unzipDir);
+    }
+
+    @Test
+    public void streamZipTest() throws Exception {
+        var dir = Files.createTempDir("stream_zip");
+        var bs = new byte[3 * 1024 * 1024 + 5];
+        new Random(666).nextBytes(bs);
+        Files.out(bs, dir + "/big.bin", false);
+        Files.out("666", dir + "/sub/a.txt", StandardCharsets.UTF_8, false);
+
+        // 一边遍历一边压缩，写入不可定位的输出流
+        var bos = new java.io.ByteArrayOutputStream();
+        try (var paths = java.nio.file.Files.walk(java.nio.file.Path.of(dir))) {
+            var stats = Files.zip(paths, dir, bos, 2, 6);
+            Assert.assertEquals(2, stats.files());
+        }
+
+        // 用流式读取验证（多块的条目带有数据描述符）
+        var contents = new java.util.HashMap<String, byte[]>();
+        try (var in = new java.util.zip.ZipInputStream(new java.io.ByteArrayInputStream(bos.toByteArray()))) {
+            java.util.zip.ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                contents.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        Assert.assertArrayEquals(bs, contents.get("big.bin"));
+        Assert.assertEquals("666", new String(contents.get("sub/a.txt")));
+        Assert.assertTrue(contents.containsKey("sub/"));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void dirInfoTest() {
+        var dir = Files.createTempDir("dir_info");
+
+        // 多层文件夹中的文件
+        for (int i = 0; i < 50; i++) {
+            Files.out("file" + i, dir + "/sub" + (i % 5) + "/deep" + (i % 2) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.mkdirs(dir + "/empty");
+
+        var info = Files.getFileInfo(dir);
+        Assert.assertEquals(50, info.fileCount());
+        Assert.assertEquals(16, info.dirCount());
+        Assert.assertEquals(10 * 5 + 40 * 6, info.totalLength());
+        Assert.assertEquals(info.totalLength(), Files.getLength(dir));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void dirInfoLinkTest() throws Exception {
+        var dir = Files.createTempDir("dir_info_link");
+        Files.out("abc", dir + "/a/x.txt");
+        var root = java.nio.file.Path.of(dir);
+
+        // 文件链接，文件夹链接，指向根文件夹的循环链接和失效的链接
+        java.nio.file.Files.createSymbolicLink(root.resolve("a/link.txt"), root.resolve("a/x.txt"));
+        java.nio.file.Files.createSymbolicLink(root.resolve("b"), root.resolve("a"));
+        java.nio.file.Files.createSymbolicLink(root.resolve("loop"), root);
+        java.nio.file.Files.createSymbolicLink(root.resolve("broken"), root.resolve("not_exists"));
+
+        // 和File.isDirectory()/File.length()一样跟随链接，循环链接不展开
+        var info = Files.getFileInfo(dir);
+        Assert.assertEquals(5, info.fileCount());
+        Assert.assertEquals(3, info.dirCount());
+        Assert.assertEquals(12, info.totalLength());
+        Assert.assertEquals(12, Files.getLength(dir));
+
+        Files.delete(dir);
+    }
+
     @Test
     public void fileAttrTest() {
         var path = getFilePath("a.txt");
@@ -196,6 +575,462 @@ public class FilesTest {
         System.out.println(Files.findAny(".", ".java"));
     }
 
+    @Test
+    public void lazyFindTest() {
+        var dir = Files.createTempDir("lazy_find");
+        for (int i = 0; i < 60; i++) {
+            Files.out("file" + i, dir + "/sub" + (i % 3) + "/deep" + (i % 2) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.out("666", dir + "/a.log", StandardCharsets.UTF_8, false);
+
+        // 按名称搜索所有层
+        Assert.assertEquals(61, Files.find(dir, ".txt", ".log").count());
+
+        // 限制深度：第1层只有3个文件夹和1个文件，第2层有6个文件夹
+        Assert.assertEquals(4, Files.find(dir, 1, name -> true, (path, attrs) -> true).count());
+        Assert.assertEquals(9, Files.find(dir, 2, name -> true, (path, attrs) -> attrs.isDirectory()).count());
+
+        // 按属性搜索，提前结束
+        var log = Files.find(dir, (path, attrs) -> attrs.isRegularFile() && attrs.size() == 3).findFirst();
+        Assert.assertEquals("a.log", log.orElseThrow().getFileName().toString());
+        Assert.assertEquals(5, Files.find(dir, ".txt").limit(5).count());
+
+        // 并行搜索的结果和串行一致
+        var expected = Files.findFiles(dir, ".txt").stream().map(File::toPath).collect(Collectors.toSet());
+        var actual = Files.find(dir, ".txt").parallel().collect(Collectors.toSet());
+        Assert.assertEquals(expected, actual);
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void parallelFindAnyTest() throws IOException {
+        var dir = Files.createTempDir("find_any");
+        for (int i = 0; i < 100; i++) {
+            Files.out("file" + i, dir + "/sub" + (i % 10) + "/deep" + (i % 7) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.out("666", dir + "/sub3/deep5/target.log", StandardCharsets.UTF_8, false);
+
+        // 只有一个符合条件的文件
+        var res = Files.findAny(dir, "target");
+        Assert.assertEquals("target.log", res.getName());
+
+        // 文件夹名称不参与匹配
+        Assert.assertNull(Files.findAny(dir, "deep"));
+
+        // 指定时间限制
+        Assert.assertEquals("42.txt", Files.findAny(dir, "42.", 10_000).getName());
+
+        // 空字符串匹配任意文件
+        Assert.assertTrue(Files.findAny(dir, "").isFile());
+        Assert.assertThrows(IllegalArgumentException.class, () -> Files.findAny(dir, null));
+
+        // 跟随文件夹链接，指向根文件夹的循环链接不展开
+        var other = Files.createTempDir("find_any_link");
+        Files.out("777", other + "/linked.dat", StandardCharsets.UTF_8, false);
+        var root = java.nio.file.Path.of(dir);
+        java.nio.file.Files.createSymbolicLink(root.resolve("sub0/link"), java.nio.file.Path.of(other));
+        java.nio.file.Files.createSymbolicLink(root.resolve("sub1/loop"), root);
+        Assert.assertEquals("linked.dat", Files.findAny(dir, "linked").getName());
+        Assert.assertNull(Files.findAny(dir, "nothing"));
+
+        Files.delete(dir);
+        Files.delete(other);
+    }
+
+    @Test
+    public void parallelDeleteTest() {
+        var dir = Files.createTempDir("parallel_delete");
+
+        // 一个文件很多的文件夹（分批删除）和多层子文件夹
+        for (int i = 0; i < 3000; i++) {
+            Files.out("1", dir + "/many/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        for (int i = 0; i < 100; i++) {
+            Files.out("22", dir + "/sub" + (i % 5) + "/deep" + (i % 3) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        Files.mkdirs(dir + "/empty");
+
+        var res = Files.delete(dir, 4);
+        System.out.println(res + "，每秒删除" + (long) res.entriesPerSecond() + "个");
+        Assert.assertEquals(3100, res.files());
+        Assert.assertEquals(1 + 1 + 5 + 15 + 1, res.dirs());
+        Assert.assertEquals(3000 + 200, res.bytes());
+        Assert.assertFalse(Files.exists(dir));
+
+        // 删除单个文件
+        var path = getFilePath("delete.txt");
+        Files.out("666", path);
+        Assert.assertEquals(1, Files.delete(path, 1).files());
+    }
+
+    @Test
+    public void moveEngineTest() {
+        var dir = Files.createTempDir("move_engine");
+        for (int i = 0; i < 10; i++) {
+            Files.out("1", dir + "/src/a/sub" + (i % 2) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+
+        // 同一个文件系统中整个文件夹一次重命名
+        var res = Files.move(dir + "/src/a", dir + "/des", 2);
+        Assert.assertEquals(1, res.renamed());
+        Assert.assertEquals(0, res.copied());
+        Assert.assertEquals(10, Files.findFiles(dir + "/des/a", ".txt").size());
+        Assert.assertFalse(Files.exists(dir + "/src/a"));
+
+        // 中途退出后重新移动（源文件夹已经不存在）
+        res = Files.move(dir + "/src/a", dir + "/des", 2);
+        Assert.assertEquals(new Files.MoveResult(0, 0, 0, 0), res);
+
+        // 目标文件夹已经存在时合并到目标文件夹
+        Files.out("2", dir + "/src/a/sub0/new.txt", StandardCharsets.UTF_8, false);
+        res = Files.move(dir + "/src/a", dir + "/des", 2);
+        Assert.assertEquals(1, res.renamed());
+        Assert.assertEquals(11, Files.findFiles(dir + "/des/a", ".txt").size());
+        Assert.assertFalse(Files.exists(dir + "/src/a"));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void moveCrossDeviceTest() throws IOException {
+        // 需要另一个文件系统，没有时跳过
+        var other = getOtherFileStoreDir();
+        if (other == null) {
+            return;
+        }
+
+        var dir = Files.createTempDir("move_cross");
+        var desDir = other + "/move_cross_" + System.nanoTime();
+        long lastModified = System.currentTimeMillis() - 60_000;
+        try {
+            for (int i = 0; i < 10; i++) {
+                Files.out("file" + i, dir + "/src/a/sub" + (i % 2) + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+            }
+            new File(dir + "/src/a/sub0/0.txt").setLastModified(lastModified);
+
+            // 不能重命名时逐个复制文件后删除源文件，保留修改时间，不留下临时文件
+            var res = Files.move(dir + "/src/a", desDir, 2);
+            Assert.assertEquals(0, res.renamed());
+            Assert.assertEquals(10, res.copied());
+            Assert.assertEquals(50, res.copiedBytes());
+            Assert.assertFalse(Files.exists(dir + "/src/a"));
+            Assert.assertEquals("file0", Files.read(desDir + "/a/sub0/0.txt", StandardCharsets.UTF_8));
+            Assert.assertEquals(lastModified, new File(desDir + "/a/sub0/0.txt").lastModified());
+            Assert.assertEquals(10, Files.findFiles(desDir + "/a", ".txt").size());
+            Assert.assertEquals(0, Files.findFiles(desDir + "/a", ".jmc-move").size());
+
+            // 模拟中途退出：一个文件已经复制完成，一个文件只复制了一半，一个文件只留下了临时文件
+            for (var name : new String[] {"done", "partial", "temp"}) {
+                Files.out(name + " content", dir + "/src/b/" + name + ".txt", StandardCharsets.UTF_8, false);
+                new File(dir + "/src/b/" + name + ".txt").setLastModified(lastModified);
+            }
+            Files.out("done content", desDir + "/b/done.txt", StandardCharsets.UTF_8, false);
+            new File(desDir + "/b/done.txt").setLastModified(lastModified);
+            Files.out("par", desDir + "/b/partial.txt", StandardCharsets.UTF_8, false);
+            Files.out("tem", desDir + "/b/temp.txt.jmc-move", StandardCharsets.UTF_8, false);
+
+            // 重新移动时只复制没有完成的文件
+            res = Files.move(dir + "/src/b", desDir, 2);
+            Assert.assertEquals(2, res.copied());
+            Assert.assertEquals("partial content".length() + "temp content".length(), res.copiedBytes());
+            Assert.assertFalse(Files.exists(dir + "/src/b"));
+            for (var name : new String[] {"done", "partial", "temp"}) {
+                Assert.assertEquals(name + " content", Files.read(desDir + "/b/" + name + ".txt", StandardCharsets.UTF_8));
+            }
+            Assert.assertFalse(Files.exists(desDir + "/b/temp.txt.jmc-move"));
+
+            // 目标文件长度和修改时间都和源文件相同时认为已经复制完成，只删除源文件
+            Files.out("aaaa", dir + "/src/c/x.txt", StandardCharsets.UTF_8, false);
+            new File(dir + "/src/c/x.txt").setLastModified(lastModified);
+            Files.out("bbbb", desDir + "/c/x.txt", StandardCharsets.UTF_8, false);
+            new File(desDir + "/c/x.txt").setLastModified(lastModified);
+
+            res = Files.move(dir + "/src/c", desDir, 2);
+            Assert.assertEquals(0, res.copied());
+            Assert.assertEquals(0, res.copiedBytes());
+            Assert.assertFalse(Files.exists(dir + "/src/c"));
+            Assert.assertEquals("bbbb", Files.read(desDir + "/c/x.txt", StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(dir);
+            if (Files.exists(desDir)) {
+                Files.delete(desDir);
+            }
+        }
+    }
+
+    @Test
+    public void detectEncodingTest() {
+        var dir = Files.createTempDir("detect_encoding");
+        var gbk = Charset.forName("GBK");
+        Files.out("你好，世界", dir + "/utf8.txt", StandardCharsets.UTF_8, false);
+        Files.out("你好，世界", dir + "/gbk.txt", gbk, false);
+        Files.out("hello", dir + "/ascii.txt", StandardCharsets.UTF_8, false);
+        Files.out(new byte[] {(byte) 0xff, (byte) 0xff, 0x41}, new File(dir + "/bin/a.bin"));
+
+        var res = Files.detectEncoding(dir + "/utf8.txt", 1024, 1);
+        Assert.assertEquals(StandardCharsets.UTF_8, res.charset());
+        Assert.assertTrue(res.confidence() > 0.9);
+        Assert.assertEquals(gbk, Files.getEncoding(dir + "/gbk.txt").orElseThrow());
+        Assert.assertEquals(0.5, Files.detectEncoding(dir + "/ascii.txt", 1024, 1).confidence(), 0);
+        Assert.assertTrue(Files.getEncoding(dir + "/bin/a.bin").isEmpty());
+
+        // 大文件只读取采样窗口
+        var sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("第").append(i).append("行\n");
+        }
+        Files.out(sb.toString(), dir + "/big.txt", gbk, false);
+        res = Files.detectEncoding(dir + "/big.txt", 8 * 1024, 4);
+        Assert.assertEquals(gbk, res.charset());
+        Assert.assertEquals(8 * 1024, res.sampledBytes());
+
+        // 并行识别整个文件夹
+        var all = Files.detectEncodings(dir, 8 * 1024, 4, 2);
+        Assert.assertEquals(5, all.size());
+        Assert.assertEquals(StandardCharsets.UTF_8, all.get(new File(dir + "/utf8.txt")).charset());
+        Assert.assertNull(all.get(new File(dir + "/bin/a.bin")).charset());
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void setEncodingsTest() {
+        var dir = Files.createTempDir("set_encodings");
+        var gbk = Charset.forName("GBK");
+
+        // 大于缓冲区的文件
+        var sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("第").append(i).append("行日志\n");
+        }
+        var content = sb.toString();
+        for (int i = 0; i < 6; i++) {
+            Files.out(content, dir + "/logs" + (i % 2) + "/" + i + ".log", gbk, false);
+        }
+        Files.out("已经是UTF-8", dir + "/utf8.txt", StandardCharsets.UTF_8, false);
+
+        var res = Files.setEncodings(dir, StandardCharsets.UTF_8, 2);
+        Assert.assertEquals(6, res.converted());
+        Assert.assertEquals(1, res.skipped());
+        Assert.assertEquals(content, Files.read(dir + "/logs1/5.log", StandardCharsets.UTF_8));
+        Assert.assertEquals("已经是UTF-8", Files.read(dir + "/utf8.txt", StandardCharsets.UTF_8));
+
+        // 指定原编码转换回GBK
+        res = Files.setEncodings(dir + "/logs0", StandardCharsets.UTF_8, gbk, 2);
+        Assert.assertEquals(3, res.converted());
+        Assert.assertEquals(content, Files.read(dir + "/logs0/0.log", gbk));
+        Assert.assertEquals(3, Files.findFiles(dir + "/logs0").size());
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void findDuplicatesTest() {
+        var dir = Files.createTempDir("find_duplicates");
+        var random = new Random(1);
+
+        // 大文件：内容相同的两份，只有中间不同的一份（需要比较全部内容）
+        var big = new byte[100 * 1024];
+        random.nextBytes(big);
+        Files.out(big, dir + "/a/big1.bin");
+        Files.out(big, dir + "/b/big2.bin");
+        big[50 * 1024]++;
+        Files.out(big, dir + "/b/big3.bin");
+
+        // 小文件：三份相同，一份长度相同内容不同
+        for (int i = 0; i < 3; i++) {
+            Files.out("same", dir + "/c/" + i + ".txt");
+        }
+        Files.out("diff", dir + "/c/3.txt");
+
+        // 长度唯一的文件和空文件
+        Files.out("unique content", dir + "/unique.txt");
+        Files.out("", dir + "/empty1.txt");
+        Files.out("", dir + "/empty2.txt");
+
+        // 重叠的根文件夹不会重复计算
+        var res = Files.findDuplicates(dir, dir + "/a");
+        Assert.assertEquals(2, res.groups().size());
+        Assert.assertEquals(100 * 1024 + 2 * 4, res.reclaimableBytes());
+        Assert.assertEquals(8, res.files());
+
+        // 按可以释放的空间从大到小排列
+        Assert.assertEquals(
+                List.of(new File(dir + "/a/big1.bin"), new File(dir + "/b/big2.bin")),
+                res.groups().get(0)
+        );
+        Assert.assertEquals(3, res.groups().get(1).size());
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void hashTest() throws Exception {
+        var dir = Files.createTempDir("hash");
+        var random = new Random(2);
+        var big = new byte[300 * 1024];
+        random.nextBytes(big);
+        Files.out(big, dir + "/a/big.bin");
+        Files.out("hello", dir + "/a/sub/hello.txt");
+
+        // 文件的摘要和MessageDigest相同
+        var md = MessageDigest.getInstance("SHA-256");
+        Assert.assertArrayEquals(md.digest(big), Files.hash(dir + "/a/big.bin", "SHA-256"));
+        Assert.assertEquals("5d41402abc4b2a76b9719d911017c592", Files.hashHex(dir + "/a/sub/hello.txt", "MD5"));
+
+        // 树形摘要和块大小有关，和线程数无关
+        var tree1 = Files.HashOptions.builder().treeThreshold(100 * 1024).chunkSize(64 * 1024).parallelism(1).build();
+        var tree4 = Files.HashOptions.builder().treeThreshold(100 * 1024).chunkSize(64 * 1024).parallelism(4).build();
+        var treeDigest = Files.hash(dir + "/a/big.bin", tree1);
+        Assert.assertArrayEquals(treeDigest, Files.hash(dir + "/a/big.bin", tree4));
+        Assert.assertFalse(Arrays.equals(md.digest(big), treeDigest));
+
+        // 内容和名称都相同的文件夹摘要相同
+        Files.copy(dir + "/a", dir + "/copy");
+        var digest = Files.hash(dir + "/a", "SHA-256");
+        Assert.assertArrayEquals(digest, Files.hash(dir + "/copy/a", "SHA-256"));
+        Files.out("world", dir + "/copy/a/sub/hello.txt");
+        Assert.assertFalse(Arrays.equals(digest, Files.hash(dir + "/copy/a", "SHA-256")));
+
+        // 修改时间不在最近2秒内的文件会被缓存
+        var cache = new HashCache();
+        var options = Files.HashOptions.builder().cache(cache).build();
+        new File(dir + "/a/big.bin").setLastModified(System.currentTimeMillis() - 10_000);
+        new File(dir + "/a/sub/hello.txt").setLastModified(System.currentTimeMillis() - 10_000);
+        Assert.assertArrayEquals(digest, Files.hash(dir + "/a", options));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertArrayEquals(digest, Files.hash(dir + "/a", options));
+
+        // 长度和修改时间都没有变化时命中缓存（即使内容变了），不使用缓存时重新计算
+        var hello = new File(dir + "/a/sub/hello.txt");
+        long lastModified = hello.lastModified();
+        Files.out("HELLO", hello.getPath());
+        hello.setLastModified(lastModified);
+        Assert.assertArrayEquals(digest, Files.hash(dir + "/a", options));
+        Assert.assertFalse(Arrays.equals(digest, Files.hash(dir + "/a", "SHA-256")));
+
+        // 路径本身是符号链接时计算链接目标的摘要
+        var link = java.nio.file.Path.of(dir, "link.bin");
+        java.nio.file.Files.createSymbolicLink(link, java.nio.file.Path.of(dir, "a/big.bin"));
+        Assert.assertArrayEquals(md.digest(big), Files.hash(link.toString(), "SHA-256"));
+        var dirLink = java.nio.file.Path.of(dir, "link_dir");
+        java.nio.file.Files.createSymbolicLink(dirLink, java.nio.file.Path.of(dir, "copy/a"));
+        Assert.assertArrayEquals(Files.hash(dir + "/copy/a", "SHA-256"), Files.hash(dirLink.toString(), "SHA-256"));
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void grepTest() {
+        var dir = Files.createTempDir("grep");
+        var sb = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            sb.append(i % 100 == 0 ? "ERROR 第" + i + "行\n" : "INFO line " + i + "\n");
+        }
+        Files.out(sb.toString(), dir + "/a.log", StandardCharsets.UTF_8, false);
+        Files.out("error: 没有换行", dir + "/sub/b.log", StandardCharsets.UTF_8, false);
+        Files.out("ERROR", dir + "/c.txt", StandardCharsets.UTF_8, false);
+        Files.out(new byte[] {'E', 'R', 'R', 'O', 'R', 0}, new File(dir + "/d.bin"));
+
+        var logs = Files.GrepOptions.builder().filter(f -> f.getName().endsWith(".log"));
+
+        // 普通字符串
+        try (var matches = Files.grep(dir, "ERROR", logs.build())) {
+            var list = matches.sorted(Comparator.comparingLong(Files.GrepMatch::lineNumber)).toList();
+            Assert.assertEquals(10, list.size());
+            Assert.assertEquals(100, list.get(0).lineNumber());
+            Assert.assertEquals("ERROR 第100行", list.get(0).line());
+        }
+
+        // 忽略大小写，最后一行没有换行
+        try (var matches = Files.grep(dir, "error", logs.ignoreCase(true).build())) {
+            Assert.assertEquals(11, matches.count());
+        }
+
+        // 正则表达式
+        try (var matches = Files.grep(dir, "^INFO line \\d*5$", logs.ignoreCase(false).regex(true).build())) {
+            Assert.assertEquals(100, matches.count());
+        }
+
+        // 搜索所有文件时跳过二进制文件
+        try (var matches = Files.grep(dir, "ERROR")) {
+            Assert.assertEquals(11, matches.count());
+        }
+        try (var matches = Files.grep(dir + "/a.log", "line 777")) {
+            Assert.assertEquals(777, matches.findFirst().orElseThrow().lineNumber());
+        }
+
+        // GBK双字节字符的第二个字节可能是ASCII字符（丂是0x81 0x40，第二个字节是@），不能在字节中直接查找
+        var gbk = Charset.forName("GBK");
+        Files.out("丂\n@乙\n乙\n", dir + "/e.gbk", gbk, false);
+        var gbkOptions = Files.GrepOptions.builder().charset(gbk).filter(f -> f.getName().endsWith(".gbk")).build();
+        try (var matches = Files.grep(dir, "@", gbkOptions)) {
+            var list = matches.toList();
+            Assert.assertEquals(1, list.size());
+            Assert.assertEquals(2, list.get(0).lineNumber());
+            Assert.assertEquals("@乙", list.get(0).line());
+        }
+        try (var matches = Files.grep(dir, "丂", gbkOptions)) {
+            Assert.assertEquals(1, matches.count());
+        }
+
+        Files.delete(dir);
+    }
+
+    @Test
+    public void ioMetricsTest() {
+        var dir = Files.createTempDir("io_metrics");
+        IoMetrics.enable(true);
+        IoMetrics.reset();
+        try {
+            for (int i = 0; i < 10; i++) {
+                Files.out(new byte[1000], dir + "/src/" + i + ".bin");
+            }
+            for (int i = 0; i < 10; i++) {
+                Files.readToBytes(dir + "/src/" + i + ".bin");
+            }
+            Files.copy(dir + "/src", dir + "/des");
+            Files.delete(dir + "/des");
+
+            for (var op : List.of(IoMetrics.Op.OUT, IoMetrics.Op.READ, IoMetrics.Op.COPY, IoMetrics.Op.DELETE)) {
+                var snapshot = IoMetrics.snapshot(op);
+                Assert.assertEquals(10, snapshot.files());
+                Assert.assertEquals(10000, snapshot.bytes());
+                Assert.assertEquals(0, snapshot.errors());
+                Assert.assertTrue(snapshot.latencyPercentile(0.99) > 0);
+            }
+            Assert.assertEquals(10, IoMetrics.snapshot(IoMetrics.Op.OUT).calls());
+            Assert.assertEquals(1, IoMetrics.snapshot(IoMetrics.Op.COPY).calls());
+            Assert.assertEquals(0, IoMetrics.snapshot(IoMetrics.Op.COPY).queueDepth());
+
+            // 复制失败（目标父路径是文件）时只记录出错次数，不记录文件和字节数
+            Files.copy(dir + "/src/0.bin", dir + "/src/1.bin");
+            var copy = IoMetrics.snapshot(IoMetrics.Op.COPY);
+            Assert.assertEquals(10, copy.files());
+            Assert.assertEquals(10000, copy.bytes());
+            Assert.assertEquals(1, copy.errors());
+
+            // 抛出异常的调用也记录调用次数（zip文件的位置是文件夹）
+            Files.mkdirs(dir + "/a.zip");
+            Assert.assertThrows(RuntimeException.class, () -> Files.zip(dir + "/src", dir + "/a.zip", true));
+            Files.zip(dir + "/src", dir + "/b.zip", false);
+            var zip = IoMetrics.snapshot(IoMetrics.Op.ZIP);
+            Assert.assertEquals(2, zip.calls());
+            Assert.assertEquals(10, zip.files());
+            Assert.assertEquals(10000, zip.bytes());
+            Assert.assertEquals(1, zip.errors());
+
+            // 关闭后不再统计
+            IoMetrics.enable(false);
+            Files.out(new byte[1000], dir + "/src/10.bin");
+            Assert.assertEquals(10, IoMetrics.snapshot(IoMetrics.Op.OUT).files());
+        } finally {
+            IoMetrics.enable(false);
+            Files.delete(dir);
+        }
+    }
+
     @Test
     public void treeTest() {
         // 输出深度为3，文件最小为30kb的.文件夹的文件树
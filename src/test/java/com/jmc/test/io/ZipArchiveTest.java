@@ -0,0 +1,96 @@
+package com.jmc.test.io;
+
+import com.jmc.io.Files;
+import com.jmc.io.ZipArchive;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ZipArchiveTest {
+    @Test
+    public void readTest() throws Exception {
+        var dir = Files.createTempDir("zip_archive");
+        for (int i = 0; i < 10; i++) {
+            Files.out("file" + i, dir + "/" + i + ".txt", StandardCharsets.UTF_8, false);
+        }
+        var bs = new byte[2 * 1024 * 1024];
+        new Random(666).nextBytes(bs);
+        Files.out(bs, dir + "/big.bin", false);
+
+        var zipPath = dir + ".zip";
+        Files.zip(dir, zipPath, 2, -1);
+        var name = new java.io.File(dir).getName();
+
+        try (var zip = ZipArchive.builder()
+                .cacheSize(1024)
+                .maxCachedEntrySize(64)
+                .open(zipPath)) {
+            Assert.assertEquals(11, zip.size());
+            Assert.assertTrue(zip.contains(name + "/3.txt"));
+            Assert.assertEquals(bs.length, zip.getEntry(name + "/big.bin").size());
+
+            // 小条目第二次读取命中缓存
+            Assert.assertEquals("file3", new String(zip.readBytes(name + "/3.txt")));
+            Assert.assertEquals("file3", new String(zip.readBytes(name + "/3.txt")));
+            Assert.assertEquals(1, zip.cacheHits());
+            Assert.assertEquals(1, zip.cacheMisses());
+
+            // 大条目以流的方式读取
+            try (var in = zip.getInputStream(name + "/big.bin")) {
+                Assert.assertArrayEquals(bs, in.readAllBytes());
+            }
+
+            // 一个线程同时打开多个条目流
+            var streams = new ArrayList<InputStream>();
+            for (int i = 0; i < 10; i++) {
+                streams.add(zip.getInputStream(name + "/" + i + ".txt"));
+            }
+            for (int i = 0; i < 10; i++) {
+                try (var in = streams.get(i)) {
+                    Assert.assertEquals("file" + i, new String(in.readAllBytes()));
+                }
+            }
+
+            // 多个线程同时读取，并且每个线程嵌套打开两个条目流
+            var nested = Executors.newFixedThreadPool(8);
+            var nestedFutures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; i++) {
+                int n = i % 10;
+                nestedFutures.add(nested.submit(() -> {
+                    try (var a = zip.getInputStream(name + "/" + n + ".txt");
+                         var b = zip.getInputStream(name + "/big.bin")) {
+                        Assert.assertEquals(bs.length, b.readAllBytes().length);
+                        return new String(a.readAllBytes());
+                    }
+                }));
+            }
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals("file" + (i % 10), nestedFutures.get(i).get(1, TimeUnit.MINUTES));
+            }
+            nested.shutdown();
+
+            // 多个线程同时读取
+            var pool = Executors.newFixedThreadPool(8);
+            var futures = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; i++) {
+                int n = i % 10;
+                futures.add(pool.submit(() -> new String(zip.readBytes(name + "/" + n + ".txt"))));
+            }
+            for (int i = 0; i < 100; i++) {
+                Assert.assertEquals("file" + (i % 10), futures.get(i).get());
+            }
+            pool.shutdown();
+
+            Assert.assertThrows(RuntimeException.class, () -> zip.readBytes("not_exists"));
+        }
+
+        Files.delete(dir, zipPath);
+    }
+}